@@ -0,0 +1,100 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Operations of the Dijkstra module measured by the JMH benchmarks in bench/benchmark,
+ * on a synthetic topology (see TopologyGenerator):
+ * - nodeGraph: construction of a NodeGraph edge by edge and freeze
+ * - graphBuilder: bulk construction of a CompactGraph with a GraphBuilder
+ * - singleSource: shortest path tree of one source (the sources are taken in turn)
+ * - pointToPoint: bidirectional shortest path between two random nodes
+ * - allSources: routing tables of every router with the fork-join tasks
+ * - failureSweep: impact of the failure of every link and every node (N-1) with the
+ *   FailureSweep in the common pool
+ * - kShortestPaths: the KSHORTEST_K shortest loopless paths between two random nodes
+ * - hierarchyQuery: shortest path between two random nodes on a contraction hierarchy,
+ *   built when the operation is created
+ */
+public class DijkstraWorkloads implements Function<String, Supplier<Object>> {
+
+    private static final int KSHORTEST_K = 10;
+
+    private final TopologyGenerator.Edges edges;
+    private final String[] labels;
+    private final CompactGraph graph;
+
+    public DijkstraWorkloads(String topology, int nodes, int degree) {
+        edges = TopologyGenerator.generate(topology, nodes, degree, 1);
+        labels = new String[nodes];
+
+        for (int i = 0; i < nodes; i++)
+            labels[i] = String.valueOf(i);
+
+        graph = build();
+    }
+
+    @Override
+    public Supplier<Object> apply(String benchmark) {
+        int nodes = graph.nodeCount();
+        Random random = new Random(1);
+
+        switch (benchmark) {
+            case "nodeGraph":
+                return () -> {
+                    NodeGraph nodeGraph = new NodeGraph();
+
+                    for (int i = 0; i < edges.size; i++)
+                        nodeGraph.addEdge(labels[edges.from[i]], labels[edges.to[i]], edges.cost[i]);
+
+                    return nodeGraph.freeze();
+                };
+            case "graphBuilder":
+                return this::build;
+            case "singleSource": {
+                DijkstraEngine engine = new DijkstraEngine(graph);
+                int[] next = {0};
+
+                return () -> {
+                    ShortestPathTree tree = engine.compute(next[0]);
+
+                    next[0] = (next[0] + 1) % nodes;
+                    return tree;
+                };
+            }
+            case "pointToPoint": {
+                PointToPointEngine engine = new PointToPointEngine(graph);
+
+                return () -> engine.query(random.nextInt(nodes), random.nextInt(nodes));
+            }
+            case "allSources":
+                return () -> RoutingTableTask.computeAll(graph, ForkJoinPool.commonPool());
+            case "failureSweep":
+                return () -> new FailureSweep(graph, false).run(ForkJoinPool.commonPool());
+            case "kShortestPaths": {
+                KShortestPaths engine = new KShortestPaths(graph);
+
+                return () -> engine.compute(random.nextInt(nodes), random.nextInt(nodes), KSHORTEST_K);
+            }
+            case "hierarchyQuery": {
+                HierarchyQueryEngine engine = new HierarchyQueryEngine(HierarchyBuilder.build(graph));
+
+                return () -> engine.query(random.nextInt(nodes), random.nextInt(nodes));
+            }
+            default:
+                throw new IllegalArgumentException("Unknown benchmark " + benchmark);
+        }
+    }
+
+    private CompactGraph build() {
+        GraphBuilder builder = new GraphBuilder();
+
+        for (int i = 0; i < edges.size; i++)
+            builder.addEdge(labels[edges.from[i]], labels[edges.to[i]], edges.cost[i]);
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,77 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * JMH benchmarks of the single queries of the Dijkstra module, the operations are
+ * described in DijkstraWorkloads; the time of one operation is reported in microseconds.
+ * The benchmarks on the whole network are in DijkstraNetworkBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DijkstraBenchmark {
+
+    @Param({"ring", "grid", "er", "ba"})
+    public String topology;
+
+    @Param({"1000", "10000"})
+    public int nodes;
+
+    @Param({"4"})
+    public int degree;
+
+    private Supplier<Object> nodeGraph;
+    private Supplier<Object> graphBuilder;
+    private Supplier<Object> singleSource;
+    private Supplier<Object> pointToPoint;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        Function<String, Supplier<Object>> workloads = Workloads.load("DijkstraWorkloads", topology, nodes, degree);
+
+        nodeGraph = workloads.apply("nodeGraph");
+        graphBuilder = workloads.apply("graphBuilder");
+        singleSource = workloads.apply("singleSource");
+        pointToPoint = workloads.apply("pointToPoint");
+    }
+
+    @Benchmark
+    public Object nodeGraph() {
+        return nodeGraph.get();
+    }
+
+    @Benchmark
+    public Object graphBuilder() {
+        return graphBuilder.get();
+    }
+
+    @Benchmark
+    public Object singleSource() {
+        return singleSource.get();
+    }
+
+    @Benchmark
+    public Object pointToPoint() {
+        return pointToPoint.get();
+    }
+}
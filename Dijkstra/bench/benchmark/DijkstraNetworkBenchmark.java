@@ -0,0 +1,87 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * JMH benchmarks of the Dijkstra module that work on the whole network or need a
+ * preprocessing (allSources, failureSweep, kShortestPaths, hierarchyQuery, see
+ * DijkstraWorkloads), on smaller topologies than DijkstraBenchmark by default;
+ * the time of one operation is reported in milliseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DijkstraNetworkBenchmark {
+
+    @Param({"ring", "grid", "er", "ba"})
+    public String topology;
+
+    @Param({"1000"})
+    public int nodes;
+
+    @Param({"4"})
+    public int degree;
+
+    private Function<String, Supplier<Object>> workloads;
+    private Supplier<Object> allSources;
+    private Supplier<Object> failureSweep;
+    private Supplier<Object> kShortestPaths;
+
+    // the contraction hierarchy is only built for the hierarchyQuery benchmark
+    @State(Scope.Benchmark)
+    public static class Hierarchy {
+        private Supplier<Object> hierarchyQuery;
+
+        @Setup
+        public void setup(DijkstraNetworkBenchmark benchmark) {
+            hierarchyQuery = benchmark.workloads.apply("hierarchyQuery");
+        }
+    }
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        workloads = Workloads.load("DijkstraWorkloads", topology, nodes, degree);
+        allSources = workloads.apply("allSources");
+        failureSweep = workloads.apply("failureSweep");
+        kShortestPaths = workloads.apply("kShortestPaths");
+    }
+
+    @Benchmark
+    public Object allSources() {
+        return allSources.get();
+    }
+
+    @Benchmark
+    public Object failureSweep() {
+        return failureSweep.get();
+    }
+
+    @Benchmark
+    public Object kShortestPaths() {
+        return kShortestPaths.get();
+    }
+
+    @Benchmark
+    public Object hierarchyQuery(Hierarchy hierarchy) {
+        return hierarchy.hierarchyQuery.get();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that represents an immutable copy of a NodeGraph in compressed sparse
+ * row (CSR) form. Every node is identified by a dense index from 0 to
+ * nodeCount() - 1, the neighbours of node u are stored in the slots
+ * offsets[u] .. offsets[u + 1] - 1 of the targets and costs arrays.
+ * <p>
+ * Example of the graph A-B (2), B-C (1), A-C (5), with ids A = 0, B = 1, C = 2:
+ * offsets = 0 2 4 6
+ * targets = 1 2 0 2 0 1
+ * costs   = 2 5 2 1 5 1
+ * <p>
+ * The shortest path engine works only on this representation so that the
+ * inner loops touch primitive arrays only. Instances are created by
+ * NodeGraph.freeze() or in bulk by a GraphBuilder.
+ */
+public class CompactGraph {
+
+    private final NodeIds nodeIds;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] costs;
+
+    // the arrays are not copied, they must not be modified by the caller
+    CompactGraph(NodeIds nodeIds, int[] offsets, int[] targets, int[] costs) {
+        this.nodeIds = nodeIds;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.costs = costs;
+    }
+
+    public int nodeCount() {
+        return offsets.length - 1;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    public NodeIds getNodeIds() {
+        return nodeIds;
+    }
+
+    public String getLabel(int node) {
+        return nodeIds.getLabel(node);
+    }
+
+    // first slot of the neighbours of a node
+    public int firstEdge(int node) {
+        return offsets[node];
+    }
+
+    // slot after the last neighbour of a node
+    public int endEdge(int node) {
+        return offsets[node + 1];
+    }
+
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    public int getCost(int edge) {
+        return costs[edge];
+    }
+
+    // get the indexes of the nodes sorted by label
+    public int[] getNodesByLabel() {
+
+        int[] nodes = nodeIds.getIdsByLabel();
+
+        // nodes added to the ids after the graph was frozen are not part of it
+        if (nodes.length == nodeCount())
+            return nodes;
+
+        int[] frozenNodes = new int[nodeCount()];
+        int count = 0;
+
+        for (int node : nodes)
+            if (node < frozenNodes.length)
+                frozenNodes[count++] = node;
+
+        return frozenNodes;
+    }
+}
@@ -0,0 +1,246 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that represents a contraction hierarchy of a graph, built by a
+ * HierarchyBuilder and queried by a HierarchyQueryEngine.
+ * <p>
+ * Every node has a rank, the position in which it was contracted. Only the
+ * upward links are stored, in compressed sparse row form as in CompactGraph:
+ * the slots offsets[u] .. offsets[u + 1] - 1 contain the links from u to the
+ * neighbours with a higher rank. A link is either a link of the graph
+ * (middle = NO_NODE) or a shortcut that replaces the path
+ * u - middle - target, where middle has a lower rank than both ends.
+ * <p>
+ * The hierarchy does not need the graph once it is built, it can be written
+ * to a file and read again, so the preprocessing is done once for a static
+ * topology. Format of the file, all the values are big endian:
+ * MAGIC (4 bytes), VERSION (int), number of nodes (int), number of links (int),
+ * for every node: length of the label (int), label in UTF-8,
+ * then the int arrays ranks, offsets, targets, costs and middles.
+ */
+public class ContractionHierarchy {
+
+    static final byte[] MAGIC = {0x7F, 'C', 'H', 'G'};
+    static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final NodeIds nodeIds;
+    private final int[] ranks;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] costs;
+    private final int[] middles;
+
+    // the arrays are not copied, they must not be modified by the caller
+    ContractionHierarchy(NodeIds nodeIds, int[] ranks, int[] offsets, int[] targets, int[] costs, int[] middles) {
+        this.nodeIds = nodeIds;
+        this.ranks = ranks;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.costs = costs;
+        this.middles = middles;
+    }
+
+    public int nodeCount() {
+        return ranks.length;
+    }
+
+    // number of upward links, shortcuts included
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    public int shortcutCount() {
+        int count = 0;
+
+        for (int middle : middles)
+            if (middle != ShortestPathTree.NO_NODE)
+                count++;
+
+        return count;
+    }
+
+    public NodeIds getNodeIds() {
+        return nodeIds;
+    }
+
+    public int getRank(int node) {
+        return ranks[node];
+    }
+
+    // first slot of the upward links of a node
+    public int firstEdge(int node) {
+        return offsets[node];
+    }
+
+    // slot after the last upward link of a node
+    public int endEdge(int node) {
+        return offsets[node + 1];
+    }
+
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    public int getCost(int edge) {
+        return costs[edge];
+    }
+
+    // node skipped by a shortcut, NO_NODE for a link of the graph
+    public int getMiddle(int edge) {
+        return middles[edge];
+    }
+
+    // slot of the link between two nodes, stored with the one of lower rank, -1 if not linked
+    public int findEdge(int nodeA, int nodeB) {
+
+        int lower = ranks[nodeA] < ranks[nodeB] ? nodeA : nodeB;
+        int upper = lower == nodeA ? nodeB : nodeA;
+
+        for (int e = offsets[lower]; e < offsets[lower + 1]; e++)
+            if (targets[e] == upper)
+                return e;
+
+        return -1;
+    }
+
+    public void write(File file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.put(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(nodeCount());
+            buffer.putInt(edgeCount());
+
+            for (int node = 0; node < nodeCount(); node++) {
+                byte[] label = nodeIds.getLabel(node).getBytes(StandardCharsets.UTF_8);
+                reserve(channel, buffer, 4 + label.length);
+                buffer.putInt(label.length);
+                buffer.put(label);
+            }
+
+            for (int[] array : new int[][]{ranks, offsets, targets, costs, middles})
+                for (int value : array) {
+                    reserve(channel, buffer, 4);
+                    buffer.putInt(value);
+                }
+
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+    }
+
+    public static ContractionHierarchy read(File file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.flip();
+            ensure(channel, buffer, MAGIC.length + 12);
+
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+
+            if (!Arrays.equals(magic, MAGIC))
+                throw new IOException("Not a contraction hierarchy file");
+
+            if (buffer.getInt() != VERSION)
+                throw new IOException("Unsupported version of the contraction hierarchy");
+
+            int nodeCount = buffer.getInt();
+            int edgeCount = buffer.getInt();
+            NodeIds nodeIds = new NodeIds();
+
+            for (int node = 0; node < nodeCount; node++) {
+                ensure(channel, buffer, 4);
+                byte[] label = new byte[buffer.getInt()];
+
+                if (label.length > BUFFER_SIZE)
+                    throw new IOException("Corrupted contraction hierarchy");
+
+                ensure(channel, buffer, label.length);
+                buffer.get(label);
+                nodeIds.intern(new String(label, StandardCharsets.UTF_8));
+            }
+
+            if (nodeIds.size() != nodeCount)
+                throw new IOException("Corrupted contraction hierarchy");
+
+            int[] ranks = readInts(channel, buffer, nodeCount);
+            int[] offsets = readInts(channel, buffer, nodeCount + 1);
+            int[] targets = readInts(channel, buffer, edgeCount);
+            int[] costs = readInts(channel, buffer, edgeCount);
+            int[] middles = readInts(channel, buffer, edgeCount);
+
+            if (offsets[nodeCount] != edgeCount)
+                throw new IOException("Corrupted contraction hierarchy");
+
+            return new ContractionHierarchy(nodeIds, ranks, offsets, targets, costs, middles);
+        }
+    }
+
+    private static int[] readInts(FileChannel channel, ByteBuffer buffer, int count) throws IOException {
+
+        int[] values = new int[count];
+        int read = 0;
+
+        while (read < count) {
+            ensure(channel, buffer, 4);
+            IntBuffer ints = buffer.asIntBuffer();
+            int length = Math.min(ints.remaining(), count - read);
+            ints.get(values, read, length);
+            buffer.position(buffer.position() + length * 4);
+            read += length;
+        }
+
+        return values;
+    }
+
+    // make at least the given number of bytes available in the buffer
+    private static void ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+
+        if (buffer.remaining() >= bytes)
+            return;
+
+        buffer.compact();
+
+        while (buffer.position() < bytes)
+            if (channel.read(buffer) < 0)
+                throw new IOException("Truncated contraction hierarchy");
+
+        buffer.flip();
+    }
+
+    // write the buffer out if it has no room for the given number of bytes
+    private static void reserve(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+
+        if (buffer.remaining() >= bytes)
+            return;
+
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+
+        if (bytes > buffer.capacity())
+            throw new IOException("Label too long");
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+}
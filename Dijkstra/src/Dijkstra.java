@@ -1,14 +1,137 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
 /**
  * Author: Samuel Dalvai
+ * <p>
+ * Run with the argument "binary" to write all the routing tables to a
+ * single indexed binary file instead of one text file per router, or with
+ * the argument "matrix" to write only the next hops as a matrix that can be
+ * queried without parsing (see NextHopMatrix)
+ * Add the argument "ecmp" to keep all the equal-cost next hops of every
+ * destination and the number of shortest paths towards it
+ * Add the argument "quiet" to print only the progress without the routing
+ * tables, or "silent" to print only the errors (see Log)
+ * The topology file and the output directory can be changed with the
+ * arguments "--topology file" and "--output directory"
+ * Run with the argument "daemon" (optionally followed by "--port number")
+ * to keep the routing tables in memory, compute them again when the topology
+ * file changes and answer queries over HTTP (see RoutingService and RoutingServer)
+ * Run with the arguments "route from to" to print only the shortest path
+ * between two routers and its cost (see PointToPointEngine), add
+ * "--coordinates file" to guide the search with the positions of the nodes,
+ * or "--paths k" to print the k shortest loopless paths (see KShortestPaths)
+ * Run with the argument "contract" to preprocess the topology into a
+ * contraction hierarchy written to "--hierarchy file" (by default in the
+ * output directory), "route from to --hierarchy file" then answers the
+ * query from the hierarchy without reading the topology
+ * Run with the argument "sweep" to evaluate the failure of every link and
+ * every router (N-1), add "pairs" to also evaluate every pair of failures
+ * (N-2); a summary is printed and the impact of every failure is written to
+ * a CSV file in the output directory (see FailureSweep)
+ * Add "--metrics file" to register the counters and the phase timers on JMX
+ * and write them as JSON to the file when the program exits (see Metrics)
  */
 public class Dijkstra {
 
+    private static final int DEFAULT_PORT = 8080;
+
     public static void main(String[] args) {
 
         try {
             String topology = "../topology.txt";
-            //String topology = args[0];
+            String output = DijkstraCalculator.DEFAULT_OUTPUT;
+            boolean daemon = false;
+            int port = DEFAULT_PORT;
+            String[] route = null;
+            int paths = 1;
+            String coordinates = null;
+            String hierarchy = null;
+            boolean contract = false;
+            boolean multipath = false;
+            boolean sweep = false;
+            boolean pairs = false;
+            String metrics = null;
+            FileUtilities.OutputFormat format = FileUtilities.OutputFormat.TEXT;
+
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--topology"))
+                    topology = args[++i];
+                else if (args[i].equals("--output"))
+                    output = args[++i];
+                else if (args[i].equals("--port"))
+                    port = Integer.parseInt(args[++i]);
+                else if (args[i].equals("route"))
+                    route = new String[]{args[++i], args[++i]};
+                else if (args[i].equals("--paths"))
+                    paths = Integer.parseInt(args[++i]);
+                else if (args[i].equals("--coordinates"))
+                    coordinates = args[++i];
+                else if (args[i].equals("--hierarchy"))
+                    hierarchy = args[++i];
+                else if (args[i].equals("--metrics"))
+                    metrics = args[++i];
+                else if (args[i].equals("contract"))
+                    contract = true;
+                else if (args[i].equals("sweep"))
+                    sweep = true;
+                else if (args[i].equals("pairs"))
+                    pairs = true;
+                else if (args[i].equals("daemon"))
+                    daemon = true;
+                else if (args[i].equals("binary"))
+                    format = FileUtilities.OutputFormat.BINARY;
+                else if (args[i].equals("matrix"))
+                    format = FileUtilities.OutputFormat.MATRIX;
+                else if (args[i].equals("ecmp"))
+                    multipath = true;
+                else if (args[i].equals("quiet"))
+                    Log.setLevel(Log.Level.INFO);
+                else if (args[i].equals("silent"))
+                    Log.setLevel(Log.Level.ERROR);
+            }
+
+            if (metrics != null) {
+                Metrics.registerMBean();
+                Metrics.writeSummaryAtExit(new File(metrics));
+            }
+
+            if (contract) {
+                runContract(topology, hierarchy != null ? hierarchy
+                        : new File(output, FileUtilities.OUTPUT_HIERARCHY).getPath());
+                return;
+            }
+
+            if (route != null && hierarchy != null) {
+                runHierarchyRoute(hierarchy, route[0], route[1]);
+                return;
+            }
+
+            if (route != null && paths > 1) {
+                runKShortestPaths(topology, route[0], route[1], paths);
+                return;
+            }
+
+            if (route != null) {
+                runRoute(topology, coordinates, route[0], route[1]);
+                return;
+            }
+
+            if (sweep) {
+                runSweep(topology, new File(output, FileUtilities.OUTPUT_SWEEP), pairs);
+                return;
+            }
+
+            if (daemon) {
+                runDaemon(topology, port);
+                return;
+            }
+
             DijkstraCalculator calculator = new DijkstraCalculator(topology);
+            calculator.setOutputFormat(format);
+            calculator.setOutputDirectory(new File(output));
+            calculator.setMultipath(multipath);
             calculator.run();
         } catch (ArrayIndexOutOfBoundsException e) {
             System.err.println("Error... Argument passed is empty...\n" +
@@ -18,4 +141,158 @@ public class Dijkstra {
 
     }
 
+    // print the shortest path between two routers without computing the routing tables
+    private static void runRoute(String topology, String coordinatesFile, String from, String to) {
+
+        try {
+            CompactGraph graph = DijkstraRouting.readGraph(topology);
+            NodeCoordinates coordinates = null;
+
+            if (coordinatesFile != null) {
+                coordinates = NodeCoordinates.read(graph, coordinatesFile);
+
+                if (!coordinates.isComplete()) {
+                    Log.error("Some nodes have no coordinates, searching without them");
+                    coordinates = null;
+                }
+            }
+
+            long start = System.nanoTime();
+            ShortestPath path = DijkstraRouting.computePath(graph, coordinates, from, to);
+            long micros = (System.nanoTime() - start) / 1000;
+
+            printPath(path, from, to, graph.nodeCount(), micros);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // print the k shortest loopless paths between two routers, one path and its cost per line
+    private static void runKShortestPaths(String topology, String from, String to, int k) {
+
+        try {
+            CompactGraph graph = DijkstraRouting.readGraph(topology);
+
+            long start = System.nanoTime();
+            List<ShortestPath> paths = DijkstraRouting.computeKShortestPaths(graph, from, to, k);
+            long micros = (System.nanoTime() - start) / 1000;
+
+            if (paths.isEmpty()) {
+                Log.error("No path from " + from + " to " + to + ", unknown router or unreachable destination");
+                return;
+            }
+
+            for (ShortestPath path : paths)
+                System.out.println(path + " (cost " + path.getCost() + ")");
+
+            Log.info(paths.size() + " paths computed in " + micros + " us");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // evaluate the failures of the links and routers, print the summary and write the impact of every failure
+    private static void runSweep(String topology, File file, boolean pairs) {
+
+        try {
+            CompactGraph graph = DijkstraRouting.readGraph(topology);
+            SweepReport report;
+
+            Metrics.Timer timer = Metrics.start(Metrics.Phase.COMPUTE);
+            try {
+                report = DijkstraRouting.sweepFailures(graph, pairs);
+            } finally {
+                timer.stop();
+            }
+
+            Log.info(() -> report);
+
+            timer = Metrics.start(Metrics.Phase.WRITE);
+            try {
+                report.write(file);
+            } finally {
+                timer.stop();
+            }
+
+            Log.info("Impact of every failure written to " + file.getPath() + "...");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // build the contraction hierarchy of the topology and write it to a file
+    private static void runContract(String topology, String hierarchyFile) {
+
+        try {
+            CompactGraph graph = DijkstraRouting.readGraph(topology);
+
+            long start = System.nanoTime();
+            ContractionHierarchy hierarchy = DijkstraRouting.buildHierarchy(graph);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            File file = new File(hierarchyFile);
+
+            if (file.getParentFile() != null)
+                file.getParentFile().mkdirs();
+
+            hierarchy.write(file);
+            Log.info("Contraction hierarchy of " + hierarchy.nodeCount() + " nodes with "
+                    + hierarchy.shortcutCount() + " shortcuts built in " + millis + " ms, written to " + file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // print the shortest path between two routers read from a contraction hierarchy
+    private static void runHierarchyRoute(String hierarchyFile, String from, String to) {
+
+        try {
+            ContractionHierarchy hierarchy = ContractionHierarchy.read(new File(hierarchyFile));
+
+            long start = System.nanoTime();
+            ShortestPath path = new HierarchyQueryEngine(hierarchy).query(from, to);
+            long micros = (System.nanoTime() - start) / 1000;
+
+            printPath(path, from, to, hierarchy.nodeCount(), micros);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void printPath(ShortestPath path, String from, String to, int nodeCount, long micros) {
+
+        if (path == null) {
+            Log.error("No path from " + from + " to " + to + ", unknown router or unreachable destination");
+            return;
+        }
+
+        System.out.println(path);
+        System.out.println("cost " + path.getCost());
+        Log.info("Settled " + path.getSettledCount() + " of " + nodeCount + " nodes in " + micros + " us");
+    }
+
+    // serve queries until the process is stopped
+    private static void runDaemon(String topology, int port) {
+
+        try {
+            RoutingService service = new RoutingService(topology);
+            service.start();
+
+            RoutingServer server = new RoutingServer(service, port, Runtime.getRuntime().availableProcessors());
+            server.start();
+
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+
+                try {
+                    service.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
 }
@@ -0,0 +1,200 @@
+import java.util.Arrays;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that computes the Dijkstra algorithm on a CompactGraph.
+ * <p>
+ * The next node to visit is taken from an indexed binary heap keyed by
+ * the tentative cost, every edge is relaxed at most once from each side,
+ * so the computation of a tree costs O(E log V).
+ * The heap and the scratch buffers are allocated once and reused for every
+ * source, therefore an engine must not be shared between threads.
+ * The work of every tree is added to the Metrics counters once it is computed.
+ */
+public class DijkstraEngine {
+
+    private final CompactGraph graph;
+    private final IntMinHeap heap;
+    // buffers used by computeNextHops, allocated on first use
+    private int[] scratchCosts;
+    private int[] scratchPredecessors;
+    private int[] scratchOrder;
+
+    public DijkstraEngine(CompactGraph graph) {
+        this.graph = graph;
+        this.heap = new IntMinHeap(graph.nodeCount());
+    }
+
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    // compute the shortest path tree from the source node
+    public ShortestPathTree compute(int source) {
+
+        int nodeCount = graph.nodeCount();
+        int[] costs = new int[nodeCount];
+        int[] predecessors = new int[nodeCount];
+        int[] settleOrder = new int[nodeCount];
+
+        int settledCount = run(source, costs, predecessors, settleOrder);
+
+        return new ShortestPathTree(source, costs, predecessors, settleOrder, settledCount);
+    }
+
+    /**
+     * compute only the next hop of every node from the source node, the tree
+     * is built in scratch arrays owned by the engine, so no memory is
+     * allocated when the same engine is used for every source
+     */
+    public void computeNextHops(int source, int[] nextHops) {
+
+        if (scratchCosts == null) {
+            int nodeCount = graph.nodeCount();
+            scratchCosts = new int[nodeCount];
+            scratchPredecessors = new int[nodeCount];
+            scratchOrder = new int[nodeCount];
+        }
+
+        int settledCount = run(source, scratchCosts, scratchPredecessors, scratchOrder);
+        ShortestPathTree.fillNextHops(source, scratchPredecessors, scratchOrder, settledCount, nextHops);
+    }
+
+    /**
+     * compute all the equal-cost shortest paths from the source node in a
+     * single pass: when a node is reached at a lower cost it takes the next
+     * hops and the number of paths of the node it is reached from, when it
+     * is reached again at the same cost before being settled they are added
+     * to its own. A link of cost 0 is rejected (IllegalArgumentException):
+     * its two ends could reach each other at the same cost, so the paths of a
+     * node would not be complete when it is settled
+     */
+    public MultipathTree computeMultipath(int source) {
+
+        int nodeCount = graph.nodeCount();
+        int firstEdge = graph.firstEdge(source);
+        // one bit per link of the source
+        int words = Math.max(1, (graph.endEdge(source) - firstEdge + 63) >>> 6);
+
+        int[] costs = new int[nodeCount];
+        long[] nextHopBits = new long[Math.multiplyExact(nodeCount, words)];
+        long[] pathCounts = new long[nodeCount];
+
+        Arrays.fill(costs, ShortestPathTree.INFINITE);
+        costs[source] = 0;
+        pathCounts[source] = 1;
+        heap.clear();
+        heap.insertOrDecrease(source, 0);
+        long heapOperations = 1;
+        long relaxations = 0;
+
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            int nodeCost = costs[node];
+            heapOperations++;
+            relaxations += graph.endEdge(node) - graph.firstEdge(node);
+
+            for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++) {
+                int edgeCost = graph.getCost(e);
+
+                if (edgeCost == ShortestPathTree.INFINITE)
+                    continue;
+
+                int neighbour = graph.getTarget(e);
+
+                if (edgeCost == 0)
+                    throw new IllegalArgumentException("Equal-cost paths cannot be computed with the link of cost 0"
+                            + " between " + graph.getLabel(node) + " and " + graph.getLabel(neighbour));
+
+                int newCost = nodeCost + edgeCost;
+
+                // a negative value means that the sum overflowed
+                if (newCost < 0)
+                    continue;
+
+                if (newCost < costs[neighbour]) {
+                    costs[neighbour] = newCost;
+                    pathCounts[neighbour] = pathCounts[node];
+
+                    if (node == source) {
+                        Arrays.fill(nextHopBits, neighbour * words, (neighbour + 1) * words, 0);
+                        setBit(nextHopBits, neighbour * words, e - firstEdge);
+                    } else
+                        System.arraycopy(nextHopBits, node * words, nextHopBits, neighbour * words, words);
+
+                    heap.insertOrDecrease(neighbour, newCost);
+                    heapOperations++;
+                } else if (newCost == costs[neighbour] && heap.contains(neighbour)) {
+                    long paths = pathCounts[neighbour] + pathCounts[node];
+                    pathCounts[neighbour] = paths < 0 ? Long.MAX_VALUE : paths;
+
+                    if (node == source)
+                        setBit(nextHopBits, neighbour * words, e - firstEdge);
+                    else
+                        for (int w = 0; w < words; w++)
+                            nextHopBits[neighbour * words + w] |= nextHopBits[node * words + w];
+                }
+            }
+        }
+
+        addMetrics(heapOperations, relaxations);
+        return new MultipathTree(graph, source, costs, nextHopBits, words, pathCounts);
+    }
+
+    private static void addMetrics(long heapOperations, long relaxations) {
+        Metrics.add(Metrics.Counter.TREES, 1);
+        Metrics.add(Metrics.Counter.HEAP_OPERATIONS, heapOperations);
+        Metrics.add(Metrics.Counter.EDGE_RELAXATIONS, relaxations);
+    }
+
+    private static void setBit(long[] bits, int offset, int bit) {
+        bits[offset + (bit >>> 6)] |= 1L << bit;
+    }
+
+    // Dijkstra algorithm, return the number of nodes reached from the source
+    private int run(int source, int[] costs, int[] predecessors, int[] settleOrder) {
+
+        int settledCount = 0;
+        // counted here and added to the metrics once, the loop does not touch shared memory
+        long heapOperations = 1;
+        long relaxations = 0;
+
+        Arrays.fill(costs, ShortestPathTree.INFINITE);
+        Arrays.fill(predecessors, ShortestPathTree.NO_NODE);
+
+        costs[source] = 0;
+        predecessors[source] = source;
+        heap.clear();
+        heap.insertOrDecrease(source, 0);
+
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            int nodeCost = costs[node];
+            settleOrder[settledCount++] = node;
+            heapOperations++;
+            relaxations += graph.endEdge(node) - graph.firstEdge(node);
+
+            for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++) {
+                int edgeCost = graph.getCost(e);
+
+                if (edgeCost == ShortestPathTree.INFINITE)
+                    continue;
+
+                int neighbour = graph.getTarget(e);
+                int newCost = nodeCost + edgeCost;
+
+                // a negative value means that the sum overflowed
+                if (newCost >= 0 && newCost < costs[neighbour]) {
+                    costs[neighbour] = newCost;
+                    predecessors[neighbour] = node;
+                    heap.insertOrDecrease(neighbour, newCost);
+                    heapOperations++;
+                }
+            }
+        }
+
+        addMetrics(heapOperations, relaxations);
+        return settledCount;
+    }
+}
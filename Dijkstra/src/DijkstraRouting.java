@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Entry point to use the Dijkstra module as a library, e.g. embedded in a
+ * long running service: the graph is built in memory (with a NodeGraph or
+ * a GraphBuilder) or read from a topology file, and the results are returned
+ * as RoutingTable and ShortestPathTree objects. Nothing is printed and
+ * nothing is written to the filesystem, see DijkstraCalculator for the
+ * command line application.
+ * <p>
+ * Example:
+ * GraphBuilder builder = new GraphBuilder();
+ * builder.addEdge("A", "B", 2);
+ * builder.addEdge("B", "C", 1);
+ * List&lt;RoutingTable&gt; tables = DijkstraRouting.computeTables(builder.build());
+ * <p>
+ * All the methods are thread safe as long as the graph is not modified,
+ * a CompactGraph can be shared by any number of threads.
+ */
+public final class DijkstraRouting {
+
+    private DijkstraRouting() {
+    }
+
+    // read a topology in text or binary format (see TopologyReader)
+    public static CompactGraph readGraph(String filename) throws IOException {
+        return TopologyReader.readCompactGraph(filename);
+    }
+
+    // routing tables of all the routers sorted by label, computed in the common pool
+    public static List<RoutingTable> computeTables(CompactGraph graph) {
+        return computeTables(graph, ForkJoinPool.commonPool());
+    }
+
+    // routing tables of all the routers sorted by label, computed in the given pool
+    public static List<RoutingTable> computeTables(CompactGraph graph, ForkJoinPool pool) {
+        return RoutingTableTask.computeAll(graph, pool);
+    }
+
+    /**
+     * routing tables of all the routers sorted by label with all the
+     * equal-cost next hops of every destination and the number of shortest
+     * paths towards it (see RoutingTable.fromMultipath)
+     */
+    public static List<RoutingTable> computeMultipathTables(CompactGraph graph) {
+        return RoutingTableTask.computeAll(graph, ForkJoinPool.commonPool(), true);
+    }
+
+    // all the equal-cost shortest paths from a router, null if the router is not in the graph
+    public static MultipathTree computeMultipathTree(CompactGraph graph, String router) {
+
+        int source = graph.getNodeIds().getId(router);
+
+        if (source == NodeIds.NO_ID || source >= graph.nodeCount())
+            return null;
+
+        return new DijkstraEngine(graph).computeMultipath(source);
+    }
+
+    public static List<RoutingTable> computeTables(NodeGraph graph) {
+        return computeTables(graph.freeze());
+    }
+
+    /**
+     * Stream of the routing tables sorted by router label, every table is
+     * computed only when it is consumed, so a large network can be processed
+     * without keeping all its tables in memory
+     */
+    public static Stream<RoutingTable> streamTables(CompactGraph graph) {
+
+        int[] nodesByLabel = graph.getNodesByLabel();
+        // one engine and buffer per thread, so the stream can also be made parallel
+        ThreadLocal<DijkstraEngine> engines = ThreadLocal.withInitial(() -> new DijkstraEngine(graph));
+        ThreadLocal<int[]> buffers = ThreadLocal.withInitial(() -> new int[graph.nodeCount()]);
+
+        return IntStream.of(nodesByLabel).mapToObj(router -> {
+            int[] nextHops = buffers.get();
+            engines.get().computeNextHops(router, nextHops);
+            return RoutingTable.fromNextHops(graph, router, nextHops, nodesByLabel);
+        });
+    }
+
+    // routing table of a single router, null if the router is not in the graph
+    public static RoutingTable computeTable(CompactGraph graph, String router) {
+
+        int source = graph.getNodeIds().getId(router);
+
+        if (source == NodeIds.NO_ID || source >= graph.nodeCount())
+            return null;
+
+        int[] nextHops = new int[graph.nodeCount()];
+        new DijkstraEngine(graph).computeNextHops(source, nextHops);
+
+        return RoutingTable.fromNextHops(graph, source, nextHops, graph.getNodesByLabel());
+    }
+
+    /**
+     * shortest path between two routers with a bidirectional search (see
+     * PointToPointEngine), null if a router is not in the graph or the
+     * destination cannot be reached. To answer many queries on the same graph
+     * create one PointToPointEngine per thread instead
+     */
+    public static ShortestPath computePath(CompactGraph graph, String from, String to) {
+        return computePath(graph, null, from, to);
+    }
+
+    // as computePath(graph, from, to) with the coordinates of the nodes used as A* heuristic
+    public static ShortestPath computePath(CompactGraph graph, NodeCoordinates coordinates, String from, String to) {
+
+        int source = graph.getNodeIds().getId(from);
+        int target = graph.getNodeIds().getId(to);
+
+        if (source == NodeIds.NO_ID || source >= graph.nodeCount()
+                || target == NodeIds.NO_ID || target >= graph.nodeCount())
+            return null;
+
+        return new PointToPointEngine(graph, coordinates).query(source, target);
+    }
+
+    /**
+     * the k shortest loopless paths between two routers sorted by cost (see
+     * KShortestPaths), empty if a router is not in the graph or the
+     * destination cannot be reached
+     */
+    public static List<ShortestPath> computeKShortestPaths(CompactGraph graph, String from, String to, int k) {
+
+        int source = graph.getNodeIds().getId(from);
+        int target = graph.getNodeIds().getId(to);
+
+        if (source == NodeIds.NO_ID || source >= graph.nodeCount()
+                || target == NodeIds.NO_ID || target >= graph.nodeCount())
+            return Collections.emptyList();
+
+        return new KShortestPaths(graph).compute(source, target, k);
+    }
+
+    /**
+     * preprocess the graph into a contraction hierarchy (see HierarchyBuilder),
+     * the hierarchy answers point-to-point queries with a HierarchyQueryEngine
+     * much faster than a search on the graph and can be saved with write()
+     */
+    public static ContractionHierarchy buildHierarchy(CompactGraph graph) {
+        return HierarchyBuilder.build(graph);
+    }
+
+    /**
+     * impact on the routing tables of the failure of every link and every
+     * node, and of every pair of them if pairs is true, evaluated in the
+     * common pool (see FailureSweep)
+     */
+    public static SweepReport sweepFailures(CompactGraph graph, boolean pairs) {
+        return new FailureSweep(graph, pairs).run(ForkJoinPool.commonPool());
+    }
+
+    public static SweepReport sweepFailures(NodeGraph graph, boolean pairs) {
+        return sweepFailures(graph.freeze(), pairs);
+    }
+
+    // shortest path tree (costs and predecessors) of a router, null if the router is not in the graph
+    public static ShortestPathTree computeTree(CompactGraph graph, String router) {
+
+        int source = graph.getNodeIds().getId(router);
+
+        if (source == NodeIds.NO_ID || source >= graph.nodeCount())
+            return null;
+
+        return new DijkstraEngine(graph).compute(source);
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.Locale;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that represents one scenario of a FailureSweep: one or two failed
+ * elements, an element being a link (its two endpoints) or a node, and the
+ * impact of the failure on the routing tables of the surviving routers:
+ * - lost pairs: the (router, destination) pairs that were reachable before
+ *   the failure and are not anymore
+ * - stretched pairs: the pairs still reachable at a higher cost, with the
+ *   highest and the mean stretch (new cost / cost before the failure) of
+ *   their paths; a pair whose cost was 0 is counted but has no stretch
+ * - changed tables: the routers with at least one different next hop; when
+ *   the new path has the same cost as another one, the path that keeps the
+ *   next hop is preferred
+ * <p>
+ * The pairs of a failed node, as router or as destination, are not counted.
+ */
+public class FailureScenario {
+
+    private final String description;
+    private long lostPairs;
+    private long stretchedPairs;
+    private long changedTables;
+    private double stretchSum;
+    private long stretchCount;
+    private double maxStretch;
+
+    public FailureScenario(String description) {
+        this.description = description;
+    }
+
+    // the failed elements, e.g. "link A B" or "link A B + node C"
+    public String getDescription() {
+        return description;
+    }
+
+    public long getLostPairs() {
+        return lostPairs;
+    }
+
+    public long getStretchedPairs() {
+        return stretchedPairs;
+    }
+
+    public long getChangedTables() {
+        return changedTables;
+    }
+
+    // highest stretch of a stretched pair, 1 if no pair is stretched
+    public double getMaxStretch() {
+        return stretchCount == 0 ? 1 : maxStretch;
+    }
+
+    // mean stretch of the stretched pairs, 1 if no pair is stretched
+    public double getMeanStretch() {
+        return stretchCount == 0 ? 1 : stretchSum / stretchCount;
+    }
+
+    // whether the failure changes anything in the routing tables
+    public boolean hasImpact() {
+        return lostPairs > 0 || stretchedPairs > 0 || changedTables > 0;
+    }
+
+    // add the impact of the failure on some of the routers (see FailureSweep)
+    void add(long lostPairs, long stretchedPairs, long changedTables, double stretchSum, long stretchCount,
+             double maxStretch) {
+        this.lostPairs += lostPairs;
+        this.stretchedPairs += stretchedPairs;
+        this.changedTables += changedTables;
+        this.stretchSum += stretchSum;
+        this.stretchCount += stretchCount;
+        this.maxStretch = Math.max(this.maxStretch, maxStretch);
+    }
+
+    @Override
+    public String toString() {
+        return description + ": " + lostPairs + " pairs lost, " + stretchedPairs + " pairs stretched (max "
+                + format(getMaxStretch()) + ", mean " + format(getMeanStretch()) + "), "
+                + changedTables + " tables changed";
+    }
+
+    // two decimals with a dot whatever the locale, the value is also written to CSV files
+    static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
@@ -0,0 +1,728 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that evaluates the failure of every single link and every single
+ * node of a CompactGraph (N-1), and optionally of every pair of them (N-2),
+ * and measures the impact of each failure on the routing tables (see
+ * FailureScenario).
+ * <p>
+ * The sources are split between the threads of a fork-join pool: the tree
+ * of a source is computed once, then every scenario is evaluated for it
+ * without running the Dijkstra algorithm again, as in
+ * IncrementalRoutingTables:
+ * - a failure that does not touch the tree (a link that is not a tree link,
+ *   a node that cannot be reached) changes nothing for the source and is
+ *   skipped, so only n - 1 links and n - 1 nodes are evaluated per source
+ * - otherwise the subtrees below the failed elements are disconnected and
+ *   their nodes are reached again from the nodes outside of them, the rest
+ *   of the tree keeps its costs and next hops; a disconnected node with
+ *   another neighbour at the same cost keeps its cost with its subtree, so
+ *   only the nodes whose cost may grow go through the Dijkstra algorithm
+ * - a pair is evaluated only if one of its elements touches the tree; if the
+ *   other does not, and the repaired tree of the first one does not use it,
+ *   the impact of the pair is the impact of the first element alone
+ * <p>
+ * Only one tree is kept per thread, so the memory does not grow with the
+ * square of the number of nodes. The impact of the single failures is summed
+ * per thread and merged at the end; the impact of the pairs evaluated from
+ * an element is collected in a row per thread and added to one table shared
+ * by all the threads, with a row per element, so that the pairs are stored
+ * once whatever the number of threads. A pair of a node and one of its links
+ * is the failure of the node alone, so it is left out.
+ */
+public class FailureSweep {
+
+    // number of leaf tasks per worker thread, to balance uneven sources
+    private static final int TASKS_PER_THREAD = 8;
+    private static final int NONE = -1;
+
+    private final CompactGraph graph;
+    private final boolean pairs;
+    private final int nodeCount;
+    // element i < linkCount is the link linkA[i]-linkB[i], element linkCount + v is the node v
+    private final int linkCount;
+    private final int elementCount;
+    private final int[] linkA;
+    private final int[] linkB;
+    // link element of every edge slot of the graph
+    private final int[] edgeLinks;
+    private final int scenarioCount;
+    // impact of the pairs evaluated from every element, created when the element is first evaluated
+    private Totals[] pairRows;
+
+    public FailureSweep(CompactGraph graph, boolean pairs) {
+
+        this.graph = graph;
+        this.pairs = pairs;
+        this.nodeCount = graph.nodeCount();
+        this.edgeLinks = new int[graph.edgeCount()];
+
+        int[] rank = new int[nodeCount];
+        int[] nodesByLabel = graph.getNodesByLabel();
+
+        for (int i = 0; i < nodeCount; i++)
+            rank[nodesByLabel[i]] = i;
+
+        // every link once, from the endpoint that comes first by label
+        int[] a = new int[graph.edgeCount() / 2];
+        int[] b = new int[graph.edgeCount() / 2];
+        int links = 0;
+
+        for (int node : nodesByLabel)
+            for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++)
+                if (rank[graph.getTarget(e)] > rank[node]) {
+                    a[links] = node;
+                    b[links] = graph.getTarget(e);
+                    edgeLinks[e] = links++;
+                }
+
+        for (int node = 0; node < nodeCount; node++)
+            for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++)
+                if (rank[graph.getTarget(e)] < rank[node])
+                    edgeLinks[e] = edgeLinks[findEdge(graph.getTarget(e), node)];
+
+        this.linkCount = links;
+        this.linkA = a;
+        this.linkB = b;
+        this.elementCount = linkCount + nodeCount;
+
+        long scenarios = pairs ? elementCount + (long) elementCount * (elementCount - 1) / 2 : elementCount;
+
+        if (scenarios > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many pairs of failures: " + scenarios);
+
+        this.scenarioCount = (int) scenarios;
+    }
+
+    public int scenarioCount() {
+        return scenarioCount;
+    }
+
+    // evaluate all the scenarios on the threads of the pool
+    public SweepReport run(ForkJoinPool pool) {
+
+        long start = System.nanoTime();
+        Queue<Worker> workers = new ConcurrentLinkedQueue<>();
+        pairRows = pairs ? new Totals[elementCount] : null;
+        int threshold = Math.max(1, nodeCount / (pool.getParallelism() * TASKS_PER_THREAD));
+
+        pool.invoke(new SweepTask(workers, 0, nodeCount, threshold));
+
+        FailureScenario[] scenarios = new FailureScenario[scenarioCount];
+
+        for (int i = 0; i < elementCount; i++) {
+            scenarios[i] = new FailureScenario(describe(i));
+
+            if (pairs)
+                for (int j = i + 1; j < elementCount; j++)
+                    if (!isRedundant(i, j))
+                        scenarios[pairIndex(i, j)] = new FailureScenario(describe(i) + " + " + describe(j));
+        }
+
+        long basePairs = 0;
+
+        for (Worker worker : workers) {
+            basePairs += worker.basePairs;
+
+            for (int i = 0; i < elementCount; i++)
+                worker.singles.addTo(scenarios[i], i);
+        }
+
+        // the pair i, j was evaluated from both of its elements, for different sources
+        if (pairs)
+            for (int i = 0; i < elementCount; i++)
+                for (int j = i + 1; j < elementCount; j++) {
+                    FailureScenario scenario = scenarios[pairIndex(i, j)];
+
+                    if (scenario == null)
+                        continue;
+
+                    if (pairRows[i] != null)
+                        pairRows[i].addTo(scenario, j);
+
+                    if (pairRows[j] != null)
+                        pairRows[j].addTo(scenario, i);
+                }
+
+        pairRows = null;
+
+        List<FailureScenario> result = new ArrayList<>(scenarioCount);
+
+        for (FailureScenario scenario : scenarios)
+            if (scenario != null)
+                result.add(scenario);
+
+        return new SweepReport(result, nodeCount, linkCount, basePairs, pairs,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private String describe(int element) {
+        return element < linkCount ? "link " + graph.getLabel(linkA[element]) + " " + graph.getLabel(linkB[element])
+                : "node " + graph.getLabel(element - linkCount);
+    }
+
+    // index of the scenario of the elements i < j, after the single failures
+    private int pairIndex(int i, int j) {
+        return elementCount + (int) ((long) i * elementCount - (long) i * (i + 1) / 2) + j - i - 1;
+    }
+
+    // whether one element is a link of the other one, a node
+    private boolean isRedundant(int i, int j) {
+        int link = Math.min(i, j);
+        int node = Math.max(i, j) - linkCount;
+
+        return link < linkCount && node >= 0 && (linkA[link] == node || linkB[link] == node);
+    }
+
+    // the shared row of the pairs evaluated from an element
+    private synchronized Totals pairRow(int element) {
+
+        if (pairRows[element] == null)
+            pairRows[element] = new Totals(elementCount);
+
+        return pairRows[element];
+    }
+
+    private int findEdge(int from, int to) {
+
+        for (int e = graph.firstEdge(from), end = graph.endEdge(from); e < end; e++)
+            if (graph.getTarget(e) == to)
+                return e;
+
+        return NONE;
+    }
+
+    // fork-join task that sweeps a range of sources, split in half until it is small enough
+    private class SweepTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Queue<Worker> workers;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        SweepTask(Queue<Worker> workers, int from, int to, int threshold) {
+            this.workers = workers;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (to - from > threshold) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SweepTask(workers, from, middle, threshold),
+                        new SweepTask(workers, middle, to, threshold));
+                return;
+            }
+
+            // a worker is used by one task at a time, all of them are back in the queue at the end
+            Worker worker = workers.poll();
+
+            if (worker == null)
+                worker = new Worker();
+
+            for (int source = from; source < to; source++)
+                worker.sweep(source);
+
+            workers.add(worker);
+        }
+    }
+
+    // impact of a set of scenarios summed over sources, by index
+    private static class Totals {
+
+        private final long[] lost;
+        private final long[] stretched;
+        private final long[] changed;
+        private final double[] stretchSums;
+        private final long[] stretchCounts;
+        private final double[] maxStretches;
+
+        Totals(int size) {
+            this.lost = new long[size];
+            this.stretched = new long[size];
+            this.changed = new long[size];
+            this.stretchSums = new double[size];
+            this.stretchCounts = new long[size];
+            this.maxStretches = new double[size];
+        }
+
+        void add(int index, long lostPairs, long stretchedPairs, boolean tableChanged, double stretchSum,
+                 long stretchCount, double maxStretch) {
+            lost[index] += lostPairs;
+            stretched[index] += stretchedPairs;
+            changed[index] += tableChanged ? 1 : 0;
+            stretchSums[index] += stretchSum;
+            stretchCounts[index] += stretchCount;
+            maxStretches[index] = Math.max(maxStretches[index], maxStretch);
+        }
+
+        // add the totals of another set of the same size and clear them
+        synchronized void drain(Totals other) {
+
+            for (int index = 0; index < lost.length; index++) {
+                lost[index] += other.lost[index];
+                stretched[index] += other.stretched[index];
+                changed[index] += other.changed[index];
+                stretchSums[index] += other.stretchSums[index];
+                stretchCounts[index] += other.stretchCounts[index];
+                maxStretches[index] = Math.max(maxStretches[index], other.maxStretches[index]);
+            }
+
+            other.clear();
+        }
+
+        private void clear() {
+            Arrays.fill(lost, 0);
+            Arrays.fill(stretched, 0);
+            Arrays.fill(changed, 0);
+            Arrays.fill(stretchSums, 0);
+            Arrays.fill(stretchCounts, 0);
+            Arrays.fill(maxStretches, 0);
+        }
+
+        void addTo(FailureScenario scenario, int index) {
+            scenario.add(lost[index], stretched[index], changed[index], stretchSums[index], stretchCounts[index],
+                    maxStretches[index]);
+        }
+    }
+
+    // tree of the current source, scratch buffers and impact of the scenarios summed over its sources
+    private class Worker {
+
+        private final DijkstraEngine engine = new DijkstraEngine(graph);
+        private final IntMinHeap heap = new IntMinHeap(nodeCount);
+        private int source;
+        private int[] costs;
+        private int[] predecessors;
+        private int[] nextHops;
+        // children of every node in the tree, those of node v at childStart[v] .. childStart[v + 1] - 1
+        private final int[] childStart = new int[nodeCount + 1];
+        private final int[] children = new int[nodeCount];
+        // preorder number and size of the subtree of every node, node x is below node v
+        // if preorder[v] <= preorder[x] < preorder[v] + subtreeSizes[v]
+        private final int[] preorder = new int[nodeCount];
+        private final int[] subtreeSizes = new int[nodeCount];
+        private final int[] stack = new int[nodeCount];
+        // elements that touch the tree, affectedStamps[i] == affectedStamp if i does
+        private final int[] affected = new int[elementCount];
+        private final int[] affectedStamps = new int[elementCount];
+        private int affectedStamp;
+        private int affectedCount;
+        // links used by the repaired tree of a single failure, usedStamps[i] == usedStamp if i is
+        private final int[] usedStamps = new int[elementCount];
+        private int usedStamp;
+        // disconnected nodes visited by the evaluation, insideStamps[v] == insideStamp if v is
+        private final int[] inside = new int[nodeCount];
+        private final int[] insideStamps = new int[nodeCount];
+        private int insideStamp;
+        private int insideCount;
+        // the nodes below the failed elements, NONE if an element does not touch the tree
+        private int rootA;
+        private int rootB;
+        // disconnected nodes that keep their cost, through a neighbour or their predecessor
+        private final boolean[] intact = new boolean[nodeCount];
+        // cost, next hop and link towards the predecessor of the disconnected nodes after the repair
+        private final int[] newCosts = new int[nodeCount];
+        private final int[] newNextHops = new int[nodeCount];
+        private final int[] newLinks = new int[nodeCount];
+        // impact on the current source of the last evaluated scenario
+        private long lostPairs;
+        private long stretchedPairs;
+        private boolean tableChanged;
+        private double stretchSum;
+        private long stretchCount;
+        private double maxStretch;
+        // impact of the single failures, summed over the sources of the worker
+        private long basePairs;
+        private final Totals singles = new Totals(elementCount);
+        // impact of the pairs of the element being evaluated, by other element, until added to its shared row
+        private final Totals pairRow = pairs ? new Totals(elementCount) : null;
+
+        void sweep(int source) {
+
+            ShortestPathTree tree = engine.compute(source);
+            this.source = source;
+            costs = tree.getCosts();
+            predecessors = tree.getPredecessors();
+            nextHops = tree.getNextHops();
+
+            buildChildren();
+            findAffected();
+
+            for (int k = 0; k < affectedCount; k++) {
+                int i = affected[k];
+
+                evaluate(i, NONE);
+                singles.add(i, lostPairs, stretchedPairs, tableChanged, stretchSum, stretchCount, maxStretch);
+
+                if (pairs)
+                    sweepPairs(i);
+            }
+        }
+
+        // the pairs of an element that touches the tree with every other element
+        private void sweepPairs(int i) {
+
+            long singleLost = lostPairs;
+            long singleStretched = stretchedPairs;
+            boolean singleChanged = tableChanged;
+            double singleStretchSum = stretchSum;
+            long singleStretchCount = stretchCount;
+            double singleMaxStretch = maxStretch;
+
+            usedStamp++;
+
+            for (int k = 0; k < insideCount; k++)
+                if (newLinks[inside[k]] != NONE)
+                    usedStamps[newLinks[inside[k]]] = usedStamp;
+
+            for (int j = 0; j < elementCount; j++) {
+                boolean jAffected = affectedStamps[j] == affectedStamp;
+
+                // a pair of two affected elements is evaluated once, from the first one
+                if (j == i || j == linkCount + source || isRedundant(i, j) || (jAffected && j < i))
+                    continue;
+
+                if (jAffected || usedStamps[j] == usedStamp) {
+                    evaluate(i, j);
+                } else {
+                    lostPairs = singleLost;
+                    stretchedPairs = singleStretched;
+                    tableChanged = singleChanged;
+                    stretchSum = singleStretchSum;
+                    stretchCount = singleStretchCount;
+                    maxStretch = singleMaxStretch;
+                }
+
+                pairRow.add(j, lostPairs, stretchedPairs, tableChanged, stretchSum, stretchCount, maxStretch);
+            }
+
+            pairRow(i).drain(pairRow);
+        }
+
+        private void buildChildren() {
+
+            Arrays.fill(childStart, 0);
+
+            for (int node = 0; node < nodeCount; node++)
+                if (node != source && predecessors[node] != ShortestPathTree.NO_NODE)
+                    childStart[predecessors[node] + 1]++;
+
+            for (int node = 0; node < nodeCount; node++)
+                childStart[node + 1] += childStart[node];
+
+            // newCosts is free until the first evaluation, used as the fill position of every node
+            System.arraycopy(childStart, 0, newCosts, 0, nodeCount);
+
+            for (int node = 0; node < nodeCount; node++)
+                if (node != source && predecessors[node] != ShortestPathTree.NO_NODE)
+                    children[newCosts[predecessors[node]]++] = node;
+
+            // number the nodes in preorder with a depth-first traversal, the sizes are summed on the way back
+            int count = 0;
+            int top = 0;
+            stack[top++] = source;
+
+            while (top > 0) {
+                int node = stack[--top];
+
+                if (node < 0) {
+                    node = ~node;
+                    subtreeSizes[node] = count - preorder[node];
+                    continue;
+                }
+
+                preorder[node] = count++;
+                stack[top++] = ~node;
+
+                for (int c = childStart[node]; c < childStart[node + 1]; c++)
+                    stack[top++] = children[c];
+            }
+        }
+
+        private boolean isBelow(int node, int ancestor) {
+            return preorder[ancestor] <= preorder[node] && preorder[node] < preorder[ancestor] + subtreeSizes[ancestor];
+        }
+
+        // the links of the tree and the reachable nodes, except the source
+        private void findAffected() {
+
+            affectedStamp++;
+            affectedCount = 0;
+
+            for (int node = 0; node < nodeCount; node++) {
+                if (node == source || costs[node] == ShortestPathTree.INFINITE)
+                    continue;
+
+                basePairs++;
+                markAffected(edgeLinks[findEdge(node, predecessors[node])]);
+                markAffected(linkCount + node);
+            }
+        }
+
+        private void markAffected(int element) {
+            affectedStamps[element] = affectedStamp;
+            affected[affectedCount++] = element;
+        }
+
+        /**
+         * compute the impact on the source of the failure of one or two
+         * elements (b is NONE for a single failure): the nodes below the
+         * failed elements in the tree are reached again from the others.
+         * A node with a neighbour that still has its cost and gives it the
+         * same cost keeps its cost, and so does its subtree, which is not
+         * visited: only the other nodes are repaired with Dijkstra
+         */
+        private void evaluate(int a, int b) {
+
+            lostPairs = 0;
+            stretchedPairs = 0;
+            tableChanged = false;
+            stretchSum = 0;
+            stretchCount = 0;
+            maxStretch = 0;
+            insideCount = 0;
+            insideStamp++;
+            rootA = root(a);
+            rootB = b == NONE ? NONE : root(b);
+
+            // the outer subtree first, the inner one may be below a node that keeps its cost
+            if (rootA != NONE && rootB != NONE && isBelow(rootA, rootB)) {
+                int root = rootA;
+                rootA = rootB;
+                rootB = root;
+            }
+
+            classifySubtree(rootA, a, b);
+            classifySubtree(rootB, a, b);
+            heap.clear();
+
+            // reach the other disconnected nodes from their neighbours that keep their cost
+            for (int k = 0; k < insideCount; k++) {
+                int node = inside[k];
+
+                if (intact[node] || isFailedNode(node, a, b))
+                    continue;
+
+                for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++) {
+                    int neighbour = graph.getTarget(e);
+
+                    if (insideStamps[neighbour] != insideStamp && isDisconnected(neighbour))
+                        resolve(neighbour);
+
+                    if (insideStamps[neighbour] == insideStamp ? intact[neighbour]
+                            : costs[neighbour] != ShortestPathTree.INFINITE)
+                        relax(neighbour, costs[neighbour], nextHopThrough(neighbour, node), node, e, a, b);
+                }
+            }
+
+            while (!heap.isEmpty()) {
+                int node = heap.poll();
+
+                for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++) {
+                    int neighbour = graph.getTarget(e);
+
+                    if (insideStamps[neighbour] == insideStamp && !intact[neighbour]
+                            && !isFailedNode(neighbour, a, b))
+                        relax(node, newCosts[node], newNextHops[node], neighbour, e, a, b);
+                }
+            }
+
+            // the nodes below one that keeps its cost have its next hop, only the visited ones are counted
+            for (int k = 0; k < insideCount; k++) {
+                int node = inside[k];
+
+                if (isFailedNode(node, a, b))
+                    continue;
+
+                if (newCosts[node] == ShortestPathTree.INFINITE) {
+                    lostPairs++;
+                    tableChanged = true;
+                    continue;
+                }
+
+                if (newNextHops[node] != nextHops[node])
+                    tableChanged = true;
+
+                if (newCosts[node] > costs[node]) {
+                    stretchedPairs++;
+
+                    // a path of cost 0 has no stretch
+                    if (costs[node] > 0) {
+                        double stretch = (double) newCosts[node] / costs[node];
+                        stretchSum += stretch;
+                        stretchCount++;
+                        maxStretch = Math.max(maxStretch, stretch);
+                    }
+                }
+            }
+        }
+
+        // visit the subtree of a node, except below the nodes that keep their cost
+        private void classifySubtree(int root, int a, int b) {
+
+            if (root == NONE || insideStamps[root] == insideStamp)
+                return;
+
+            int first = insideCount;
+            visit(root);
+
+            for (int k = first; k < insideCount; k++) {
+                int node = inside[k];
+
+                if (!isFailedNode(node, a, b) && attach(node, a, b))
+                    continue;
+
+                for (int c = childStart[node]; c < childStart[node + 1]; c++)
+                    if (insideStamps[children[c]] != insideStamp)
+                        visit(children[c]);
+            }
+        }
+
+        private void visit(int node) {
+            insideStamps[node] = insideStamp;
+            inside[insideCount++] = node;
+            newCosts[node] = ShortestPathTree.INFINITE;
+            newNextHops[node] = ShortestPathTree.NO_NODE;
+            newLinks[node] = NONE;
+            intact[node] = false;
+        }
+
+        /**
+         * keep the cost of a disconnected node if a neighbour outside of the
+         * failed subtrees, or one that already kept its cost, reaches it at
+         * the same cost; the costs of the tree are the lowest possible, so
+         * the node cannot do better. A neighbour that keeps the next hop of
+         * the node is preferred. Return false if the node is repaired
+         */
+        private boolean attach(int node, int a, int b) {
+
+            for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++) {
+                int neighbour = graph.getTarget(e);
+                int edgeCost = graph.getCost(e);
+
+                // a neighbour in the subtrees that is not visited yet is not known to keep its cost
+                if (costs[neighbour] == ShortestPathTree.INFINITE || edgeCost == ShortestPathTree.INFINITE
+                        || (long) costs[neighbour] + edgeCost != costs[node] || edgeLinks[e] == a || edgeLinks[e] == b
+                        || (insideStamps[neighbour] == insideStamp ? !intact[neighbour] : isDisconnected(neighbour)))
+                    continue;
+
+                int nextHop = nextHopThrough(neighbour, node);
+
+                if (!intact[node] || nextHop == nextHops[node]) {
+                    intact[node] = true;
+                    newCosts[node] = costs[node];
+                    newNextHops[node] = nextHop;
+                    newLinks[node] = edgeLinks[e];
+                }
+
+                if (nextHop == nextHops[node])
+                    return true;
+            }
+
+            return intact[node];
+        }
+
+        // whether a reachable node is below a failed element
+        private boolean isDisconnected(int node) {
+            return (rootA != NONE && isBelow(node, rootA)) || (rootB != NONE && isBelow(node, rootB));
+        }
+
+        /**
+         * once the subtrees are visited, a node below a failed element that
+         * was not visited is below a node that keeps its cost: mark it and
+         * the nodes up to that one as keeping their cost, with its next hop
+         */
+        private void resolve(int node) {
+
+            int count = 0;
+
+            while (insideStamps[node] != insideStamp) {
+                stack[count++] = node;
+                node = predecessors[node];
+            }
+
+            int nextHop = newNextHops[node];
+
+            while (count > 0) {
+                int below = stack[--count];
+                visit(below);
+                intact[below] = true;
+                newCosts[below] = costs[below];
+                newNextHops[below] = nextHop;
+            }
+        }
+
+        // next hop of a disconnected node reached through a neighbour that keeps its cost
+        private int nextHopThrough(int neighbour, int node) {
+
+            if (neighbour == source)
+                return node;
+
+            return insideStamps[neighbour] == insideStamp ? newNextHops[neighbour] : nextHops[neighbour];
+        }
+
+        // reach a disconnected node through the edge e of a node with the given cost and next hop
+        private void relax(int from, int fromCost, int fromNextHop, int node, int e, int a, int b) {
+
+            int edgeCost = graph.getCost(e);
+
+            if (edgeCost == ShortestPathTree.INFINITE || edgeLinks[e] == a || edgeLinks[e] == b)
+                return;
+
+            int newCost = fromCost + edgeCost;
+
+            // a negative value means that the sum overflowed
+            if (newCost < 0 || newCost > newCosts[node])
+                return;
+
+            // at the same cost only a path that keeps the next hop of the node is taken
+            if (newCost == newCosts[node]) {
+                if (fromNextHop == nextHops[node] && newNextHops[node] != nextHops[node]) {
+                    newNextHops[node] = fromNextHop;
+                    newLinks[node] = edgeLinks[e];
+                }
+                return;
+            }
+
+            newCosts[node] = newCost;
+            newNextHops[node] = fromNextHop;
+            newLinks[node] = edgeLinks[e];
+            heap.insertOrDecrease(node, newCost);
+        }
+
+        // the node below a failed element in the tree, NONE if the element does not touch the tree
+        private int root(int element) {
+
+            if (element >= linkCount) {
+                int node = element - linkCount;
+                return node != source && costs[node] != ShortestPathTree.INFINITE ? node : NONE;
+            }
+
+            if (predecessors[linkB[element]] == linkA[element] && linkB[element] != source)
+                return linkB[element];
+
+            if (predecessors[linkA[element]] == linkB[element] && linkA[element] != source)
+                return linkA[element];
+
+            return NONE;
+        }
+
+        private boolean isFailedNode(int node, int a, int b) {
+            return linkCount + node == a || linkCount + node == b;
+        }
+    }
+}
@@ -4,68 +4,140 @@ import java.util.List;
 /**
  * Author: Samuel Dalvai
  * <p>
- * Class that contains utilities to read and write files
+ * Class that contains utilities to read and write files, the reading and
+ * the writing are timed as the load and write phases (see Metrics)
  */
 public class FileUtilities {
 
+    public static final String OUTPUT_BINARY = "routing_tables.bin";
+    public static final String OUTPUT_MATRIX = "next_hops.nhm";
+    public static final String OUTPUT_HIERARCHY = "hierarchy.ch";
+    public static final String OUTPUT_SWEEP = "failure_sweep.csv";
+
+    // format of the routing tables written to the output directory
+    public enum OutputFormat {
+        // one text file per router
+        TEXT,
+        // all the tables in one indexed binary file (see RoutingTableWriter)
+        BINARY,
+        // the next hops of all the tables as a matrix (see NextHopMatrix)
+        MATRIX
+    }
+
     // reads a file and creates a NodeGraph object
     public static NodeGraph readGraph(String filename) {
 
         NodeGraph nodes = new NodeGraph();
 
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.LOAD);
         try {
             BufferedReader reader = new BufferedReader(new FileReader(new File(filename)));
 
             String line;
-            char nodeA;
-            char nodeB;
-            int cost;
 
             while ((line = reader.readLine()) != null) {
-                line = line.replace(" ", "");
-
-                if (line.length() < 3)
-                    throw new IOException("Malformed input for nodes and cost");
+                String[] edge = parseEdge(line);
 
-                nodeA = line.charAt(0);
-                nodeB = line.charAt(1);
-                cost = Integer.parseInt(line.substring(2));
-
-                nodes.addEdge(nodeA, nodeB, cost);
+                if (edge != null)
+                    nodes.addEdge(edge[0], edge[1], Integer.parseInt(edge[2]));
             }
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            timer.stop();
         }
         return nodes;
     }
 
-    // write routing table to file, get the name of the router from the Routing Table
-    // objects
-    public static void writeRoutingTable(List<RoutingTable> routingTable) {
+    // reads a topology in text or binary format (see TopologyReader) into a CompactGraph
+    public static CompactGraph readCompactGraph(String filename) {
+
+        try {
+            return TopologyReader.readCompactGraph(filename);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new GraphBuilder().build();
+    }
+
+    /**
+     * split a line of the topology into the two labels and the cost, the
+     * three values are separated by white space (e.g. "R1 R2 10"), a line without
+     * white space is read in the compact form with single character labels
+     * (e.g. "AB2"). Return null for an empty line
+     */
+    static String[] parseEdge(String line) throws IOException {
+
+        line = line.trim();
+
+        if (line.isEmpty())
+            return null;
+
+        String[] values = line.split("\\s+");
+
+        if (values.length == 3)
+            return values;
+
+        if (values.length == 1 && line.length() >= 3)
+            return new String[]{line.substring(0, 1), line.substring(1, 2), line.substring(2)};
+
+        throw new IOException("Malformed input for nodes and cost");
+    }
+
+    // write routing table to files in the given directory, get the name of the router from
+    // the Routing Table objects, the files are written in parallel (see RoutingTableWriter)
+    public static void writeRoutingTable(List<RoutingTable> routingTable, NodeIds nodeIds, File directory) {
+
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.WRITE);
         try {
-            File dir = new File("../output");
+            new RoutingTableWriter(nodeIds, Runtime.getRuntime().availableProcessors())
+                    .writeFiles(routingTable, directory);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            timer.stop();
+        }
+
+        Log.info("Routing tables written to file...");
+    }
+
+    // write all the routing tables to a single indexed binary file in the given directory
+    // (see RoutingTableWriter)
+    public static void writeRoutingTableBinary(List<RoutingTable> routingTable, NodeIds nodeIds, File directory) {
+
+        File file = new File(directory, OUTPUT_BINARY);
 
-            if (!dir.exists())
-                if (!dir.mkdir())
-                    throw new IOException("Error in creating the directory for the files...");
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.WRITE);
+        try {
+            new RoutingTableWriter(nodeIds, 1).writeIndexedFile(routingTable, file);
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            timer.stop();
         }
 
-        routingTable.forEach(table -> {
+        Log.info("Routing tables written to " + file.getPath() + "...");
+    }
 
-            try {
-                String filename = "../output/" + table.getRouter() + ".txt";
-                BufferedWriter writer = new BufferedWriter(new FileWriter(new File(filename)));
-                writer.write(table.toFile());
-                writer.close();
+    // write the next hops of all the routing tables to a matrix file in the given directory
+    // (see NextHopMatrix)
+    public static void writeNextHopMatrix(List<RoutingTable> routingTable, NodeIds nodeIds, File directory) {
 
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        });
+        File file = new File(directory, OUTPUT_MATRIX);
+
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.WRITE);
+        try {
+            if (!directory.exists() && !directory.mkdirs())
+                throw new IOException("Error in creating the directory for the files...");
+
+            NextHopMatrix.write(routingTable, nodeIds, file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            timer.stop();
+        }
 
-        System.out.println("Routing tables written to file...");
+        Log.info("Next hops written to " + file.getPath() + "...");
     }
 
 }
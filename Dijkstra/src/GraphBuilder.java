@@ -0,0 +1,166 @@
+import java.util.Arrays;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class used to load a large graph in bulk. The edges are only appended to
+ * three primitive arrays while loading, no check for existing connections
+ * is done until build() is called, which sorts the edges by node with a
+ * counting sort and returns an immutable CompactGraph in O(V + E).
+ * <p>
+ * As in NodeGraph, an edge added twice keeps the last cost and the
+ * connection of a node to itself is ignored.
+ */
+public class GraphBuilder {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // maps name of the node to its index
+    private final NodeIds nodeIds;
+    private int[] edgeSources;
+    private int[] edgeTargets;
+    private int[] edgeCosts;
+    private int edgeCount;
+
+    public GraphBuilder() {
+        this.nodeIds = new NodeIds();
+        this.edgeSources = new int[INITIAL_CAPACITY];
+        this.edgeTargets = new int[INITIAL_CAPACITY];
+        this.edgeCosts = new int[INITIAL_CAPACITY];
+        this.edgeCount = 0;
+    }
+
+    public NodeIds getNodeIds() {
+        return nodeIds;
+    }
+
+    public int getNodesCount() {
+        return nodeIds.size();
+    }
+
+    public int getEdgesCount() {
+        return edgeCount;
+    }
+
+    // add an undirected edge between two nodes
+    public void addEdge(String nodeA, String nodeB, int cost) {
+
+        addEdge(nodeIds.intern(nodeA), nodeIds.intern(nodeB), cost);
+    }
+
+    // add an undirected edge between two nodes already interned in getNodeIds()
+    public void addEdge(int indexNodeA, int indexNodeB, int cost) {
+
+        if (indexNodeA == indexNodeB)
+            return;
+
+        if (edgeCount == edgeSources.length) {
+            edgeSources = Arrays.copyOf(edgeSources, edgeCount * 2);
+            edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+            edgeCosts = Arrays.copyOf(edgeCosts, edgeCount * 2);
+        }
+
+        edgeSources[edgeCount] = indexNodeA;
+        edgeTargets[edgeCount] = indexNodeB;
+        edgeCosts[edgeCount] = cost;
+        edgeCount++;
+    }
+
+    /**
+     * Add count undirected edges at once, edge i connects indexNodesA[i] and
+     * indexNodesB[i] (ids already interned in getNodeIds()) with costs[i]
+     */
+    public void addEdges(int[] indexNodesA, int[] indexNodesB, int[] costs, int count) {
+
+        if (edgeCount + count > edgeSources.length) {
+            int capacity = Math.max(edgeSources.length * 2, edgeCount + count);
+            edgeSources = Arrays.copyOf(edgeSources, capacity);
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+            edgeCosts = Arrays.copyOf(edgeCosts, capacity);
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (indexNodesA[i] == indexNodesB[i])
+                continue;
+
+            edgeSources[edgeCount] = indexNodesA[i];
+            edgeTargets[edgeCount] = indexNodesB[i];
+            edgeCosts[edgeCount] = costs[i];
+            edgeCount++;
+        }
+    }
+
+    /**
+     * Create the CompactGraph with the edges added so far, every edge is stored
+     * in both directions. Duplicated edges are merged keeping the cost of the
+     * last one added
+     */
+    public CompactGraph build() {
+
+        int nodeCount = nodeIds.size();
+        int[] offsets = new int[nodeCount + 1];
+
+        // count the slots of every node
+        for (int e = 0; e < edgeCount; e++) {
+            offsets[edgeSources[e] + 1]++;
+            offsets[edgeTargets[e] + 1]++;
+        }
+
+        for (int i = 0; i < nodeCount; i++)
+            offsets[i + 1] += offsets[i];
+
+        // place every edge in the slots of both of its nodes,
+        // the slots of a node keep the order in which the edges were added
+        int[] next = Arrays.copyOf(offsets, nodeCount);
+        int[] targets = new int[offsets[nodeCount]];
+        int[] costs = new int[offsets[nodeCount]];
+
+        for (int e = 0; e < edgeCount; e++) {
+            int slot = next[edgeSources[e]]++;
+            targets[slot] = edgeTargets[e];
+            costs[slot] = edgeCosts[e];
+
+            slot = next[edgeTargets[e]]++;
+            targets[slot] = edgeSources[e];
+            costs[slot] = edgeCosts[e];
+        }
+
+        return merge(nodeCount, offsets, targets, costs);
+    }
+
+    // remove the duplicated neighbours of every node by compacting the slots in place,
+    // position[v] remembers where neighbour v was written for the current node
+    private CompactGraph merge(int nodeCount, int[] offsets, int[] targets, int[] costs) {
+
+        int[] position = new int[nodeCount];
+        Arrays.fill(position, -1);
+
+        int write = 0;
+        int start = 0;
+
+        for (int node = 0; node < nodeCount; node++) {
+            int end = offsets[node + 1];
+            offsets[node] = write;
+
+            for (int slot = start; slot < end; slot++) {
+                int neighbour = targets[slot];
+
+                if (position[neighbour] >= offsets[node])
+                    costs[position[neighbour]] = costs[slot];
+                else {
+                    position[neighbour] = write;
+                    targets[write] = neighbour;
+                    costs[write] = costs[slot];
+                    write++;
+                }
+            }
+
+            start = end;
+        }
+
+        offsets[nodeCount] = write;
+
+        return new CompactGraph(nodeIds, offsets,
+                Arrays.copyOf(targets, write), Arrays.copyOf(costs, write));
+    }
+}
@@ -0,0 +1,309 @@
+import java.util.Arrays;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that builds a ContractionHierarchy from a CompactGraph.
+ * <p>
+ * The nodes are contracted one at a time, the least important first: when a
+ * node v is removed, every pair of its remaining neighbours u, w is joined
+ * by a shortcut of cost c(u, v) + c(v, w), unless a witness search (a
+ * Dijkstra from u that avoids v) finds a path from u to w that is not more
+ * expensive. The links of v to its remaining neighbours become the upward
+ * links of v. The distances between the remaining nodes never change, so a
+ * query that only goes upward from both ends finds the shortest path.
+ * <p>
+ * The importance of a node is twice the number of shortcuts its contraction
+ * would add minus the number of its links (edge difference), plus the number
+ * of neighbours already contracted, so the contraction is spread over the
+ * graph. The importance is kept in a heap and updated only lazily: the node
+ * on top is evaluated again and contracted only if it is still the least
+ * important. Updating the neighbours of every contracted node as well costs
+ * too much once the remaining nodes are densely linked.
+ * <p>
+ * The witness search stops after WITNESS_SETTLED_LIMIT nodes (fewer when the
+ * importance is only estimated), a witness that is not found only adds an
+ * unneeded shortcut, never a wrong cost.
+ */
+public class HierarchyBuilder {
+
+    private static final int WITNESS_SETTLED_LIMIT = 500;
+    // smaller limit used when the shortcuts are only counted to compute the importance
+    private static final int SIMULATION_SETTLED_LIMIT = 50;
+    private static final int INITIAL_DEGREE = 4;
+
+    private final CompactGraph graph;
+    private final int nodeCount;
+
+    // links of the nodes not yet contracted, a link to a contracted node is removed lazily
+    private final int[][] neighbours;
+    private final int[][] linkCosts;
+    private final int[][] linkMiddles;
+    private final int[] degrees;
+    private final boolean[] contracted;
+    private final int[] contractedNeighbours;
+
+    // witness search, only the touched entries are reset
+    private final IntMinHeap witnessHeap;
+    private final int[] witnessCosts;
+    private final int[] touched;
+    private int touchedCount;
+    // witnessTargets[v] == witnessRound if v is a neighbour still to settle in the current search
+    private final int[] witnessTargets;
+    private int witnessRound;
+
+    private HierarchyBuilder(CompactGraph graph) {
+        this.graph = graph;
+        this.nodeCount = graph.nodeCount();
+        this.neighbours = new int[nodeCount][];
+        this.linkCosts = new int[nodeCount][];
+        this.linkMiddles = new int[nodeCount][];
+        this.degrees = new int[nodeCount];
+        this.contracted = new boolean[nodeCount];
+        this.contractedNeighbours = new int[nodeCount];
+        this.witnessHeap = new IntMinHeap(nodeCount);
+        this.witnessCosts = new int[nodeCount];
+        this.touched = new int[nodeCount];
+        this.witnessTargets = new int[nodeCount];
+        Arrays.fill(witnessCosts, ShortestPathTree.INFINITE);
+    }
+
+    public static ContractionHierarchy build(CompactGraph graph) {
+        return new HierarchyBuilder(graph).contractAll();
+    }
+
+    private ContractionHierarchy contractAll() {
+
+        for (int node = 0; node < nodeCount; node++) {
+            int degree = graph.endEdge(node) - graph.firstEdge(node);
+            neighbours[node] = new int[Math.max(degree, INITIAL_DEGREE)];
+            linkCosts[node] = new int[neighbours[node].length];
+            linkMiddles[node] = new int[neighbours[node].length];
+
+            for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++)
+                // a link with infinite cost is down, as in the DijkstraEngine
+                if (graph.getCost(e) != ShortestPathTree.INFINITE)
+                    addLink(node, graph.getTarget(e), graph.getCost(e), ShortestPathTree.NO_NODE);
+        }
+
+        IntMinHeap queue = new IntMinHeap(nodeCount);
+
+        for (int node = 0; node < nodeCount; node++)
+            queue.insertOrDecrease(node, importance(node));
+
+        int[] ranks = new int[nodeCount];
+        int[][] upwardTargets = new int[nodeCount][];
+        int[][] upwardCosts = new int[nodeCount][];
+        int[][] upwardMiddles = new int[nodeCount][];
+        int rank = 0;
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int importance = importance(node);
+
+            // the importance may have grown since it was computed, lazy update
+            if (!queue.isEmpty() && importance > queue.peekKey()) {
+                queue.insertOrDecrease(node, importance);
+                continue;
+            }
+
+            removeContractedLinks(node);
+            upwardTargets[node] = Arrays.copyOf(neighbours[node], degrees[node]);
+            upwardCosts[node] = Arrays.copyOf(linkCosts[node], degrees[node]);
+            upwardMiddles[node] = Arrays.copyOf(linkMiddles[node], degrees[node]);
+
+            contract(node, false);
+            contracted[node] = true;
+            ranks[node] = rank++;
+
+            for (int i = 0; i < degrees[node]; i++) {
+                int neighbour = neighbours[node][i];
+                contractedNeighbours[neighbour]++;
+            }
+
+            // the links of a contracted node are not needed anymore
+            neighbours[node] = null;
+            linkCosts[node] = null;
+            linkMiddles[node] = null;
+        }
+
+        return toHierarchy(ranks, upwardTargets, upwardCosts, upwardMiddles);
+    }
+
+    private int importance(int node) {
+        removeContractedLinks(node);
+        return 2 * (contract(node, true) - degrees[node]) + contractedNeighbours[node];
+    }
+
+    /**
+     * Add the shortcuts needed to remove a node (or only count them if
+     * simulate is true), return the number of shortcuts
+     */
+    private int contract(int node, boolean simulate) {
+
+        int degree = degrees[node];
+        int[] nodeNeighbours = neighbours[node];
+        int[] nodeCosts = linkCosts[node];
+        int shortcuts = 0;
+
+        for (int i = 0; i < degree - 1; i++) {
+            int from = nodeNeighbours[i];
+            int maxCost = 0;
+
+            for (int j = i + 1; j < degree; j++)
+                maxCost = Math.max(maxCost, pathCost(nodeCosts[i], nodeCosts[j]));
+
+            witnessRound++;
+
+            for (int j = i + 1; j < degree; j++)
+                witnessTargets[nodeNeighbours[j]] = witnessRound;
+
+            witnessSearch(from, node, maxCost, degree - i - 1,
+                    simulate ? SIMULATION_SETTLED_LIMIT : WITNESS_SETTLED_LIMIT);
+
+            for (int j = i + 1; j < degree; j++) {
+                int cost = pathCost(nodeCosts[i], nodeCosts[j]);
+
+                if (cost == ShortestPathTree.INFINITE || witnessCosts[nodeNeighbours[j]] <= cost)
+                    continue;
+
+                shortcuts++;
+
+                if (!simulate)
+                    addShortcut(from, nodeNeighbours[j], cost, node);
+            }
+        }
+
+        return shortcuts;
+    }
+
+    // sum of two costs, INFINITE if it overflows
+    private static int pathCost(int costA, int costB) {
+        int cost = costA + costB;
+        return cost < 0 ? ShortestPathTree.INFINITE : cost;
+    }
+
+    /**
+     * Dijkstra from a node that avoids the node being contracted, it stops at
+     * maxCost, after settledLimit nodes or when the given number of targets
+     * (marked in witnessTargets) have been settled
+     */
+    private void witnessSearch(int source, int avoided, int maxCost, int targets, int settledLimit) {
+
+        for (int i = 0; i < touchedCount; i++)
+            witnessCosts[touched[i]] = ShortestPathTree.INFINITE;
+
+        touchedCount = 0;
+        witnessHeap.clear();
+
+        witnessCosts[source] = 0;
+        touched[touchedCount++] = source;
+        witnessHeap.insertOrDecrease(source, 0);
+
+        int settled = 0;
+
+        while (!witnessHeap.isEmpty() && witnessHeap.peekKey() <= maxCost && settled++ < settledLimit) {
+            int node = witnessHeap.poll();
+            int nodeCost = witnessCosts[node];
+
+            if (witnessTargets[node] == witnessRound && --targets == 0)
+                break;
+
+            for (int i = 0; i < degrees[node]; i++) {
+                int neighbour = neighbours[node][i];
+
+                if (neighbour == avoided || contracted[neighbour])
+                    continue;
+
+                int newCost = pathCost(nodeCost, linkCosts[node][i]);
+
+                if (newCost < witnessCosts[neighbour]) {
+                    if (witnessCosts[neighbour] == ShortestPathTree.INFINITE)
+                        touched[touchedCount++] = neighbour;
+
+                    witnessCosts[neighbour] = newCost;
+                    witnessHeap.insertOrDecrease(neighbour, newCost);
+                }
+            }
+        }
+    }
+
+    private void addShortcut(int nodeA, int nodeB, int cost, int middle) {
+
+        int slot = findLink(nodeA, nodeB);
+
+        if (slot == -1) {
+            addLink(nodeA, nodeB, cost, middle);
+            addLink(nodeB, nodeA, cost, middle);
+        } else if (cost < linkCosts[nodeA][slot]) {
+            linkCosts[nodeA][slot] = cost;
+            linkMiddles[nodeA][slot] = middle;
+
+            slot = findLink(nodeB, nodeA);
+            linkCosts[nodeB][slot] = cost;
+            linkMiddles[nodeB][slot] = middle;
+        }
+    }
+
+    private int findLink(int node, int neighbour) {
+
+        for (int i = 0; i < degrees[node]; i++)
+            if (neighbours[node][i] == neighbour)
+                return i;
+
+        return -1;
+    }
+
+    private void addLink(int node, int neighbour, int cost, int middle) {
+
+        int degree = degrees[node];
+
+        if (degree == neighbours[node].length) {
+            neighbours[node] = Arrays.copyOf(neighbours[node], degree * 2);
+            linkCosts[node] = Arrays.copyOf(linkCosts[node], degree * 2);
+            linkMiddles[node] = Arrays.copyOf(linkMiddles[node], degree * 2);
+        }
+
+        neighbours[node][degree] = neighbour;
+        linkCosts[node][degree] = cost;
+        linkMiddles[node][degree] = middle;
+        degrees[node]++;
+    }
+
+    // compact the links of a node, keeping only those to nodes not yet contracted
+    private void removeContractedLinks(int node) {
+
+        int write = 0;
+
+        for (int i = 0; i < degrees[node]; i++)
+            if (!contracted[neighbours[node][i]]) {
+                neighbours[node][write] = neighbours[node][i];
+                linkCosts[node][write] = linkCosts[node][i];
+                linkMiddles[node][write] = linkMiddles[node][i];
+                write++;
+            }
+
+        degrees[node] = write;
+    }
+
+    private ContractionHierarchy toHierarchy(int[] ranks, int[][] upwardTargets, int[][] upwardCosts,
+                                             int[][] upwardMiddles) {
+
+        int[] offsets = new int[nodeCount + 1];
+
+        for (int node = 0; node < nodeCount; node++)
+            offsets[node + 1] = offsets[node] + upwardTargets[node].length;
+
+        int[] targets = new int[offsets[nodeCount]];
+        int[] costs = new int[offsets[nodeCount]];
+        int[] middles = new int[offsets[nodeCount]];
+
+        for (int node = 0; node < nodeCount; node++) {
+            System.arraycopy(upwardTargets[node], 0, targets, offsets[node], upwardTargets[node].length);
+            System.arraycopy(upwardCosts[node], 0, costs, offsets[node], upwardCosts[node].length);
+            System.arraycopy(upwardMiddles[node], 0, middles, offsets[node], upwardMiddles[node].length);
+        }
+
+        return new ContractionHierarchy(graph.getNodeIds(), ranks, offsets, targets, costs, middles);
+    }
+}
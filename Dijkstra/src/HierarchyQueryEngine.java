@@ -0,0 +1,278 @@
+import java.util.Arrays;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that answers point-to-point queries on a ContractionHierarchy. A
+ * forward search from the source and a backward search from the target
+ * follow only the upward links, so each of them settles only the few
+ * nodes above its end. The shortest path goes through the node of highest
+ * rank on it, which both searches reach: the cost of the path is the
+ * smallest sum of the costs of the two searches at a node settled by both.
+ * A search stops when the smallest key in its heap is not below the best
+ * cost found.
+ * <p>
+ * A node is not expanded if it can be reached at a lower cost from one of
+ * its higher neighbours already reached (stall on demand), the cost found
+ * through the upward links only is then not the shortest one and no
+ * shortest path can continue from it.
+ * <p>
+ * The shortcuts of the path are unpacked into the links of the graph by
+ * replacing every shortcut with its two halves until only links are left.
+ * With links of cost 0 the two searches can meet at several nodes at the
+ * same cost, and the unpacked path can go around a cycle of cost 0 (e.g.
+ * B E B C): the cycle is cut, so that no node is visited twice and the
+ * cost does not change.
+ * As the other engines, an engine must not be shared between threads.
+ */
+public class HierarchyQueryEngine {
+
+    private final ContractionHierarchy hierarchy;
+    private final Search forward;
+    private final Search backward;
+    // pairs of nodes of shortcuts still to unpack
+    private int[] unpackStack;
+    // position of every node in the path being unpacked, NO_NODE if not in it
+    private final int[] pathPositions;
+
+    // state of the upward search from one end of the path
+    private static class Search {
+        final IntMinHeap heap;
+        final int[] costs;
+        final int[] predecessors;
+        final int[] touched;
+        int touchedCount;
+        int settledCount;
+
+        Search(int nodeCount) {
+            heap = new IntMinHeap(nodeCount);
+            costs = new int[nodeCount];
+            predecessors = new int[nodeCount];
+            touched = new int[nodeCount];
+            Arrays.fill(costs, ShortestPathTree.INFINITE);
+            Arrays.fill(predecessors, ShortestPathTree.NO_NODE);
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                costs[touched[i]] = ShortestPathTree.INFINITE;
+                predecessors[touched[i]] = ShortestPathTree.NO_NODE;
+            }
+
+            touchedCount = 0;
+            settledCount = 0;
+            heap.clear();
+        }
+
+        void reach(int node, int cost, int predecessor) {
+            if (costs[node] == ShortestPathTree.INFINITE)
+                touched[touchedCount++] = node;
+
+            costs[node] = cost;
+            predecessors[node] = predecessor;
+            heap.insertOrDecrease(node, cost);
+        }
+    }
+
+    public HierarchyQueryEngine(ContractionHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+        this.forward = new Search(hierarchy.nodeCount());
+        this.backward = new Search(hierarchy.nodeCount());
+        this.unpackStack = new int[64];
+        this.pathPositions = new int[hierarchy.nodeCount()];
+        Arrays.fill(pathPositions, ShortestPathTree.NO_NODE);
+    }
+
+    public ContractionHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    // cost of the shortest path, ShortestPathTree.INFINITE if the target cannot be reached
+    public int distance(int source, int target) {
+
+        int meet = search(source, target);
+
+        return meet == ShortestPathTree.NO_NODE ? ShortestPathTree.INFINITE
+                : forward.costs[meet] + backward.costs[meet];
+    }
+
+    // shortest path from the source to the target, null if the target cannot be reached
+    public ShortestPath query(int source, int target) {
+
+        int meet = search(source, target);
+
+        if (meet == ShortestPathTree.NO_NODE)
+            return null;
+
+        int cost = forward.costs[meet] + backward.costs[meet];
+
+        return new ShortestPath(hierarchy.getNodeIds(), path(source, target, meet), cost,
+                forward.settledCount + backward.settledCount);
+    }
+
+    // shortest path between two labels, null if a label is unknown or the target cannot be reached
+    public ShortestPath query(String from, String to) {
+
+        int source = hierarchy.getNodeIds().getId(from);
+        int target = hierarchy.getNodeIds().getId(to);
+
+        if (source == NodeIds.NO_ID || source >= hierarchy.nodeCount()
+                || target == NodeIds.NO_ID || target >= hierarchy.nodeCount())
+            return null;
+
+        return query(source, target);
+    }
+
+    // run both upward searches, return the node where the shortest path meets, NO_NODE if none
+    private int search(int source, int target) {
+
+        forward.reset();
+        backward.reset();
+        forward.reach(source, 0, source);
+        backward.reach(target, 0, target);
+
+        long best = ShortestPathTree.INFINITE;
+        int meet = ShortestPathTree.NO_NODE;
+        boolean isForward = true;
+
+        while (true) {
+            boolean forwardDone = forward.heap.isEmpty() || forward.heap.peekKey() >= best;
+            boolean backwardDone = backward.heap.isEmpty() || backward.heap.peekKey() >= best;
+
+            if (forwardDone && backwardDone)
+                break;
+
+            // alternate the two searches while both are running
+            isForward = backwardDone || (!forwardDone && !isForward);
+            Search search = isForward ? forward : backward;
+            Search other = isForward ? backward : forward;
+
+            int node = search.heap.poll();
+            int nodeCost = search.costs[node];
+            search.settledCount++;
+
+            if (other.costs[node] != ShortestPathTree.INFINITE && (long) nodeCost + other.costs[node] < best) {
+                best = (long) nodeCost + other.costs[node];
+                meet = node;
+            }
+
+            if (isStalled(search, node, nodeCost))
+                continue;
+
+            for (int e = hierarchy.firstEdge(node), end = hierarchy.endEdge(node); e < end; e++) {
+                int neighbour = hierarchy.getTarget(e);
+                int newCost = nodeCost + hierarchy.getCost(e);
+
+                // a negative value means that the sum overflowed
+                if (newCost >= 0 && newCost < search.costs[neighbour])
+                    search.reach(neighbour, newCost, node);
+            }
+        }
+
+        return meet;
+    }
+
+    // true if a higher neighbour already reached gives a cheaper way to the node
+    private boolean isStalled(Search search, int node, int nodeCost) {
+
+        for (int e = hierarchy.firstEdge(node), end = hierarchy.endEdge(node); e < end; e++) {
+            int neighbourCost = search.costs[hierarchy.getTarget(e)];
+
+            if (neighbourCost != ShortestPathTree.INFINITE && (long) neighbourCost + hierarchy.getCost(e) < nodeCost)
+                return true;
+        }
+
+        return false;
+    }
+
+    // links of the graph from the source to the meeting node and from there to the target
+    private int[] path(int source, int target, int meet) {
+
+        // upward nodes of the two searches, source .. meet .. target
+        int forwardLength = 1;
+        for (int node = meet; node != source; node = forward.predecessors[node])
+            forwardLength++;
+
+        int backwardLength = 0;
+        for (int node = meet; node != target; node = backward.predecessors[node])
+            backwardLength++;
+
+        int[] upward = new int[forwardLength + backwardLength];
+
+        int position = forwardLength - 1;
+        for (int node = meet; node != source; node = forward.predecessors[node])
+            upward[position--] = node;
+        upward[0] = source;
+
+        position = forwardLength;
+        for (int node = backward.predecessors[meet]; position < upward.length; node = backward.predecessors[node])
+            upward[position++] = node;
+
+        // replace every shortcut with the links it stands for
+        int[] path = new int[upward.length];
+        int length = 0;
+        path[length++] = source;
+
+        for (int i = 0; i + 1 < upward.length; i++) {
+            int size = 0;
+            unpackStack = push(unpackStack, size, upward[i], upward[i + 1]);
+            size += 2;
+
+            while (size > 0) {
+                int to = unpackStack[--size];
+                int from = unpackStack[--size];
+                int middle = hierarchy.getMiddle(hierarchy.findEdge(from, to));
+
+                if (middle == ShortestPathTree.NO_NODE) {
+                    if (length == path.length)
+                        path = Arrays.copyOf(path, path.length * 2);
+
+                    path[length++] = to;
+                } else {
+                    // the first half is unpacked first, so it is pushed last
+                    unpackStack = push(unpackStack, size, middle, to);
+                    unpackStack = push(unpackStack, size + 2, from, middle);
+                    size += 4;
+                }
+            }
+        }
+
+        return Arrays.copyOf(path, removeCycles(path, length));
+    }
+
+    // cut the cycles of cost 0 of the path, going back to the first visit of a node, return the new length
+    private int removeCycles(int[] path, int length) {
+
+        int kept = 0;
+
+        for (int i = 0; i < length; i++) {
+            int node = path[i];
+            int position = pathPositions[node];
+
+            if (position == ShortestPathTree.NO_NODE) {
+                pathPositions[node] = kept;
+                path[kept++] = node;
+                continue;
+            }
+
+            while (kept > position + 1)
+                pathPositions[path[--kept]] = ShortestPathTree.NO_NODE;
+        }
+
+        for (int i = 0; i < kept; i++)
+            pathPositions[path[i]] = ShortestPathTree.NO_NODE;
+
+        return kept;
+    }
+
+    private static int[] push(int[] stack, int size, int from, int to) {
+
+        if (size + 2 > stack.length)
+            stack = Arrays.copyOf(stack, stack.length * 2);
+
+        stack[size] = from;
+        stack[size + 1] = to;
+
+        return stack;
+    }
+}
@@ -0,0 +1,374 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that keeps the shortest path tree and the routing table of every
+ * router of a NodeGraph and repairs them when a link changes, instead of
+ * computing the Dijkstra algorithm again for every router (dynamic SPF).
+ * <p>
+ * For every source only the part of the tree that can be affected by the
+ * change is computed again:
+ * - if the cost of a link decreases (or a link comes up) the nodes that
+ * can be reached with a lower cost through the link are updated by
+ * continuing the Dijkstra algorithm from the endpoints of the link
+ * - if the cost of a link increases (or the link goes down) and the link
+ * is not part of the tree nothing changes, otherwise the subtree below the
+ * link is disconnected and its nodes are reached again from the
+ * neighbouring nodes outside of the subtree
+ * <p>
+ * Only the nodes whose path from the source changed get their next hop
+ * computed again, the subtree below a link is found by following the
+ * links of the graph towards the nodes whose predecessor is the node.
+ * <p>
+ * The graph is frozen only when a link between two nodes that were never
+ * connected is added: the other changes patch the cost of the link in a
+ * copy of the costs of the CompactGraph, a link that goes down keeps its
+ * slot with an infinite cost.
+ * <p>
+ * The cost, predecessor and next hop of every (source, node) pair are
+ * stored, so the memory used grows with the square of the number of nodes.
+ */
+public class IncrementalRoutingTables {
+
+    private static final int NONE = -1;
+
+    private final NodeGraph graph;
+    private CompactGraph compactGraph;
+    // cost of every edge slot of the compact graph, changed in place when a link changes
+    private int[] edgeCosts;
+    private int[] nodesByLabel;
+
+    // cost, predecessor and next hop of every node, for every source
+    private int[][] costs;
+    private int[][] predecessors;
+    private int[][] nextHops;
+    private RoutingTable[] routingTables;
+
+    // scratch buffers used during the repair of a tree
+    private IntMinHeap heap;
+    private int[] path;
+    // nodes whose path from the source may have changed, marks[v] == mark if v is one of them
+    private int[] affected;
+    private int affectedCount;
+    private int[] marks;
+    // hopMarks[v] == mark once the next hop of an affected node is computed again
+    private int[] hopMarks;
+    private int mark;
+
+    public IncrementalRoutingTables(NodeGraph graph) {
+        this.graph = graph;
+        computeAll();
+    }
+
+    // compute all the trees from scratch
+    private void computeAll() {
+
+        freezeGraph();
+        nodesByLabel = compactGraph.getNodesByLabel();
+
+        int nodeCount = compactGraph.nodeCount();
+        DijkstraEngine engine = new DijkstraEngine(compactGraph);
+
+        costs = new int[nodeCount][];
+        predecessors = new int[nodeCount][];
+        nextHops = new int[nodeCount][];
+        routingTables = new RoutingTable[nodeCount];
+
+        for (int source = 0; source < nodeCount; source++) {
+            ShortestPathTree tree = engine.compute(source);
+            costs[source] = tree.getCosts();
+            predecessors[source] = tree.getPredecessors();
+            nextHops[source] = tree.getNextHops();
+            routingTables[source] = RoutingTable.fromNextHops(compactGraph, source, nextHops[source], nodesByLabel);
+        }
+
+        heap = new IntMinHeap(nodeCount);
+        path = new int[nodeCount];
+        affected = new int[nodeCount];
+        marks = new int[nodeCount];
+        hopMarks = new int[nodeCount];
+        mark = 0;
+    }
+
+    private void freezeGraph() {
+
+        compactGraph = graph.freeze();
+        edgeCosts = new int[compactGraph.edgeCount()];
+
+        for (int e = 0; e < edgeCosts.length; e++)
+            edgeCosts[e] = compactGraph.getCost(e);
+    }
+
+    // get the routing tables sorted by router label
+    public List<RoutingTable> getRoutingTables() {
+
+        List<RoutingTable> tables = new ArrayList<>(nodesByLabel.length);
+
+        for (int node : nodesByLabel)
+            tables.add(routingTables[node]);
+
+        return tables;
+    }
+
+    // get the cost of the shortest path between two nodes
+    public int getCost(String source, String destination) {
+        return costs[graph.getNodeIds().getId(source)][graph.getNodeIds().getId(destination)];
+    }
+
+    /**
+     * Set the cost of the link between two nodes, covers the increase and
+     * the decrease of the cost of an existing link and a new link (link up)
+     * Return the routers whose next hop changed for at least one destination
+     */
+    public List<String> updateEdge(String nodeA, String nodeB, int cost) {
+
+        int nodeCount = graph.getNodesCount();
+        boolean connected = graph.hasNode(nodeA) && graph.hasNode(nodeB) && graph.hasConnection(nodeA, nodeB);
+        int oldCost = connected ? graph.getEdgeCost(nodeA, nodeB) : ShortestPathTree.INFINITE;
+
+        graph.addEdge(nodeA, nodeB, cost);
+
+        // new routers change the size of every tree
+        if (graph.getNodesCount() != nodeCount) {
+            computeAll();
+            return graph.getNodesAsList();
+        }
+
+        return repair(nodeA, nodeB, oldCost, cost);
+    }
+
+    /**
+     * Remove the link between two nodes (link down)
+     * Return the routers whose next hop changed for at least one destination
+     */
+    public List<String> removeEdge(String nodeA, String nodeB) {
+
+        if (!graph.hasNode(nodeA) || !graph.hasNode(nodeB) || !graph.hasConnection(nodeA, nodeB))
+            return new ArrayList<>();
+
+        int oldCost = graph.getEdgeCost(nodeA, nodeB);
+        graph.removeEdge(nodeA, nodeB);
+
+        return repair(nodeA, nodeB, oldCost, ShortestPathTree.INFINITE);
+    }
+
+    // repair the tree of every source after the change of a link
+    private List<String> repair(String nodeA, String nodeB, int oldCost, int newCost) {
+
+        int a = graph.getNodeIds().getId(nodeA);
+        int b = graph.getNodeIds().getId(nodeB);
+        List<String> changed = new ArrayList<>();
+
+        if (oldCost == newCost)
+            return changed;
+
+        int edgeAB = findEdge(a, b);
+
+        // a link that was never part of the compact graph needs a new slot
+        if (edgeAB == NONE) {
+            freezeGraph();
+        } else {
+            edgeCosts[edgeAB] = newCost;
+            edgeCosts[findEdge(b, a)] = newCost;
+        }
+
+        for (int source = 0; source < compactGraph.nodeCount(); source++) {
+            boolean treeChanged;
+
+            nextMark();
+            affectedCount = 0;
+
+            if (newCost > oldCost)
+                treeChanged = repairIncrease(source, a, b);
+            else
+                treeChanged = repairDecrease(source, a, b, newCost);
+
+            if (treeChanged && updateNextHops(source))
+                changed.add(compactGraph.getLabel(source));
+        }
+
+        return changed;
+    }
+
+    // slot of the link between two nodes in the compact graph, NONE if there is none
+    private int findEdge(int from, int to) {
+
+        for (int e = compactGraph.firstEdge(from), end = compactGraph.endEdge(from); e < end; e++)
+            if (compactGraph.getTarget(e) == to)
+                return e;
+
+        return NONE;
+    }
+
+    // start a new set of affected nodes, the marks are cleared when the counter wraps
+    private void nextMark() {
+
+        if (mark == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            Arrays.fill(hopMarks, 0);
+            mark = 0;
+        }
+
+        mark++;
+    }
+
+    // a cheaper link can only lower the cost of the nodes reached through it
+    private boolean repairDecrease(int source, int a, int b, int cost) {
+
+        heap.clear();
+
+        relax(source, a, b, cost);
+        relax(source, b, a, cost);
+
+        if (heap.isEmpty())
+            return false;
+
+        propagate(source);
+        return true;
+    }
+
+    // update the cost of node "to" if it is cheaper to reach it from node "from"
+    private void relax(int source, int from, int to, int edgeCost) {
+
+        int[] sourceCosts = costs[source];
+
+        if (sourceCosts[from] == ShortestPathTree.INFINITE || edgeCost == ShortestPathTree.INFINITE)
+            return;
+
+        int newCost = sourceCosts[from] + edgeCost;
+
+        if (newCost >= 0 && newCost < sourceCosts[to]) {
+            sourceCosts[to] = newCost;
+            predecessors[source][to] = from;
+            heap.insertOrDecrease(to, newCost);
+            markAffected(to);
+        }
+    }
+
+    private void markAffected(int node) {
+
+        if (marks[node] != mark) {
+            marks[node] = mark;
+            affected[affectedCount++] = node;
+        }
+    }
+
+    // a more expensive link changes the tree only if the link is part of it,
+    // in that case the nodes below the link are reached again from the
+    // nodes that are not below it
+    private boolean repairIncrease(int source, int a, int b) {
+
+        int[] sourcePredecessors = predecessors[source];
+        int child;
+
+        if (sourcePredecessors[b] == a && b != source)
+            child = b;
+        else if (sourcePredecessors[a] == b && a != source)
+            child = a;
+        else
+            return false;
+
+        collectSubtree(source, child);
+        int subtreeSize = affectedCount;
+        int[] sourceCosts = costs[source];
+
+        for (int i = 0; i < subtreeSize; i++) {
+            sourceCosts[affected[i]] = ShortestPathTree.INFINITE;
+            sourcePredecessors[affected[i]] = ShortestPathTree.NO_NODE;
+        }
+
+        heap.clear();
+
+        for (int i = 0; i < subtreeSize; i++) {
+            int node = affected[i];
+
+            for (int e = compactGraph.firstEdge(node), end = compactGraph.endEdge(node); e < end; e++) {
+                int neighbour = compactGraph.getTarget(e);
+
+                if (marks[neighbour] != mark)
+                    relax(source, neighbour, node, edgeCosts[e]);
+            }
+        }
+
+        propagate(source);
+        return true;
+    }
+
+    // find the nodes whose path from the source passes through the child node,
+    // the children of a node are the neighbours that have it as predecessor
+    private void collectSubtree(int source, int child) {
+
+        int[] sourcePredecessors = predecessors[source];
+
+        markAffected(child);
+
+        for (int i = 0; i < affectedCount; i++) {
+            int node = affected[i];
+
+            for (int e = compactGraph.firstEdge(node), end = compactGraph.endEdge(node); e < end; e++) {
+                int neighbour = compactGraph.getTarget(e);
+
+                if (neighbour != source && sourcePredecessors[neighbour] == node)
+                    markAffected(neighbour);
+            }
+        }
+    }
+
+    // continue the Dijkstra algorithm from the nodes in the heap
+    private void propagate(int source) {
+
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+
+            for (int e = compactGraph.firstEdge(node), end = compactGraph.endEdge(node); e < end; e++)
+                relax(source, node, compactGraph.getTarget(e), edgeCosts[e]);
+        }
+    }
+
+    // compute the next hops of the affected nodes again, the other nodes keep
+    // their path; if one changed update the routing table and return true
+    private boolean updateNextHops(int source) {
+
+        int[] sourcePredecessors = predecessors[source];
+        int[] sourceNextHops = nextHops[source];
+        boolean changed = false;
+
+        for (int k = 0; k < affectedCount; k++) {
+            int length = 0;
+            int current = affected[k];
+
+            // walk up the tree until a node whose next hop is known is found
+            while (marks[current] == mark && hopMarks[current] != mark
+                    && sourcePredecessors[current] != ShortestPathTree.NO_NODE
+                    && sourcePredecessors[current] != source) {
+                path[length++] = current;
+                current = sourcePredecessors[current];
+            }
+
+            path[length++] = current;
+            int hop = sourceNextHops[current];
+
+            if (marks[current] == mark && hopMarks[current] != mark)
+                hop = sourcePredecessors[current] == source ? current : ShortestPathTree.NO_NODE;
+            else
+                length--;
+
+            for (int i = 0; i < length; i++) {
+                hopMarks[path[i]] = mark;
+
+                if (sourceNextHops[path[i]] != hop) {
+                    sourceNextHops[path[i]] = hop;
+                    changed = true;
+                }
+            }
+        }
+
+        if (changed)
+            routingTables[source] = RoutingTable.fromNextHops(compactGraph, source, sourceNextHops, nodesByLabel);
+
+        return changed;
+    }
+}
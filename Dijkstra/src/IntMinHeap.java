@@ -0,0 +1,138 @@
+import java.util.Arrays;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that represents an indexed binary min-heap of nodes keyed by a
+ * primitive int (the tentative distance in the Dijkstra algorithm).
+ * <p>
+ * Every node from 0 to capacity - 1 can be in the heap at most once, its
+ * position is stored in the positions array so that the key of a node
+ * already in the heap can be decreased in O(log n) without searching it.
+ * The heap does not allocate after construction and can be reused
+ * for several runs by calling clear().
+ */
+public class IntMinHeap {
+
+    private static final int ABSENT = -1;
+
+    private final int[] heap;
+    private final int[] keys;
+    private final int[] positions;
+    private int size;
+
+    public IntMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.keys = new int[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, ABSENT);
+        this.size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int node) {
+        return positions[node] != ABSENT;
+    }
+
+    // remove all the nodes, only the occupied positions are reset
+    public void clear() {
+
+        for (int i = 0; i < size; i++)
+            positions[heap[i]] = ABSENT;
+
+        size = 0;
+    }
+
+    /**
+     * Insert a node with the given key, if the node is already in the heap
+     * its key is lowered to the given value (a greater key is ignored)
+     */
+    public void insertOrDecrease(int node, int key) {
+
+        int position = positions[node];
+
+        if (position == ABSENT) {
+            position = size++;
+            heap[position] = node;
+            positions[node] = position;
+        } else if (key >= keys[node])
+            return;
+
+        keys[node] = key;
+        siftUp(position);
+    }
+
+    // key of the node on top of the heap
+    public int peekKey() {
+        return keys[heap[0]];
+    }
+
+    // remove and return the node with the smallest key
+    public int poll() {
+
+        int top = heap[0];
+        positions[top] = ABSENT;
+        size--;
+
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+
+        return top;
+    }
+
+    private void siftUp(int position) {
+
+        int node = heap[position];
+        int key = keys[node];
+
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            int parentNode = heap[parent];
+
+            if (keys[parentNode] <= key)
+                break;
+
+            heap[position] = parentNode;
+            positions[parentNode] = position;
+            position = parent;
+        }
+
+        heap[position] = node;
+        positions[node] = position;
+    }
+
+    private void siftDown(int position) {
+
+        int node = heap[position];
+        int key = keys[node];
+        int half = size >>> 1;
+
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+
+            if (right < size && keys[heap[right]] < keys[heap[child]])
+                child = right;
+
+            if (key <= keys[heap[child]])
+                break;
+
+            heap[position] = heap[child];
+            positions[heap[position]] = position;
+            position = child;
+        }
+
+        heap[position] = node;
+        positions[node] = position;
+    }
+}
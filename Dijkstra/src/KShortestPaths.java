@@ -0,0 +1,328 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that computes the k shortest loopless paths between two nodes of a
+ * CompactGraph with the algorithm of Yen, e.g. to plan backup routes.
+ * <p>
+ * Every accepted path is split at each of its nodes (the spur node) into a
+ * root, kept as it is, and a spur path from the spur node to the target that
+ * avoids the nodes of the root and the links already used after the same
+ * root by the accepted paths. The cheapest root + spur path of all the
+ * candidates is the next path. Instead of removing nodes and links from the
+ * graph and running a Dijkstra for every spur node:
+ * - the costs from every node to the target are computed once with a full
+ *   tree rooted at the target; they are a lower bound of the cost of any
+ *   spur path, so every spur search is an A* search that goes straight to
+ *   the target, ignores the nodes that cannot reach it, and is skipped when
+ *   the path of the tree from the spur node is not blocked
+ * - the accepted paths are kept in a prefix tree, the links blocked after a
+ *   root are the children of the root in the tree, so the paths that share
+ *   the root are not compared one by one
+ * - a path is only split from the node where it left its parent path
+ *   (Lawler), the spur paths of the shared part were already computed.
+ * <p>
+ * As the other engines, an instance must not be shared between threads.
+ */
+public class KShortestPaths {
+
+    private final CompactGraph graph;
+    private final DijkstraEngine treeEngine;
+    // spur search, only the touched entries are reset
+    private final IntMinHeap heap;
+    private final int[] costs;
+    private final int[] predecessors;
+    private final int[] touched;
+    private int touchedCount;
+    private int settledCount;
+    // blockedStamps[v] == stamp if v is in the root of the current spur node
+    private final int[] blockedStamps;
+    private int stamp;
+    // costs to the target and next node towards it, of the current query
+    private int[] costsToTarget;
+    private int[] towardsTarget;
+    private int target;
+
+    // a path of the result or a candidate, deviation is the index of its spur node
+    private static class Path implements Comparable<Path> {
+        final int[] nodes;
+        final int cost;
+        final int deviation;
+        final int settledCount;
+
+        Path(int[] nodes, int cost, int deviation, int settledCount) {
+            this.nodes = nodes;
+            this.cost = cost;
+            this.deviation = deviation;
+            this.settledCount = settledCount;
+        }
+
+        // cheapest first, then with fewer links, then by the ids of the nodes
+        @Override
+        public int compareTo(Path other) {
+            if (cost != other.cost)
+                return Integer.compare(cost, other.cost);
+
+            if (nodes.length != other.nodes.length)
+                return Integer.compare(nodes.length, other.nodes.length);
+
+            return Arrays.compare(nodes, other.nodes);
+        }
+    }
+
+    // node of the prefix tree of the accepted paths
+    private static class Prefix {
+        int[] nextNodes = new int[2];
+        Prefix[] children = new Prefix[2];
+        int count;
+
+        Prefix child(int node) {
+            for (int i = 0; i < count; i++)
+                if (nextNodes[i] == node)
+                    return children[i];
+
+            if (count == nextNodes.length) {
+                nextNodes = Arrays.copyOf(nextNodes, count * 2);
+                children = Arrays.copyOf(children, count * 2);
+            }
+
+            nextNodes[count] = node;
+            children[count] = new Prefix();
+
+            return children[count++];
+        }
+
+        boolean hasChild(int node) {
+            for (int i = 0; i < count; i++)
+                if (nextNodes[i] == node)
+                    return true;
+
+            return false;
+        }
+    }
+
+    public KShortestPaths(CompactGraph graph) {
+        int nodeCount = graph.nodeCount();
+
+        this.graph = graph;
+        this.treeEngine = new DijkstraEngine(graph);
+        this.heap = new IntMinHeap(nodeCount);
+        this.costs = new int[nodeCount];
+        this.predecessors = new int[nodeCount];
+        this.touched = new int[nodeCount];
+        this.blockedStamps = new int[nodeCount];
+        Arrays.fill(costs, ShortestPathTree.INFINITE);
+    }
+
+    /**
+     * the k shortest loopless paths from the source to the target sorted by
+     * cost, fewer if there are less than k paths, none if the target cannot
+     * be reached
+     */
+    public List<ShortestPath> compute(int source, int target, int k) {
+
+        List<ShortestPath> result = new ArrayList<>(k);
+
+        if (k <= 0)
+            return result;
+
+        ShortestPathTree tree = treeEngine.compute(target);
+        this.target = target;
+        costsToTarget = tree.getCosts();
+        towardsTarget = tree.getPredecessors();
+        // nothing is blocked for the first path
+        stamp++;
+
+        if (!tree.isReachable(source))
+            return result;
+
+        PriorityQueue<Path> candidates = new PriorityQueue<>();
+        Set<List<Integer>> seen = new HashSet<>();
+        Prefix accepted = new Prefix();
+
+        Path first = new Path(treePath(source, null), costsToTarget[source], 0, 0);
+        candidates.add(first);
+        seen.add(key(first.nodes));
+
+        while (result.size() < k && !candidates.isEmpty()) {
+            Path path = candidates.poll();
+            result.add(new ShortestPath(graph.getNodeIds(), path.nodes, path.cost, path.settledCount));
+
+            if (result.size() == k)
+                break;
+
+            // add the path to the prefix tree, prefixes[i] is the root made of its first i + 1 nodes
+            Prefix[] prefixes = new Prefix[path.nodes.length];
+            prefixes[0] = accepted;
+
+            for (int i = 1; i < path.nodes.length; i++)
+                prefixes[i] = prefixes[i - 1].child(path.nodes[i]);
+
+            int rootCost = 0;
+
+            for (int i = 0; i < path.nodes.length - 1; i++) {
+                if (i >= path.deviation) {
+                    Path candidate = spur(path.nodes, i, rootCost, prefixes[i]);
+
+                    if (candidate != null && seen.add(key(candidate.nodes)))
+                        candidates.add(candidate);
+                }
+
+                rootCost += edgeCost(path.nodes[i], path.nodes[i + 1]);
+            }
+        }
+
+        return result;
+    }
+
+    // shortest path that follows the root path[0 .. spurIndex] and then deviates, null if none
+    private Path spur(int[] path, int spurIndex, int rootCost, Prefix root) {
+
+        int spurNode = path[spurIndex];
+        stamp++;
+
+        for (int i = 0; i < spurIndex; i++)
+            blockedStamps[path[i]] = stamp;
+
+        int settledBefore = settledCount;
+        int[] spurPath = treePath(spurNode, root);
+
+        if (spurPath == null)
+            spurPath = search(spurNode, root);
+
+        if (spurPath == null)
+            return null;
+
+        int cost = rootCost;
+
+        for (int i = 0; i + 1 < spurPath.length; i++)
+            cost += edgeCost(spurPath[i], spurPath[i + 1]);
+
+        // a negative value means that the sum overflowed
+        if (cost < 0)
+            return null;
+
+        int[] nodes = new int[spurIndex + spurPath.length];
+        System.arraycopy(path, 0, nodes, 0, spurIndex);
+        System.arraycopy(spurPath, 0, nodes, spurIndex, spurPath.length);
+
+        return new Path(nodes, cost, spurIndex, settledCount - settledBefore);
+    }
+
+    /**
+     * path of the tree rooted at the target from a node, null if it goes
+     * through a blocked node or starts with a link blocked after the root
+     */
+    private int[] treePath(int from, Prefix root) {
+
+        int length = 1;
+
+        for (int node = from; node != towardsTarget[node]; node = towardsTarget[node]) {
+            int next = towardsTarget[node];
+
+            if (blockedStamps[next] == stamp || (node == from && root != null && root.hasChild(next)))
+                return null;
+
+            length++;
+        }
+
+        int[] path = new int[length];
+        path[0] = from;
+
+        for (int i = 1; i < length; i++)
+            path[i] = towardsTarget[path[i - 1]];
+
+        return path;
+    }
+
+    // A* from the spur node to the target guided by the costs to the target, null if unreachable
+    private int[] search(int spurNode, Prefix root) {
+
+        for (int i = 0; i < touchedCount; i++) {
+            costs[touched[i]] = ShortestPathTree.INFINITE;
+            predecessors[touched[i]] = ShortestPathTree.NO_NODE;
+        }
+
+        touchedCount = 0;
+        heap.clear();
+
+        costs[spurNode] = 0;
+        predecessors[spurNode] = spurNode;
+        touched[touchedCount++] = spurNode;
+        heap.insertOrDecrease(spurNode, costsToTarget[spurNode]);
+
+        boolean found = false;
+
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            settledCount++;
+
+            if (node == target) {
+                found = true;
+                break;
+            }
+
+            for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++) {
+                int edgeCost = graph.getCost(e);
+                int neighbour = graph.getTarget(e);
+
+                if (edgeCost == ShortestPathTree.INFINITE || blockedStamps[neighbour] == stamp
+                        || costsToTarget[neighbour] == ShortestPathTree.INFINITE
+                        || (node == spurNode && root.hasChild(neighbour)))
+                    continue;
+
+                int newCost = costs[node] + edgeCost;
+                long key = (long) newCost + costsToTarget[neighbour];
+
+                // a negative value means that the sum overflowed
+                if (newCost < 0 || key >= ShortestPathTree.INFINITE || newCost >= costs[neighbour])
+                    continue;
+
+                if (costs[neighbour] == ShortestPathTree.INFINITE)
+                    touched[touchedCount++] = neighbour;
+
+                costs[neighbour] = newCost;
+                predecessors[neighbour] = node;
+                heap.insertOrDecrease(neighbour, (int) key);
+            }
+        }
+
+        if (!found)
+            return null;
+
+        int length = 1;
+        for (int node = target; node != spurNode; node = predecessors[node])
+            length++;
+
+        int[] path = new int[length];
+
+        for (int i = length - 1, node = target; i >= 0; i--, node = predecessors[node])
+            path[i] = node;
+
+        return path;
+    }
+
+    private int edgeCost(int node, int neighbour) {
+
+        for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++)
+            if (graph.getTarget(e) == neighbour)
+                return graph.getCost(e);
+
+        return ShortestPathTree.INFINITE;
+    }
+
+    private static List<Integer> key(int[] nodes) {
+        List<Integer> key = new ArrayList<>(nodes.length);
+
+        for (int node : nodes)
+            key.add(node);
+
+        return key;
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.function.Supplier;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Minimal level-controlled console logging used instead of printing directly
+ * to System.out, so that a batch run can skip the rendering of the tables.
+ * <p>
+ * Levels, from the least to the most verbose:
+ * - ERROR: only errors (headless runs)
+ * - INFO: progress of the computation and final reports
+ * - DEBUG: the final routing tables
+ * - TRACE: the intermediate tables and distance vectors (default, the original output)
+ * <p>
+ * The methods taking a Supplier build the message only if the level is
+ * enabled, so table dumps cost nothing when they are not printed.
+ */
+public final class Log {
+
+    public enum Level {
+        ERROR, INFO, DEBUG, TRACE
+    }
+
+    private static volatile Level level = Level.TRACE;
+
+    private Log() {
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    public static boolean isEnabled(Level messageLevel) {
+        return messageLevel.compareTo(level) <= 0;
+    }
+
+    public static void error(String message) {
+        System.err.println(message);
+    }
+
+    public static void info(String message) {
+        if (isEnabled(Level.INFO))
+            System.out.println(message);
+    }
+
+    public static void info(Supplier<?> message) {
+        log(Level.INFO, message);
+    }
+
+    public static void debug(Supplier<?> message) {
+        log(Level.DEBUG, message);
+    }
+
+    public static void trace(Supplier<?> message) {
+        log(Level.TRACE, message);
+    }
+
+    // print the message built by the supplier if the level is enabled
+    public static void log(Level messageLevel, Supplier<?> message) {
+        if (isEnabled(messageLevel))
+            System.out.println(message.get());
+    }
+}
@@ -0,0 +1,278 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Process-wide counters and phase timers, to tell whether the time goes
+ * into reading the topology, computing the trees or writing the tables.
+ * <p>
+ * - counters: the work of the Dijkstra algorithm (trees, heap operations,
+ *   edge relaxations). DijkstraEngine counts in local variables and adds
+ *   the totals once per tree, so the hot loop is not slowed down by shared
+ *   writes; the counters are LongAdders, several threads add without contention
+ * - phases: number of runs and total time of the loading, the computation
+ *   and the writing, timed with Metrics.Timer timer = Metrics.start(phase)
+ *   and timer.stop() in a finally block
+ * <p>
+ * Every phase is also a JFR event (routing.dijkstra.Phase) with the work
+ * counted while it ran, recorded only when a flight recording is active.
+ * The values can be read over JMX (registerMBean, routing.dijkstra:type=Metrics)
+ * and written as a JSON object when the process exits (writeSummaryAtExit):
+ * {"counters":{"trees":1000,...},"phases":{"load":{"count":1,"millis":12.5},...}}
+ */
+public final class Metrics {
+
+    public enum Counter {
+        // shortest path trees computed
+        TREES,
+        // insertions, decreases and removals of the heap
+        HEAP_OPERATIONS,
+        // edges examined from the settled nodes
+        EDGE_RELAXATIONS
+    }
+
+    public enum Phase {
+        LOAD, COMPUTE, WRITE
+    }
+
+    public static final String OBJECT_NAME = "routing.dijkstra:type=Metrics";
+
+    private static final LongAdder[] counters = adders(Counter.values().length);
+    private static final LongAdder[] phaseCounts = adders(Phase.values().length);
+    private static final LongAdder[] phaseNanos = adders(Phase.values().length);
+    private static boolean registered;
+
+    private Metrics() {
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+
+        for (int i = 0; i < count; i++)
+            adders[i] = new LongAdder();
+
+        return adders;
+    }
+
+    public static void add(Counter counter, long value) {
+        counters[counter.ordinal()].add(value);
+    }
+
+    public static long get(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    // number of times the phase ran
+    public static long getCount(Phase phase) {
+        return phaseCounts[phase.ordinal()].sum();
+    }
+
+    // total time spent in the phase, summed over the threads that ran it
+    public static long getNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    public static void reset() {
+        for (LongAdder adder : counters)
+            adder.reset();
+
+        for (int i = 0; i < phaseCounts.length; i++) {
+            phaseCounts[i].reset();
+            phaseNanos[i].reset();
+        }
+    }
+
+    // start timing a phase, the time is added when the timer is stopped
+    public static Timer start(Phase phase) {
+        return new Timer(phase);
+    }
+
+    /**
+     * Register the metrics on the platform MBean server, so that they can be
+     * read with jconsole or any JMX client; registering again does nothing
+     */
+    public static synchronized void registerMBean() {
+        if (registered)
+            return;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new View(), new ObjectName(OBJECT_NAME));
+            registered = true;
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // write the JSON summary to the file when the process exits, also when it is stopped (daemon)
+    public static void writeSummaryAtExit(File file) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                writeSummary(file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+    }
+
+    public static void writeSummary(File file) throws IOException {
+
+        if (file.getParentFile() != null && !file.getParentFile().exists() && !file.getParentFile().mkdirs())
+            throw new IOException("Error in creating the directory for the files...");
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write(summary());
+            writer.write("\n");
+        }
+    }
+
+    // the counters and the phases as a JSON object on one line
+    public static String summary() {
+
+        StringBuilder json = new StringBuilder("{\"counters\":{");
+        String separator = "";
+
+        for (Counter counter : Counter.values()) {
+            json.append(separator).append('"').append(name(counter)).append("\":").append(get(counter));
+            separator = ",";
+        }
+
+        json.append("},\"phases\":{");
+        separator = "";
+
+        for (Phase phase : Phase.values()) {
+            json.append(separator).append('"').append(name(phase)).append("\":{\"count\":").append(getCount(phase))
+                    .append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", getNanos(phase) / 1e6))
+                    .append('}');
+            separator = ",";
+        }
+
+        return json.append("}}").toString();
+    }
+
+    private static String name(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    // time of a running phase, to be stopped in the thread that started it
+    public static final class Timer {
+
+        private final Phase phase;
+        private final long start;
+        private final PhaseEvent event;
+        private final long heapOperations;
+        private final long edgeRelaxations;
+
+        private Timer(Phase phase) {
+            this.phase = phase;
+            this.event = new PhaseEvent();
+            this.heapOperations = get(Counter.HEAP_OPERATIONS);
+            this.edgeRelaxations = get(Counter.EDGE_RELAXATIONS);
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        public void stop() {
+            long elapsed = System.nanoTime() - start;
+            phaseCounts[phase.ordinal()].increment();
+            phaseNanos[phase.ordinal()].add(elapsed);
+            event.end();
+
+            if (event.shouldCommit()) {
+                // the work of other threads running at the same time is counted too
+                event.phase = name(phase);
+                event.heapOperations = get(Counter.HEAP_OPERATIONS) - heapOperations;
+                event.edgeRelaxations = get(Counter.EDGE_RELAXATIONS) - edgeRelaxations;
+                event.commit();
+            }
+        }
+    }
+
+    @Name("routing.dijkstra.Phase")
+    @Label("Routing Phase")
+    @Category({"Routing", "Dijkstra"})
+    @Description("Loading of the topology, computation or writing of the routing tables")
+    static final class PhaseEvent extends Event {
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Heap Operations")
+        long heapOperations;
+
+        @Label("Edge Relaxations")
+        long edgeRelaxations;
+    }
+
+    // attributes read over JMX, the phases are read in milliseconds
+    public interface MetricsMXBean {
+
+        Map<String, Long> getCounters();
+
+        Map<String, Long> getPhaseCounts();
+
+        Map<String, Long> getPhaseMillis();
+
+        String getSummary();
+
+        void reset();
+    }
+
+    private static final class View implements MetricsMXBean {
+
+        @Override
+        public Map<String, Long> getCounters() {
+            Map<String, Long> values = new LinkedHashMap<>();
+
+            for (Counter counter : Counter.values())
+                values.put(name(counter), get(counter));
+
+            return values;
+        }
+
+        @Override
+        public Map<String, Long> getPhaseCounts() {
+            Map<String, Long> values = new LinkedHashMap<>();
+
+            for (Phase phase : Phase.values())
+                values.put(name(phase), getCount(phase));
+
+            return values;
+        }
+
+        @Override
+        public Map<String, Long> getPhaseMillis() {
+            Map<String, Long> values = new LinkedHashMap<>();
+
+            for (Phase phase : Phase.values())
+                values.put(name(phase), getNanos(phase) / 1_000_000);
+
+            return values;
+        }
+
+        @Override
+        public String getSummary() {
+            return summary();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that represents the result of the Dijkstra algorithm for one source
+ * node when all the equal-cost shortest paths are kept (ECMP): for every
+ * node the cost from the source, the set of next hops used by at least one
+ * shortest path and the number of shortest paths.
+ * <p>
+ * The next hops of a node are the neighbours of the source, so the set is a
+ * bitset with one bit per link of the source (bit i = the i-th link of the
+ * source in the CompactGraph), stored in nextHopBits as words consecutive
+ * longs per node. The number of paths grows exponentially on some networks
+ * (e.g. a grid), it is capped at Long.MAX_VALUE.
+ */
+public class MultipathTree {
+
+    private final CompactGraph graph;
+    private final int source;
+    private final int[] costs;
+    private final long[] nextHopBits;
+    private final int words;
+    private final long[] pathCounts;
+
+    public MultipathTree(CompactGraph graph, int source, int[] costs, long[] nextHopBits, int words,
+                         long[] pathCounts) {
+        this.graph = graph;
+        this.source = source;
+        this.costs = costs;
+        this.nextHopBits = nextHopBits;
+        this.words = words;
+        this.pathCounts = pathCounts;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public int nodeCount() {
+        return costs.length;
+    }
+
+    public int getCost(int node) {
+        return costs[node];
+    }
+
+    public boolean isReachable(int node) {
+        return costs[node] != ShortestPathTree.INFINITE;
+    }
+
+    // number of shortest paths from the source to the node, 1 for the source itself
+    public long getPathCount(int node) {
+        return pathCounts[node];
+    }
+
+    // number of next hops of a node, 1 for the source (direct), 0 if unreachable
+    public int getNextHopCount(int node) {
+
+        if (node == source)
+            return 1;
+
+        int count = 0;
+
+        for (int w = node * words; w < (node + 1) * words; w++)
+            count += Long.bitCount(nextHopBits[w]);
+
+        return count;
+    }
+
+    /**
+     * write the ids of the next hops of a node into the array starting at
+     * the given position (the order of the links of the source), return the
+     * number of next hops written. The next hop of the source is itself
+     */
+    public int getNextHops(int node, int[] nextHops, int position) {
+
+        if (node == source) {
+            nextHops[position] = source;
+            return 1;
+        }
+
+        int count = 0;
+        int firstEdge = graph.firstEdge(source);
+
+        for (int w = 0; w < words; w++)
+            for (long bits = nextHopBits[node * words + w]; bits != 0; bits &= bits - 1)
+                nextHops[position + count++] = graph.getTarget(firstEdge + w * 64 + Long.numberOfTrailingZeros(bits));
+
+        return count;
+    }
+
+    public int[] getNextHops(int node) {
+        int[] nextHops = new int[getNextHopCount(node)];
+        getNextHops(node, nextHops, 0);
+
+        return nextHops;
+    }
+}
@@ -0,0 +1,248 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that stores the next hop of every (router, destination) pair in a
+ * binary file as a V x V matrix, so that any next hop can be read in O(1)
+ * from the memory-mapped file without parsing the routing tables.
+ * <p>
+ * Row r of the matrix contains the next hop from router r towards every
+ * destination, the router itself is stored as its own next hop (direct) and
+ * an unreachable destination as NO_NODE. The ids take 2 bytes if there are
+ * less than 65535 nodes, 4 bytes otherwise. Of the equal-cost next hops of a
+ * multipath table only the first one is stored.
+ * <p>
+ * Format of the file, all the values are big endian:
+ * MAGIC (4 bytes), VERSION (int), number of nodes (int), bytes per id (int),
+ * offset of the matrix from the start of the file (long),
+ * for every node: length of the label (int), label in UTF-8,
+ * then the matrix, row by row.
+ * <p>
+ * The matrix is mapped in segments made of whole rows, so files larger than
+ * 2 GB can be read as well.
+ * <p>
+ * Can be run as an application to look up next hops:
+ * java NextHopMatrix next_hops.nhm router destination [destination ...]
+ */
+public class NextHopMatrix {
+
+    static final byte[] MAGIC = {0x7F, 'N', 'H', 'M'};
+    static final int VERSION = 1;
+    public static final int NO_NODE = ShortestPathTree.NO_NODE;
+
+    private static final int HEADER_BYTES = MAGIC.length + 20;
+    private static final int SHORT_NO_NODE = 0xFFFF;
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final NodeIds nodeIds;
+    private final int nodeCount;
+    private final int idBytes;
+    private final int rowsPerSegment;
+    private final MappedByteBuffer[] segments;
+
+    private NextHopMatrix(NodeIds nodeIds, int idBytes, int rowsPerSegment, MappedByteBuffer[] segments) {
+        this.nodeIds = nodeIds;
+        this.nodeCount = nodeIds.size();
+        this.idBytes = idBytes;
+        this.rowsPerSegment = rowsPerSegment;
+        this.segments = segments;
+    }
+
+    public NodeIds getNodeIds() {
+        return nodeIds;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    // id of the next hop from a router towards a destination, NO_NODE if unreachable
+    public int getNextHop(int router, int destination) {
+
+        MappedByteBuffer segment = segments[router / rowsPerSegment];
+        int position = ((router % rowsPerSegment) * nodeCount + destination) * idBytes;
+
+        if (idBytes == 2) {
+            int nextHop = segment.getShort(position) & 0xFFFF;
+            return nextHop == SHORT_NO_NODE ? NO_NODE : nextHop;
+        }
+
+        return segment.getInt(position);
+    }
+
+    // label of the next hop from a router towards a destination, null if unknown or unreachable
+    public String getNextHop(String router, String destination) {
+
+        int routerId = nodeIds.getId(router);
+        int destinationId = nodeIds.getId(destination);
+
+        if (routerId == NodeIds.NO_ID || destinationId == NodeIds.NO_ID)
+            return null;
+
+        int nextHop = getNextHop(routerId, destinationId);
+
+        return nextHop == NO_NODE ? null : nodeIds.getLabel(nextHop);
+    }
+
+    // map a file written by write
+    public static NextHopMatrix open(File file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+
+            byte[] magic = new byte[MAGIC.length];
+
+            if (header.remaining() == HEADER_BYTES)
+                header.get(magic);
+
+            if (!Arrays.equals(magic, MAGIC))
+                throw new IOException("Not a next hop matrix file");
+
+            if (header.getInt() != VERSION)
+                throw new IOException("Unsupported version of the next hop matrix");
+
+            int nodeCount = header.getInt();
+            int idBytes = header.getInt();
+            long matrixOffset = header.getLong();
+
+            // the labels are read from a temporary mapping
+            NodeIds nodeIds = new NodeIds();
+            MappedByteBuffer labels = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES, matrixOffset - HEADER_BYTES);
+
+            for (int node = 0; node < nodeCount; node++) {
+                byte[] label = new byte[labels.getInt()];
+                labels.get(label);
+                nodeIds.intern(new String(label, StandardCharsets.UTF_8));
+            }
+
+            long rowBytes = (long) nodeCount * idBytes;
+
+            if (nodeIds.size() != nodeCount || channel.size() != matrixOffset + rowBytes * nodeCount)
+                throw new IOException("Corrupted next hop matrix");
+
+            int rowsPerSegment = (int) Math.max(1, Math.min(nodeCount, SEGMENT_SIZE / Math.max(1, rowBytes)));
+            MappedByteBuffer[] segments = new MappedByteBuffer[(nodeCount + rowsPerSegment - 1) / rowsPerSegment];
+
+            for (int s = 0; s < segments.length; s++) {
+                int rows = Math.min(rowsPerSegment, nodeCount - s * rowsPerSegment);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        matrixOffset + s * rowsPerSegment * rowBytes, rows * rowBytes);
+            }
+
+            return new NextHopMatrix(nodeIds, idBytes, rowsPerSegment, segments);
+        }
+    }
+
+    /**
+     * Write the next hops of the routing tables as a matrix, the ids of the
+     * nodes in the file are the ids of nodeIds. The rows of the routers
+     * without a table contain only NO_NODE
+     */
+    public static void write(List<RoutingTable> tables, NodeIds nodeIds, File file) throws IOException {
+
+        int nodeCount = nodeIds.size();
+        int idBytes = nodeCount < SHORT_NO_NODE ? 2 : 4;
+
+        RoutingTable[] tablesByRouter = new RoutingTable[nodeCount];
+
+        for (RoutingTable table : tables)
+            tablesByRouter[table.getRouterId()] = table;
+
+        byte[][] labels = new byte[nodeCount][];
+        long matrixOffset = HEADER_BYTES;
+
+        for (int node = 0; node < nodeCount; node++) {
+            labels[node] = nodeIds.getLabel(node).getBytes(StandardCharsets.UTF_8);
+            matrixOffset += 4 + labels[node].length;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(matrixOffset, Integer.MAX_VALUE));
+            header.put(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(nodeCount);
+            header.putInt(idBytes);
+            header.putLong(matrixOffset);
+
+            for (byte[] label : labels) {
+                header.putInt(label.length);
+                header.put(label);
+            }
+
+            header.flip();
+            writeFully(channel, header);
+
+            // every row is filled in the same buffer and written at once
+            ByteBuffer row = ByteBuffer.allocateDirect(nodeCount * idBytes);
+
+            for (int router = 0; router < nodeCount; router++) {
+                row.clear();
+
+                for (int i = 0; i < nodeCount; i++)
+                    putId(row, i * idBytes, NO_NODE, idBytes);
+
+                RoutingTable table = tablesByRouter[router];
+
+                if (table != null)
+                    for (int i = 0; i < table.size(); i++)
+                        putId(row, table.getDestination(i) * idBytes, table.getNextHop(i), idBytes);
+
+                writeFully(channel, row);
+            }
+        }
+    }
+
+    private static void putId(ByteBuffer row, int position, int id, int idBytes) {
+        if (idBytes == 2)
+            row.putShort(position, (short) (id == NO_NODE ? SHORT_NO_NODE : id));
+        else
+            row.putInt(position, id);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    public static void main(String[] args) {
+
+        if (args.length < 3) {
+            System.err.println("Usage: java NextHopMatrix file router destination [destination ...]");
+            return;
+        }
+
+        try {
+            NextHopMatrix matrix = open(new File(args[0]));
+
+            for (int i = 2; i < args.length; i++) {
+                String nextHop = matrix.getNextHop(args[1], args[i]);
+
+                if (!matrix.getNodeIds().contains(args[1]) || !matrix.getNodeIds().contains(args[i]))
+                    System.out.println(args[i] + " unknown");
+                else if (nextHop == null)
+                    System.out.println(args[i] + " unreachable");
+                else if (nextHop.equals(args[1]))
+                    System.out.println(args[i] + " direct");
+                else
+                    System.out.println(args[i] + " " + nextHop);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
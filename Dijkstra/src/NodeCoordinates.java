@@ -0,0 +1,132 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that stores the position of every node of a CompactGraph, used by
+ * the PointToPointEngine as the A* heuristic. The estimate of the cost
+ * between two nodes is their euclidean distance multiplied by the smallest
+ * cost per unit of distance of the links of the graph, rounded down, so it
+ * is never greater than the cost of a path whatever the coordinates are.
+ * Coordinates that do not reflect the costs only make the estimate weaker.
+ * <p>
+ * The file read by read() has one node per line with its label and the two
+ * coordinates separated by white space, for example:
+ * A 0 0
+ * B 1.5 2
+ * Labels that are not in the graph are ignored, a graph with nodes without
+ * coordinates cannot be used for A* (see isComplete()).
+ */
+public class NodeCoordinates {
+
+    // margin so that rounding errors never make the estimate too large
+    private static final double SCALE_MARGIN = 1 - 1e-9;
+
+    private final double[] x;
+    private final double[] y;
+    private final boolean complete;
+    private final double scale;
+
+    // the coordinates of the nodes without a position are NaN
+    public NodeCoordinates(CompactGraph graph, double[] x, double[] y) {
+
+        if (x.length != graph.nodeCount() || y.length != graph.nodeCount())
+            throw new IllegalArgumentException("Expected coordinates for " + graph.nodeCount() + " nodes");
+
+        this.x = x;
+        this.y = y;
+
+        boolean complete = true;
+
+        for (int node = 0; node < x.length; node++)
+            if (Double.isNaN(x[node]) || Double.isNaN(y[node]))
+                complete = false;
+
+        this.complete = complete;
+        this.scale = complete ? minimumCostPerDistance(graph) * SCALE_MARGIN : 0;
+    }
+
+    public static NodeCoordinates read(CompactGraph graph, String filename) throws IOException {
+
+        double[] x = new double[graph.nodeCount()];
+        double[] y = new double[graph.nodeCount()];
+        Arrays.fill(x, Double.NaN);
+        Arrays.fill(y, Double.NaN);
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String[] fields = line.trim().split("\\s+");
+
+                if (fields[0].isEmpty())
+                    continue;
+
+                if (fields.length != 3)
+                    throw new IOException("Malformed input for coordinates at line " + lineNumber);
+
+                int node = graph.getNodeIds().getId(fields[0]);
+
+                if (node == NodeIds.NO_ID || node >= graph.nodeCount())
+                    continue;
+
+                try {
+                    x[node] = Double.parseDouble(fields[1]);
+                    y[node] = Double.parseDouble(fields[2]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed input for coordinates at line " + lineNumber);
+                }
+            }
+        }
+
+        return new NodeCoordinates(graph, x, y);
+    }
+
+    // true if every node of the graph has a position
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public double getX(int node) {
+        return x[node];
+    }
+
+    public double getY(int node) {
+        return y[node];
+    }
+
+    // lower bound of the cost of any path between two nodes
+    public int estimate(int from, int to) {
+
+        if (scale == 0)
+            return 0;
+
+        double estimate = Math.floor(scale * Math.hypot(x[from] - x[to], y[from] - y[to]));
+
+        return estimate >= ShortestPathTree.INFINITE ? ShortestPathTree.INFINITE - 1 : (int) estimate;
+    }
+
+    // the largest factor for which the distance of the two ends of every link is not above its cost
+    private double minimumCostPerDistance(CompactGraph graph) {
+
+        double minimum = Double.POSITIVE_INFINITY;
+
+        for (int node = 0; node < graph.nodeCount(); node++)
+            for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++) {
+                int target = graph.getTarget(e);
+                double distance = Math.hypot(x[node] - x[target], y[node] - y[target]);
+
+                if (distance > 0)
+                    minimum = Math.min(minimum, graph.getCost(e) / distance);
+            }
+
+        return minimum == Double.POSITIVE_INFINITY ? 0 : minimum;
+    }
+}
@@ -4,9 +4,9 @@ import java.util.*;
  * Author: Samuel Dalvai
  * <p>
  * Class that represents an undirected graph with nodes and edges
- * Each edge connecting two nodes has a cost that is represented
- * in a matrix labeled with letters consisting of arbitrary characters
- * The order of the letters in the matrix is not important
+ * Each edge connecting two nodes has a cost, the nodes are labeled with
+ * arbitrary strings and the order of the labels is not important
+ * (the labels are mapped to int ids by a NodeIds object)
  * <p>
  * Example of a graph:
  * A B C D E F
@@ -22,30 +22,41 @@ import java.util.*;
  * otherwise if no cost is specified the cost is "infinite" since the
  * two nodes are not connected. (value * represents infinite cost)
  * <p>
- * Every time a new edge is added, the matrix of nodes is updated with
- * the two new nodes (only if the nodes are not already present in the graph)
- * and the cost is updated.
+ * The graph is stored sparsely: every node has an array with the indexes
+ * of its neighbours and an array with the cost of each connection.
+ * The arrays double their size when they are full, so adding an edge costs
+ * amortized O(1) plus the lookup of an already existing connection, which
+ * scans the neighbours of the endpoint with the smallest degree.
  * <p>
- * The class contains also methods to compute the best path from a source
- * node to a destination
+ * Once the graph has been loaded it can be frozen into an immutable
+ * CompactGraph (see freeze method) used by the shortest path engine.
  */
 public class NodeGraph {
 
-    // maps name of the node to index in nodesMatrix
-    private final Map<Character, Integer> nodesMap;
-    private int nodesIndex;
-    // contains cost of the connection between nodes
-    int[][] nodesMatrix;
+    private static final int INITIAL_DEGREE = 4;
+
+    // maps name of the node to its index
+    private final NodeIds nodeIds;
+    // neighbours and cost of the connections of every node, only the first
+    // degrees[i] slots of the arrays of node i are used
+    private int[][] adjacentNodes;
+    private int[][] adjacentCosts;
+    private int[] degrees;
 
     public NodeGraph() {
-        // initialize the two attributes as empty
-        this.nodesMap = new LinkedHashMap<>();
-        nodesIndex = 0;
-        this.nodesMatrix = new int[0][0];
+        // initialize the attributes as empty
+        this.nodeIds = new NodeIds();
+        this.adjacentNodes = new int[INITIAL_DEGREE][];
+        this.adjacentCosts = new int[INITIAL_DEGREE][];
+        this.degrees = new int[INITIAL_DEGREE];
+    }
+
+    public NodeIds getNodeIds() {
+        return nodeIds;
     }
 
-    public Map<Character, Integer> getNodesMap() {
-        return nodesMap;
+    public int getNodesCount() {
+        return nodeIds.size();
     }
 
     /**
@@ -55,129 +66,240 @@ public class NodeGraph {
      * The cost is updated for both directions between the nodes, since
      * the graph is undirected
      */
-    public void addEdge(Character nodeA, Character nodeB, int cost) {
+    public void addEdge(String nodeA, String nodeB, int cost) {
+
+        int indexNodeA = addNodeKey(nodeA);
+        int indexNodeB = addNodeKey(nodeB);
+
+        if (indexNodeA == indexNodeB)
+            return;
+
+        updateCost(indexNodeA, indexNodeB, cost);
+    }
+
+    /**
+     * Remove the edge between two nodes (in both directions), the two nodes
+     * stay in the graph even if they are left without connections
+     * Return false if the nodes were not connected
+     */
+    public boolean removeEdge(String nodeA, String nodeB) {
+
+        int indexNodeA = nodeIds.getId(nodeA);
+        int indexNodeB = nodeIds.getId(nodeB);
+
+        if (indexNodeA == NodeIds.NO_ID || indexNodeB == NodeIds.NO_ID)
+            return false;
+
+        int slotA = findSlot(indexNodeA, indexNodeB);
 
-        addNodeKey(nodeA);
-        addNodeKey(nodeB);
-        updateCost(nodeA, nodeB, cost);
-        setInfiniteConnections();
+        if (slotA == -1)
+            return false;
+
+        removeNeighbour(indexNodeA, slotA);
+        removeNeighbour(indexNodeB, findSlot(indexNodeB, indexNodeA));
+        return true;
+    }
+
+    // check whether a node is part of the graph
+    public boolean hasNode(String node) {
+        return nodeIds.contains(node);
     }
 
     // get the connection cost between two nodes
-    public int getEdgeCost(Character nodeA, Character nodeB) {
+    public int getEdgeCost(String nodeA, String nodeB) {
 
-        int indexNodeA = nodesMap.get(nodeA);
-        int indexNodeB = nodesMap.get(nodeB);
+        return getEdgeCost(nodeIds.getId(nodeA), nodeIds.getId(nodeB));
+    }
 
-        return nodesMatrix[indexNodeA][indexNodeB];
+    // get the connection cost between the nodes with the given ids
+    public int getEdgeCost(int indexNodeA, int indexNodeB) {
+
+        if (indexNodeA == indexNodeB)
+            return 0;
+
+        // the cost is the same in both directions, search the
+        // connection from the node with less neighbours
+        if (degrees[indexNodeB] < degrees[indexNodeA]) {
+            int swap = indexNodeA;
+            indexNodeA = indexNodeB;
+            indexNodeB = swap;
+        }
+
+        int slot = findSlot(indexNodeA, indexNodeB);
+
+        if (slot == -1)
+            return Integer.MAX_VALUE;
+
+        return adjacentCosts[indexNodeA][slot];
     }
 
-    // add new node to map of nodes and update value by 1
-    // and grow nodesMatrix by 1 column and 1 row
+    // add new node to the ids of the nodes
     // if node is already mapped, do nothing
-    private void addNodeKey(Character label) {
+    // return the index of the node
+    private int addNodeKey(String label) {
+
+        int nodesCount = nodeIds.size();
+        int index = nodeIds.intern(label);
+
+        if (nodeIds.size() == nodesCount)
+            return index;
+
+        if (index == degrees.length)
+            growNodes();
 
-        if (!nodesMap.containsKey(label)) {
-            nodesMap.put(label, nodesIndex);
-            growNodesMatrix();
-            nodesIndex++;
+        adjacentNodes[index] = new int[INITIAL_DEGREE];
+        adjacentCosts[index] = new int[INITIAL_DEGREE];
+
+        return index;
+    }
+
+    // double the capacity of the arrays indexed by node
+    private void growNodes() {
+
+        int capacity = degrees.length * 2;
+
+        adjacentNodes = Arrays.copyOf(adjacentNodes, capacity);
+        adjacentCosts = Arrays.copyOf(adjacentCosts, capacity);
+        degrees = Arrays.copyOf(degrees, capacity);
+    }
+
+    // update the cost of the connection in both directions,
+    // if the two nodes are not yet connected add the connection
+    // (the existence of the connection is checked from the node
+    // with less neighbours)
+    private void updateCost(int indexNodeA, int indexNodeB, int cost) {
+
+        int small = degrees[indexNodeA] <= degrees[indexNodeB] ? indexNodeA : indexNodeB;
+        int large = small == indexNodeA ? indexNodeB : indexNodeA;
+        int slot = findSlot(small, large);
+
+        if (slot == -1) {
+            appendNeighbour(indexNodeA, indexNodeB, cost);
+            appendNeighbour(indexNodeB, indexNodeA, cost);
+            return;
         }
+
+        adjacentCosts[small][slot] = cost;
+        adjacentCosts[large][findSlot(large, small)] = cost;
     }
 
-    // grow matrix by 1 and copy previous content
-    private void growNodesMatrix() {
+    // add a neighbour at the end of the arrays of a node, doubling them if full
+    private void appendNeighbour(int node, int neighbour, int cost) {
 
-        int[][] copyMatrix = new int[nodesMatrix.length + 1][nodesMatrix.length + 1];
+        int degree = degrees[node];
 
-        for (int i = 0; i < nodesMatrix.length; i++)
-            System.arraycopy(nodesMatrix[i], 0, copyMatrix[i], 0, nodesMatrix[0].length);
+        if (degree == adjacentNodes[node].length) {
+            adjacentNodes[node] = Arrays.copyOf(adjacentNodes[node], degree * 2);
+            adjacentCosts[node] = Arrays.copyOf(adjacentCosts[node], degree * 2);
+        }
 
-        nodesMatrix = copyMatrix;
+        adjacentNodes[node][degree] = neighbour;
+        adjacentCosts[node][degree] = cost;
+        degrees[node]++;
     }
 
-    // get the indexes of the two nodes and update the node matrix
-    // with the value of the cost in both directions
-    private void updateCost(Character nodeA, Character nodeB, int cost) {
+    // remove a neighbour by moving the last neighbour of the node in its slot
+    private void removeNeighbour(int node, int slot) {
 
-        int indexNodeA = nodesMap.get(nodeA);
-        int indexNodeB = nodesMap.get(nodeB);
+        int last = --degrees[node];
 
-        nodesMatrix[indexNodeA][indexNodeB] = cost;
-        nodesMatrix[indexNodeB][indexNodeA] = cost;
+        adjacentNodes[node][slot] = adjacentNodes[node][last];
+        adjacentCosts[node][slot] = adjacentCosts[node][last];
     }
 
-    /**
-     * update the cost of the non connected nodes and set it
-     * to infinite. The maximum value for integers has been chosen to represent
-     * infinity. The cost of the connection from a node to itself
-     * remains set to 0 (default value for arrays)
-     */
-    private void setInfiniteConnections() {
+    // find the slot of a neighbour in the arrays of a node, -1 if not connected
+    private int findSlot(int node, int neighbour) {
 
-        for (int i = 0; i < nodesMatrix.length; i++)
-            for (int j = 0; j < nodesMatrix[0].length; j++)
-                if (nodesMatrix[i][j] == 0 && i != j)
-                    nodesMatrix[i][j] = Integer.MAX_VALUE;
+        int[] neighbours = adjacentNodes[node];
+
+        for (int i = 0; i < degrees[node]; i++)
+            if (neighbours[i] == neighbour)
+                return i;
+
+        return -1;
     }
 
     // get all the nodes of the graph as a list
-    public List<Character> getNodesAsList() {
+    public List<String> getNodesAsList() {
 
-        ArrayList<Character> nodesList = new ArrayList<>();
+        List<String> nodesList = new ArrayList<>(nodeIds.size());
 
-        for (Map.Entry<Character, Integer> entry : nodesMap.entrySet()) {
-            nodesList.add(entry.getKey());
-        }
+        for (int i = 0; i < nodeIds.size(); i++)
+            nodesList.add(nodeIds.getLabel(i));
 
         return nodesList;
     }
 
     // check whether a node has a connection to another node
     // the connection to itself is not considered
-    public boolean hasConnection(Character nodeA, Character NodeB) {
+    public boolean hasConnection(String nodeA, String nodeB) {
 
-        return getEdgeCost(nodeA, NodeB) != Integer.MAX_VALUE;// && getEdgeCost(nodeA, NodeB) != 0;
+        return !nodeA.equals(nodeB) && getEdgeCost(nodeA, nodeB) != Integer.MAX_VALUE;
     }
 
     // get a list of all the direct connections from this node
-    public List<Character> getConnections(Character node) {
+    public List<String> getConnections(String node) {
 
-        List<Character> connections = new ArrayList<>();
+        int index = nodeIds.getId(node);
+        List<String> connections = new ArrayList<>(degrees[index]);
 
-        for (Map.Entry<Character, Integer> entry : nodesMap.entrySet())
-            if (hasConnection(node, entry.getKey()))
-                connections.add(entry.getKey());
+        for (int i = 0; i < degrees[index]; i++)
+            connections.add(nodeIds.getLabel(adjacentNodes[index][i]));
 
         return connections;
     }
 
+    /**
+     * Freeze the graph into an immutable CompactGraph: the neighbours of
+     * every node are copied one after the other into a single array,
+     * the index of every node is the same as in this graph
+     */
+    public CompactGraph freeze() {
+
+        int nodesCount = nodeIds.size();
+        int[] offsets = new int[nodesCount + 1];
+
+        for (int i = 0; i < nodesCount; i++)
+            offsets[i + 1] = offsets[i] + degrees[i];
+
+        int[] targets = new int[offsets[nodesCount]];
+        int[] costs = new int[offsets[nodesCount]];
+
+        for (int i = 0; i < nodesCount; i++) {
+            System.arraycopy(adjacentNodes[i], 0, targets, offsets[i], degrees[i]);
+            System.arraycopy(adjacentCosts[i], 0, costs, offsets[i], degrees[i]);
+        }
+
+        return new CompactGraph(nodeIds, offsets, targets, costs);
+    }
+
     @Override
     public String toString() {
 
-        if (nodesMap.size() == 0 && nodesMatrix.length == 0)
+        if (nodeIds.size() == 0)
             return "*** no values in the graph***";
 
         StringBuilder output = new StringBuilder("  ");
 
-        for (Map.Entry<Character, Integer> entry : nodesMap.entrySet()) {
-            output.append(entry.getKey()).append(" ");// + entry.getValue() + " ";
+        for (int i = 0; i < nodeIds.size(); i++) {
+            output.append(nodeIds.getLabel(i)).append(" ");
         }
 
         output.append("\n");
 
-        int index = 0;
+        for (int row = 0; row < nodeIds.size(); row++) {
+            output.append(nodeIds.getLabel(row)).append(" ");
 
-        for (Map.Entry<Character, Integer> entry : nodesMap.entrySet()) {
-            output.append(entry.getKey()).append(" ");
+            for (int column = 0; column < nodeIds.size(); column++) {
+                int cost = getEdgeCost(row, column);
 
-            for (int i = 0; i < nodesMatrix.length; i++)
-                if (nodesMatrix[index][i] == Integer.MAX_VALUE)
+                if (cost == Integer.MAX_VALUE)
                     output.append("* ");
                 else
-                    output.append(nodesMatrix[index][i]).append(" ");
+                    output.append(cost).append(" ");
+            }
 
             output.append("\n");
-            index++;
         }
         return output.toString();
     }
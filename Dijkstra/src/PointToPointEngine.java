@@ -0,0 +1,215 @@
+import java.util.Arrays;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that computes the shortest path between two nodes of a CompactGraph
+ * with a bidirectional Dijkstra algorithm: a forward search from the source
+ * and a backward search from the target (the graph is undirected, so both
+ * follow the same links) are advanced in turn, always the one with fewer
+ * nodes in its heap. Every link that joins the two searches gives a path,
+ * the search stops as soon as the smallest keys of the two heaps together
+ * reach the cost of the best path found, so only the nodes around the two
+ * ends are visited instead of the whole tree of the source.
+ * <p>
+ * If NodeCoordinates are given, the searches are A* searches: the key of a
+ * node is its cost plus the average of the estimates towards the target and
+ * from the source, which keeps the keys of both searches consistent, so the
+ * same stop condition applies. The keys are doubled to stay integers, paths
+ * whose doubled cost does not fit an int are treated as unreachable, as the
+ * DijkstraEngine does with costs that overflow.
+ * <p>
+ * The arrays are allocated once and only the entries touched by a query are
+ * reset, so a query costs time proportional to the nodes it visits, not to
+ * the size of the graph. As the DijkstraEngine, an engine must not be shared
+ * between threads.
+ */
+public class PointToPointEngine {
+
+    private final CompactGraph graph;
+    private final NodeCoordinates coordinates;
+    private final Search forward;
+    private final Search backward;
+    // 2 with coordinates, so that the average of two estimates is an integer
+    private final int keyFactor;
+    private int source;
+    private int target;
+
+    // state of the search from one end of the path
+    private static class Search {
+        final IntMinHeap heap;
+        final int[] costs;
+        final int[] predecessors;
+        // nodes with a finite cost, reset by the next query
+        final int[] touched;
+        int touchedCount;
+        int settledCount;
+
+        Search(int nodeCount) {
+            heap = new IntMinHeap(nodeCount);
+            costs = new int[nodeCount];
+            predecessors = new int[nodeCount];
+            touched = new int[nodeCount];
+            Arrays.fill(costs, ShortestPathTree.INFINITE);
+            Arrays.fill(predecessors, ShortestPathTree.NO_NODE);
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                costs[touched[i]] = ShortestPathTree.INFINITE;
+                predecessors[touched[i]] = ShortestPathTree.NO_NODE;
+            }
+
+            touchedCount = 0;
+            settledCount = 0;
+            heap.clear();
+        }
+
+        void reach(int node, int cost, int predecessor, long key) {
+            if (costs[node] == ShortestPathTree.INFINITE)
+                touched[touchedCount++] = node;
+
+            costs[node] = cost;
+            predecessors[node] = predecessor;
+            heap.insertOrDecrease(node, (int) key);
+        }
+    }
+
+    public PointToPointEngine(CompactGraph graph) {
+        this(graph, null);
+    }
+
+    // coordinates can be null, otherwise every node must have a position
+    public PointToPointEngine(CompactGraph graph, NodeCoordinates coordinates) {
+
+        if (coordinates != null && !coordinates.isComplete())
+            throw new IllegalArgumentException("Some nodes have no coordinates");
+
+        this.graph = graph;
+        this.coordinates = coordinates;
+        this.forward = new Search(graph.nodeCount());
+        this.backward = new Search(graph.nodeCount());
+        this.keyFactor = coordinates == null ? 1 : 2;
+    }
+
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    // shortest path from the source to the target, null if the target cannot be reached
+    public ShortestPath query(int source, int target) {
+
+        forward.reset();
+        backward.reset();
+        this.source = source;
+        this.target = target;
+
+        if (source == target)
+            return new ShortestPath(graph.getNodeIds(), new int[]{source}, 0, 0);
+
+        forward.reach(source, 0, source, forwardKey(source, 0));
+        backward.reach(target, 0, target, backwardKey(target, 0));
+
+        // best path found so far: forward path to meetForward, link, backward path from meetBackward
+        long best = ShortestPathTree.INFINITE;
+        int meetForward = ShortestPathTree.NO_NODE;
+        int meetBackward = ShortestPathTree.NO_NODE;
+
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+
+            if (best != ShortestPathTree.INFINITE
+                    && (long) forward.heap.peekKey() + backward.heap.peekKey() >= pathKey(best))
+                break;
+
+            boolean isForward = forward.heap.size() <= backward.heap.size();
+            Search search = isForward ? forward : backward;
+            Search other = isForward ? backward : forward;
+
+            int node = search.heap.poll();
+            int nodeCost = search.costs[node];
+            search.settledCount++;
+
+            for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++) {
+                int edgeCost = graph.getCost(e);
+
+                if (edgeCost == ShortestPathTree.INFINITE)
+                    continue;
+
+                int neighbour = graph.getTarget(e);
+                int newCost = nodeCost + edgeCost;
+
+                // a negative value means that the sum overflowed
+                if (newCost < 0)
+                    continue;
+
+                if (newCost < search.costs[neighbour]) {
+                    long key = isForward ? forwardKey(neighbour, newCost) : backwardKey(neighbour, newCost);
+
+                    if (key < ShortestPathTree.INFINITE)
+                        search.reach(neighbour, newCost, node, key);
+                }
+
+                if (other.costs[neighbour] != ShortestPathTree.INFINITE
+                        && (long) newCost + other.costs[neighbour] < best) {
+                    best = (long) newCost + other.costs[neighbour];
+                    meetForward = isForward ? node : neighbour;
+                    meetBackward = isForward ? neighbour : node;
+                }
+            }
+        }
+
+        if (best >= ShortestPathTree.INFINITE)
+            return null;
+
+        return new ShortestPath(graph.getNodeIds(), path(meetForward, meetBackward), (int) best,
+                forward.settledCount + backward.settledCount);
+    }
+
+    // nodes of the forward path to meetForward followed by the backward path from meetBackward
+    private int[] path(int meetForward, int meetBackward) {
+
+        int forwardLength = 1;
+        for (int node = meetForward; node != source; node = forward.predecessors[node])
+            forwardLength++;
+
+        int backwardLength = 1;
+        for (int node = meetBackward; node != target; node = backward.predecessors[node])
+            backwardLength++;
+
+        int[] path = new int[forwardLength + backwardLength];
+
+        int position = forwardLength - 1;
+        for (int node = meetForward; node != source; node = forward.predecessors[node])
+            path[position--] = node;
+        path[0] = source;
+
+        position = forwardLength;
+        for (int node = meetBackward; node != target; node = backward.predecessors[node])
+            path[position++] = node;
+        path[path.length - 1] = target;
+
+        return path;
+    }
+
+    // twice the average of the estimate towards the target and the opposite of the estimate from the source
+    private long potential(int node) {
+
+        if (coordinates == null)
+            return 0;
+
+        return (long) coordinates.estimate(node, target) - coordinates.estimate(node, source);
+    }
+
+    private long forwardKey(int node, int cost) {
+        return (long) keyFactor * cost + potential(node) - potential(source);
+    }
+
+    private long backwardKey(int node, int cost) {
+        return (long) keyFactor * cost - potential(node) + potential(target);
+    }
+
+    // sum of the keys of the two ends of a path of the given cost
+    private long pathKey(long cost) {
+        return keyFactor * cost - potential(source) + potential(target);
+    }
+}
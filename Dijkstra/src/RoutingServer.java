@@ -0,0 +1,162 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Local HTTP endpoint that answers queries on the snapshot of a RoutingService,
+ * the server listens only on the loopback address and every answer is plain text:
+ * - GET /nexthop?from=A&amp;to=B   the next hop from A towards B ("direct" if A = B)
+ * - GET /path?from=A&amp;to=B      the nodes of the shortest path and its cost
+ * - GET /status                  version, size and computation time of the snapshot
+ * - GET /metrics                 counters and phase timers of the process as JSON (see Metrics)
+ * An unknown node or an unreachable destination is answered with 404.
+ * <p>
+ * Every request reads the current snapshot once, so a query is answered
+ * with a consistent version even if a reload completes in the meantime.
+ */
+public class RoutingServer implements AutoCloseable {
+
+    private final RoutingService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public RoutingServer(RoutingService service, int port, int threads) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads));
+
+        server.createContext("/nexthop", exchange -> handle(exchange, this::nextHop));
+        server.createContext("/path", exchange -> handle(exchange, this::path));
+        server.createContext("/status", exchange -> handle(exchange, this::status));
+        server.createContext("/metrics", exchange -> handle(exchange, this::metrics));
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        Log.info("Listening on http://" + server.getAddress().getHostString() + ":" + getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // answer of a query, status is the HTTP status code
+    private static class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private interface Query {
+        Response answer(RoutingSnapshot snapshot, Map<String, String> parameters);
+    }
+
+    private void handle(HttpExchange exchange, Query query) throws IOException {
+
+        Response response;
+        RoutingSnapshot snapshot = service.getSnapshot();
+
+        if (!exchange.getRequestMethod().equals("GET"))
+            response = new Response(405, "only GET is supported");
+        else if (snapshot == null)
+            response = new Response(503, "routing tables not computed yet");
+        else
+            response = query.answer(snapshot, parameters(exchange.getRequestURI().getRawQuery()));
+
+        byte[] body = (response.body + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, body.length);
+
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private Response nextHop(RoutingSnapshot snapshot, Map<String, String> parameters) {
+
+        String from = parameters.get("from");
+        String to = parameters.get("to");
+
+        if (from == null || to == null)
+            return new Response(400, "parameters from and to are required");
+
+        String nextHop = snapshot.getNextHop(from, to);
+
+        if (nextHop == null)
+            return new Response(404, "unknown node or unreachable destination");
+
+        return new Response(200, nextHop.equals(from) ? "direct" : nextHop);
+    }
+
+    private Response path(RoutingSnapshot snapshot, Map<String, String> parameters) {
+
+        String from = parameters.get("from");
+        String to = parameters.get("to");
+
+        if (from == null || to == null)
+            return new Response(400, "parameters from and to are required");
+
+        List<String> path = snapshot.getPath(from, to);
+
+        if (path == null)
+            return new Response(404, "unknown node or unreachable destination");
+
+        return new Response(200, String.join(" ", path) + "\ncost " + snapshot.getPathCost(from, to));
+    }
+
+    private Response status(RoutingSnapshot snapshot, Map<String, String> parameters) {
+
+        return new Response(200, "version " + snapshot.getVersion()
+                + "\nnodes " + snapshot.getGraph().nodeCount()
+                + "\nlinks " + snapshot.getGraph().edgeCount() / 2
+                + "\ncomputed " + new Date(snapshot.getCreatedMillis())
+                + "\ncompute_ms " + snapshot.getComputeNanos() / 1_000_000);
+    }
+
+    private Response metrics(RoutingSnapshot snapshot, Map<String, String> parameters) {
+        return new Response(200, Metrics.summary());
+    }
+
+    private static Map<String, String> parameters(String query) {
+
+        Map<String, String> parameters = new HashMap<>();
+
+        if (query == null)
+            return parameters;
+
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+
+            if (separator > 0)
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+        }
+
+        return parameters;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that keeps the routing tables of a topology file in memory and
+ * computes them again in the background when the file changes.
+ * <p>
+ * The current result is an immutable RoutingSnapshot held in an
+ * AtomicReference: a query reads the reference once and works on that
+ * snapshot, so readers never wait for a computation and never see a
+ * partially computed version. A new snapshot replaces the old one only
+ * once it is complete, if the new topology cannot be read the old
+ * snapshot stays in place.
+ * <p>
+ * The directory of the topology file is watched with a WatchService, the
+ * events received within DEBOUNCE_MILLIS of each other are merged into
+ * a single reload, since editors often write a file in several steps.
+ */
+public class RoutingService implements AutoCloseable {
+
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private final Path topology;
+    private final AtomicReference<RoutingSnapshot> snapshot;
+    private Thread watcher;
+    private WatchService watchService;
+    private volatile boolean running;
+    private long version;
+
+    public RoutingService(String topology) {
+        this.topology = Paths.get(topology).toAbsolutePath();
+        this.snapshot = new AtomicReference<>();
+    }
+
+    // current snapshot, null before the first computation
+    public RoutingSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Read the topology and compute a new snapshot, the current snapshot is
+     * replaced only if the computation succeeds
+     */
+    public synchronized RoutingSnapshot reload() throws IOException {
+
+        CompactGraph graph = TopologyReader.readCompactGraph(topology.toString());
+        RoutingSnapshot next;
+
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.COMPUTE);
+        try {
+            next = RoutingSnapshot.compute(graph, ++version);
+        } finally {
+            timer.stop();
+        }
+
+        snapshot.set(next);
+
+        Log.info("Routing tables version " + next.getVersion() + " computed: " + graph.nodeCount()
+                + " nodes, " + graph.edgeCount() / 2 + " links in "
+                + TimeUnit.NANOSECONDS.toMillis(next.getComputeNanos()) + " ms");
+
+        return next;
+    }
+
+    // compute the first snapshot and start watching the topology file
+    public void start() throws IOException {
+
+        reload();
+
+        watchService = topology.getFileSystem().newWatchService();
+        topology.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+        running = true;
+        watcher = new Thread(this::watch, "topology-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch() {
+
+        while (running) {
+            try {
+                WatchKey key = watchService.take();
+                boolean changed = pollTopologyEvents(key);
+
+                // wait until the file has not been touched for a while
+                while (running) {
+                    key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+
+                    if (key == null)
+                        break;
+
+                    changed |= pollTopologyEvents(key);
+                }
+
+                if (changed && running)
+                    reload();
+
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                Log.error("Error reloading " + topology + ", keeping version "
+                        + snapshot.get().getVersion() + ": " + e);
+            }
+        }
+    }
+
+    // true if one of the events of the key is about the topology file
+    private boolean pollTopologyEvents(WatchKey key) {
+
+        boolean changed = false;
+
+        for (WatchEvent<?> event : key.pollEvents())
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || topology.getFileName().equals(event.context()))
+                changed = true;
+
+        key.reset();
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        running = false;
+
+        if (watchService != null)
+            watchService.close();
+
+        if (watcher != null)
+            watcher.interrupt();
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Immutable result of a computation of all the routing tables of a graph,
+ * used by the RoutingService to answer queries while a new version is being
+ * computed. The next hop and the predecessor of every (router, destination)
+ * pair are stored in two arrays per router, so a next hop is found in O(1)
+ * and a path in O(length of the path) by following the predecessors in the
+ * tree of the router. The next hops of the other routers are not followed:
+ * with links of cost 0 their trees can break the ties differently, and their
+ * next hops can send a packet back and forth.
+ */
+public final class RoutingSnapshot {
+
+    private final CompactGraph graph;
+    private final int[][] nextHops;
+    private final int[][] predecessors;
+    private final long version;
+    private final long createdMillis;
+    private final long computeNanos;
+
+    private RoutingSnapshot(CompactGraph graph, int[][] nextHops, int[][] predecessors, long version,
+                            long computeNanos) {
+        this.graph = graph;
+        this.nextHops = nextHops;
+        this.predecessors = predecessors;
+        this.version = version;
+        this.createdMillis = System.currentTimeMillis();
+        this.computeNanos = computeNanos;
+    }
+
+    // compute the tree of every router, the sources are computed in parallel
+    public static RoutingSnapshot compute(CompactGraph graph, long version) {
+
+        long start = System.nanoTime();
+        int nodeCount = graph.nodeCount();
+        int[][] nextHops = new int[nodeCount][];
+        int[][] predecessors = new int[nodeCount][];
+        ThreadLocal<DijkstraEngine> engines = ThreadLocal.withInitial(() -> new DijkstraEngine(graph));
+
+        IntStream.range(0, nodeCount).parallel().forEach(source -> {
+            ShortestPathTree tree = engines.get().compute(source);
+            nextHops[source] = tree.getNextHops();
+            predecessors[source] = tree.getPredecessors();
+        });
+
+        return new RoutingSnapshot(graph, nextHops, predecessors, version, System.nanoTime() - start);
+    }
+
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public long getComputeNanos() {
+        return computeNanos;
+    }
+
+    // id of the next hop from a router towards a destination, ShortestPathTree.NO_NODE if unreachable
+    public int getNextHop(int router, int destination) {
+        return nextHops[router][destination];
+    }
+
+    // label of the next hop, null if a node is unknown or the destination is unreachable
+    public String getNextHop(String router, String destination) {
+
+        int from = id(router);
+        int to = id(destination);
+
+        if (from == NodeIds.NO_ID || to == NodeIds.NO_ID || nextHops[from][to] == ShortestPathTree.NO_NODE)
+            return null;
+
+        return graph.getLabel(nextHops[from][to]);
+    }
+
+    /**
+     * labels of the nodes on the shortest path from a router to a destination,
+     * both included, null if a node is unknown or the destination is unreachable
+     */
+    public List<String> getPath(String router, String destination) {
+
+        int from = id(router);
+        int to = id(destination);
+
+        if (from == NodeIds.NO_ID || to == NodeIds.NO_ID || nextHops[from][to] == ShortestPathTree.NO_NODE)
+            return null;
+
+        // from the destination back to the router in the tree of the router
+        List<String> path = new ArrayList<>();
+        int[] routerPredecessors = predecessors[from];
+
+        for (int node = to; node != from; node = routerPredecessors[node])
+            path.add(graph.getLabel(node));
+
+        path.add(graph.getLabel(from));
+        Collections.reverse(path);
+
+        return path;
+    }
+
+    // cost of the shortest path, ShortestPathTree.INFINITE if a node is unknown or unreachable
+    public int getPathCost(String router, String destination) {
+
+        int from = id(router);
+        int to = id(destination);
+
+        if (from == NodeIds.NO_ID || to == NodeIds.NO_ID || nextHops[from][to] == ShortestPathTree.NO_NODE)
+            return ShortestPathTree.INFINITE;
+
+        int cost = 0;
+        int[] routerPredecessors = predecessors[from];
+
+        for (int node = to; node != from; node = routerPredecessors[node])
+            cost += edgeCost(routerPredecessors[node], node);
+
+        return cost;
+    }
+
+    private int edgeCost(int node, int neighbour) {
+
+        for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++)
+            if (graph.getTarget(e) == neighbour)
+                return graph.getCost(e);
+
+        return ShortestPathTree.INFINITE;
+    }
+
+    // id of a label in the graph, the ids added after the graph was built are not part of it
+    private int id(String label) {
+
+        int node = graph.getNodeIds().getId(label);
+
+        return node < graph.nodeCount() ? node : NodeIds.NO_ID;
+    }
+}
@@ -1,5 +1,4 @@
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Author: Samuel Dalvai
@@ -7,68 +6,258 @@ import java.util.List;
  * Class that represents a routing table as a table
  * containing the name of the router and the list
  * of destination nodes with the next hop
+ * <p>
+ * The router, the destinations and the next hops are stored as the int ids
+ * of the nodes, the labels are taken from the NodeIds only for the output
+ * <p>
+ * A table computed with all the equal-cost paths (see fromMultipath) also
+ * stores the set of next hops of every destination, the next hops of
+ * destination i are nextHopSets[nextHopStarts[i] .. nextHopStarts[i + 1] - 1],
+ * and the number of shortest paths towards it. The single next hop of such a
+ * destination is the first of its set.
  */
 public class RoutingTable implements Comparable<Object> {
 
-    private final char router;
-    private final List<Character> destination;
-    private final List<Character> nextHop;
+    private final NodeIds nodeIds;
+    private final int router;
+    private final int[] destination;
+    private final int[] nextHop;
+    // equal-cost next hops and number of paths, null if the table has a single next hop per destination
+    private final int[] nextHopStarts;
+    private final int[] nextHopSets;
+    private final long[] pathCounts;
+
+    public RoutingTable(NodeIds nodeIds, int router, int[] destination, int[] nextHop) {
+        this(nodeIds, router, destination, nextHop, null, null, null);
+    }
 
-    public RoutingTable(char router, List<Character> destination, List<Character> nextHop) {
+    private RoutingTable(NodeIds nodeIds, int router, int[] destination, int[] nextHop,
+                         int[] nextHopStarts, int[] nextHopSets, long[] pathCounts) {
+        this.nodeIds = nodeIds;
         this.router = router;
         this.destination = destination;
         this.nextHop = nextHop;
+        this.nextHopStarts = nextHopStarts;
+        this.nextHopSets = nextHopSets;
+        this.pathCounts = pathCounts;
     }
 
-    public char getRouter() {
+    /**
+     * create the routing table of a router from the next hop of every node,
+     * the destinations are added in the order given by nodesByLabel and
+     * nodes without a next hop (unreachable) are left out of the table
+     */
+    public static RoutingTable fromNextHops(CompactGraph graph, int router, int[] nextHops, int[] nodesByLabel) {
+
+        int[] destination = new int[nodesByLabel.length];
+        int[] nextHop = new int[nodesByLabel.length];
+        int size = 0;
+
+        for (int node : nodesByLabel)
+            if (nextHops[node] != ShortestPathTree.NO_NODE) {
+                destination[size] = node;
+                nextHop[size] = nextHops[node];
+                size++;
+            }
+
+        if (size < nodesByLabel.length) {
+            destination = Arrays.copyOf(destination, size);
+            nextHop = Arrays.copyOf(nextHop, size);
+        }
+
+        return new RoutingTable(graph.getNodeIds(), router, destination, nextHop);
+    }
+
+    /**
+     * create the routing table of a router with all the equal-cost next hops
+     * of every reachable node, in the order given by nodesByLabel
+     */
+    public static RoutingTable fromMultipath(CompactGraph graph, MultipathTree tree, int[] nodesByLabel) {
+
+        int size = 0;
+        int setsSize = 0;
+
+        for (int node : nodesByLabel)
+            if (tree.isReachable(node)) {
+                size++;
+                setsSize += tree.getNextHopCount(node);
+            }
+
+        int[] destination = new int[size];
+        int[] nextHop = new int[size];
+        int[] nextHopStarts = new int[size + 1];
+        int[] nextHopSets = new int[setsSize];
+        long[] pathCounts = new long[size];
+        int i = 0;
+
+        for (int node : nodesByLabel)
+            if (tree.isReachable(node)) {
+                destination[i] = node;
+                nextHopStarts[i + 1] = nextHopStarts[i] + tree.getNextHops(node, nextHopSets, nextHopStarts[i]);
+                nextHop[i] = nextHopSets[nextHopStarts[i]];
+                pathCounts[i] = tree.getPathCount(node);
+                i++;
+            }
+
+        return new RoutingTable(graph.getNodeIds(), tree.getSource(), destination, nextHop,
+                nextHopStarts, nextHopSets, pathCounts);
+    }
+
+    public String getRouter() {
+        return nodeIds.getLabel(router);
+    }
+
+    public int getRouterId() {
         return router;
     }
 
+    // number of destinations in the table
+    public int size() {
+        return destination.length;
+    }
+
+    // id of the i-th destination
+    public int getDestination(int i) {
+        return destination[i];
+    }
+
+    // id of the next hop towards the i-th destination
+    public int getNextHop(int i) {
+        return nextHop[i];
+    }
+
+    // true if the table has the equal-cost next hops and the number of paths of every destination
+    public boolean isMultipath() {
+        return nextHopSets != null;
+    }
+
+    // number of equal-cost next hops towards the i-th destination
+    public int getNextHopCount(int i) {
+        return isMultipath() ? nextHopStarts[i + 1] - nextHopStarts[i] : 1;
+    }
+
+    // id of the k-th equal-cost next hop towards the i-th destination
+    public int getNextHop(int i, int k) {
+        return isMultipath() ? nextHopSets[nextHopStarts[i] + k] : nextHop[i];
+    }
+
+    // number of shortest paths towards the i-th destination, 1 if the table is not multipath
+    public long getPathCount(int i) {
+        return isMultipath() ? pathCounts[i] : 1;
+    }
+
     // sort the routing table in case the name of the nodes
     // is not ordered (for readability)
     public void sort() {
 
-        for (int i = 0; i < destination.size() - 1; i++)
-            for (int j = i + 1; j < destination.size(); j++)
-                if (destination.get(i) > destination.get(j)) {
-                    Collections.swap(destination, i, j);
-                    Collections.swap(nextHop, i, j);
-                }
+        Integer[] order = new Integer[destination.length];
+
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+
+        Arrays.sort(order, (i, j) -> NodeIds.compareLabels(nodeIds.getLabel(destination[i]),
+                nodeIds.getLabel(destination[j])));
+
+        int[] sortedDestination = new int[order.length];
+        int[] sortedNextHop = new int[order.length];
+
+        for (int i = 0; i < order.length; i++) {
+            sortedDestination[i] = destination[order[i]];
+            sortedNextHop[i] = nextHop[order[i]];
+        }
+
+        System.arraycopy(sortedDestination, 0, destination, 0, order.length);
+        System.arraycopy(sortedNextHop, 0, nextHop, 0, order.length);
+
+        if (isMultipath()) {
+            int[] sortedSets = new int[nextHopSets.length];
+            int[] sortedStarts = new int[nextHopStarts.length];
+            long[] sortedCounts = new long[order.length];
+
+            for (int i = 0; i < order.length; i++) {
+                int count = getNextHopCount(order[i]);
+                System.arraycopy(nextHopSets, nextHopStarts[order[i]], sortedSets, sortedStarts[i], count);
+                sortedStarts[i + 1] = sortedStarts[i] + count;
+                sortedCounts[i] = pathCounts[order[i]];
+            }
+
+            System.arraycopy(sortedSets, 0, nextHopSets, 0, sortedSets.length);
+            System.arraycopy(sortedStarts, 0, nextHopStarts, 0, sortedStarts.length);
+            System.arraycopy(sortedCounts, 0, pathCounts, 0, sortedCounts.length);
+        }
     }
 
     @Override
     public String toString() {
-        StringBuilder output = new StringBuilder("Router " + router + ":\n" +
+        if (isMultipath())
+            return toStringMultipath();
+
+        StringBuilder output = new StringBuilder("Router " + getRouter() + ":\n" +
                 "Dest, Next hop\n");
 
-        for (int i = 0; i < destination.size(); i++) {
-            output.append(destination.get(i)).append("     ");
-            if (nextHop.get(i) == router)
+        for (int i = 0; i < destination.length; i++) {
+            output.append(nodeIds.getLabel(destination[i])).append("     ");
+            if (nextHop[i] == router)
                 output.append("direct\n");
             else
-                output.append(nextHop.get(i)).append("\n");
+                output.append(nodeIds.getLabel(nextHop[i])).append("\n");
         }
 
         return output.toString();
     }
 
-    // method used to format output for printing to a file
+    private String toStringMultipath() {
+        StringBuilder output = new StringBuilder("Router " + getRouter() + ":\n" +
+                "Dest, Next hops, Paths\n");
+
+        for (int i = 0; i < destination.length; i++)
+            output.append(nodeIds.getLabel(destination[i])).append("     ")
+                    .append(nextHopsLabel(i)).append("     ").append(pathCounts[i]).append("\n");
+
+        return output.toString();
+    }
+
+    /**
+     * method used to format output for printing to a file, a multipath table
+     * has the next hops separated by commas followed by the number of paths
+     * (e.g. "D B,C 2")
+     */
     public String toFile() {
         StringBuilder output = new StringBuilder();
 
-        for (int i = 0; i < destination.size(); i++) {
-            output.append(destination.get(i)).append(" ");
-            if (nextHop.get(i) == router)
+        for (int i = 0; i < destination.length; i++) {
+            output.append(nodeIds.getLabel(destination[i])).append(" ");
+
+            if (isMultipath())
+                output.append(nextHopsLabel(i)).append(" ").append(pathCounts[i]).append("\n");
+            else if (nextHop[i] == router)
                 output.append("direct\n");
             else
-                output.append(nextHop.get(i)).append("\n");
+                output.append(nodeIds.getLabel(nextHop[i])).append("\n");
         }
         return output.toString();
     }
 
+    // labels of the next hops of the i-th destination separated by commas, "direct" for the router
+    private String nextHopsLabel(int i) {
+        if (nextHop[i] == router)
+            return "direct";
+
+        StringBuilder labels = new StringBuilder();
+
+        for (int k = 0; k < getNextHopCount(i); k++) {
+            if (k > 0)
+                labels.append(',');
+
+            labels.append(nodeIds.getLabel(getNextHop(i, k)));
+        }
+
+        return labels.toString();
+    }
+
     @Override
     public int compareTo(Object o) {
-        return Character.compare(this.router, ((RoutingTable) o).router);
+        return NodeIds.compareLabels(getRouter(), ((RoutingTable) o).getRouter());
 
     }
 }
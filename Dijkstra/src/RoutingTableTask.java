@@ -0,0 +1,104 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Fork-join task that computes the routing tables of a range of source
+ * nodes of a CompactGraph. The range is split in half until it is small
+ * enough, then every source is computed with the DijkstraEngine of the
+ * current worker thread.
+ * <p>
+ * The graph is immutable and every engine (heap and scratch buffers) is
+ * local to one thread, the table of source i is written in slot i of a
+ * shared array, so the tasks never need to lock: the results are visible
+ * to the caller once the root task has been joined.
+ */
+public class RoutingTableTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    // number of leaf tasks per worker thread, to balance uneven sources
+    private static final int TASKS_PER_THREAD = 8;
+
+    private final CompactGraph graph;
+    private final ThreadLocal<DijkstraEngine> engines;
+    private final int[] nodesByLabel;
+    private final RoutingTable[] tables;
+    private final int from;
+    private final int to;
+    private final int threshold;
+    // keep all the equal-cost next hops (see DijkstraEngine.computeMultipath)
+    private final boolean multipath;
+
+    private RoutingTableTask(CompactGraph graph, ThreadLocal<DijkstraEngine> engines, int[] nodesByLabel,
+                             RoutingTable[] tables, int from, int to, int threshold, boolean multipath) {
+        this.graph = graph;
+        this.engines = engines;
+        this.nodesByLabel = nodesByLabel;
+        this.tables = tables;
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+        this.multipath = multipath;
+    }
+
+    /**
+     * compute the routing table of every node in the given pool,
+     * the tables are returned sorted by router label
+     */
+    public static List<RoutingTable> computeAll(CompactGraph graph, ForkJoinPool pool) {
+        return computeAll(graph, pool, false);
+    }
+
+    /**
+     * compute the routing table of every node in the given pool, with all
+     * the equal-cost next hops if multipath is true, the tables are
+     * returned sorted by router label
+     */
+    public static List<RoutingTable> computeAll(CompactGraph graph, ForkJoinPool pool, boolean multipath) {
+
+        int nodeCount = graph.nodeCount();
+        int[] nodesByLabel = graph.getNodesByLabel();
+        RoutingTable[] tables = new RoutingTable[nodeCount];
+        ThreadLocal<DijkstraEngine> engines = ThreadLocal.withInitial(() -> new DijkstraEngine(graph));
+        int threshold = Math.max(1, nodeCount / (pool.getParallelism() * TASKS_PER_THREAD));
+
+        pool.invoke(new RoutingTableTask(graph, engines, nodesByLabel, tables, 0, nodeCount, threshold, multipath));
+
+        RoutingTable[] sortedTables = new RoutingTable[nodeCount];
+
+        for (int i = 0; i < nodeCount; i++)
+            sortedTables[i] = tables[nodesByLabel[i]];
+
+        return Arrays.asList(sortedTables);
+    }
+
+    @Override
+    protected void compute() {
+
+        if (to - from > threshold) {
+            int middle = (from + to) >>> 1;
+            invokeAll(new RoutingTableTask(graph, engines, nodesByLabel, tables, from, middle, threshold, multipath),
+                    new RoutingTableTask(graph, engines, nodesByLabel, tables, middle, to, threshold, multipath));
+            return;
+        }
+
+        DijkstraEngine engine = engines.get();
+
+        if (multipath) {
+            for (int source = from; source < to; source++)
+                tables[source] = RoutingTable.fromMultipath(graph, engine.computeMultipath(source), nodesByLabel);
+            return;
+        }
+
+        int[] nextHops = new int[graph.nodeCount()];
+
+        for (int source = from; source < to; source++) {
+            engine.computeNextHops(source, nextHops);
+            tables[source] = RoutingTable.fromNextHops(graph, source, nextHops, nodesByLabel);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that writes the routing tables to the output, either as one text file
+ * per router (the format of RoutingTable.toFile) or packed in a single indexed
+ * binary file.
+ * <p>
+ * The labels are encoded to UTF-8 once and every worker renders its tables
+ * directly into its own reusable byte buffer, so no String is created per table.
+ * The text files are written by a fixed number of workers that take the next
+ * table to write from a shared counter.
+ * <p>
+ * Format of the binary file, all the values are big endian:
+ * MAGIC (4 bytes), VERSION (int), number of nodes (int),
+ * for every node: length of the label (int), label in UTF-8,
+ * number of tables (int), for every table: router (int), offset of the
+ * entries from the start of the file (long), number of entries (int),
+ * then the entries of every table: destination (int), next hop (int).
+ * The routers, destinations and next hops are the ids of the nodes, a
+ * multipath table stores only the first of the equal-cost next hops.
+ */
+public class RoutingTableWriter {
+
+    static final byte[] MAGIC = {0x7F, 'R', 'T', 'B'};
+    static final int VERSION = 1;
+
+    private static final int INITIAL_BUFFER = 1 << 12;
+    private static final int BINARY_BUFFER = 1 << 20;
+    private static final byte[] DIRECT = "direct".getBytes(StandardCharsets.UTF_8);
+
+    private final NodeIds nodeIds;
+    private final int threads;
+    private byte[][] labels;
+
+    public RoutingTableWriter(NodeIds nodeIds, int threads) {
+        this.nodeIds = nodeIds;
+        this.threads = Math.max(1, threads);
+    }
+
+    // write every table to the file directory/<router>.txt
+    public void writeFiles(List<RoutingTable> tables, File directory) throws IOException {
+
+        if (!directory.exists() && !directory.mkdirs())
+            throw new IOException("Error in creating the directory for the files...");
+
+        encodeLabels();
+
+        int workers = Math.min(threads, Math.max(1, tables.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        AtomicInteger next = new AtomicInteger();
+        List<Future<Void>> results = new ArrayList<>(workers);
+
+        for (int i = 0; i < workers; i++)
+            results.add(executor.submit(() -> {
+                Buffer buffer = new Buffer();
+
+                for (int t = next.getAndIncrement(); t < tables.size(); t = next.getAndIncrement()) {
+                    RoutingTable table = tables.get(t);
+                    render(table, buffer);
+
+                    try (FileOutputStream output = new FileOutputStream(
+                            new File(directory, table.getRouter() + ".txt"))) {
+                        output.write(buffer.bytes, 0, buffer.length);
+                    }
+                }
+
+                return null;
+            }));
+
+        executor.shutdown();
+
+        try {
+            for (Future<Void> result : results)
+                result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the routing tables", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // write all the tables to a single binary file (see the format above)
+    public void writeIndexedFile(List<RoutingTable> tables, File file) throws IOException {
+
+        File directory = file.getAbsoluteFile().getParentFile();
+
+        if (directory != null && !directory.exists() && !directory.mkdirs())
+            throw new IOException("Error in creating the directory for the files...");
+
+        encodeLabels();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer output = ByteBuffer.allocateDirect(BINARY_BUFFER);
+
+            output.put(MAGIC);
+            output.putInt(VERSION);
+            output.putInt(labels.length);
+
+            long offset = MAGIC.length + 8;
+
+            for (byte[] label : labels) {
+                reserve(channel, output, 4 + label.length);
+                output.putInt(label.length);
+                output.put(label);
+                offset += 4 + label.length;
+            }
+
+            reserve(channel, output, 4);
+            output.putInt(tables.size());
+            offset += 4 + 16L * tables.size();
+
+            for (RoutingTable table : tables) {
+                reserve(channel, output, 16);
+                output.putInt(table.getRouterId());
+                output.putLong(offset);
+                output.putInt(table.size());
+                offset += 8L * table.size();
+            }
+
+            for (RoutingTable table : tables)
+                for (int i = 0; i < table.size(); i++) {
+                    reserve(channel, output, 8);
+                    output.putInt(table.getDestination(i));
+                    output.putInt(table.getNextHop(i));
+                }
+
+            // write what is left in the buffer
+            reserve(channel, output, output.capacity());
+        }
+    }
+
+    // write the content of the buffer to the channel if it has less than the given free bytes
+    private static void reserve(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+
+        if (buffer.remaining() >= bytes)
+            return;
+
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+
+        buffer.clear();
+
+        if (bytes > buffer.capacity())
+            throw new IOException("Label too long for the binary output");
+    }
+
+    // render a table in the format of RoutingTable.toFile
+    private void render(RoutingTable table, Buffer buffer) {
+
+        buffer.length = 0;
+        int router = table.getRouterId();
+
+        for (int i = 0; i < table.size(); i++) {
+            buffer.append(labels[table.getDestination(i)]);
+            buffer.append((byte) ' ');
+            buffer.append(table.getNextHop(i) == router ? DIRECT : labels[table.getNextHop(i)]);
+
+            if (table.isMultipath()) {
+                for (int k = 1; k < table.getNextHopCount(i); k++) {
+                    buffer.append((byte) ',');
+                    buffer.append(labels[table.getNextHop(i, k)]);
+                }
+
+                buffer.append((byte) ' ');
+                buffer.append(table.getPathCount(i));
+            }
+
+            buffer.append((byte) '\n');
+        }
+    }
+
+    private void encodeLabels() {
+
+        labels = new byte[nodeIds.size()][];
+
+        for (int node = 0; node < labels.length; node++)
+            labels[node] = nodeIds.getLabel(node).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // growable byte buffer owned by a single worker
+    private static class Buffer {
+        private byte[] bytes = new byte[INITIAL_BUFFER];
+        private int length;
+
+        void append(byte b) {
+            if (length == bytes.length)
+                bytes = Arrays.copyOf(bytes, length * 2);
+
+            bytes[length++] = b;
+        }
+
+        // decimal digits of a non negative number
+        void append(long value) {
+            int start = length;
+
+            do {
+                append((byte) ('0' + value % 10));
+                value /= 10;
+            } while (value > 0);
+
+            // the digits were written from the least significant
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                byte digit = bytes[i];
+                bytes[i] = bytes[j];
+                bytes[j] = digit;
+            }
+        }
+
+        void append(byte[] values) {
+            if (length + values.length > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + values.length));
+
+            System.arraycopy(values, 0, bytes, length, values.length);
+            length += values.length;
+        }
+    }
+}
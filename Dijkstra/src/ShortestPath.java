@@ -0,0 +1,65 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that represents the result of a point-to-point query: the nodes of
+ * a shortest path from the source to the target, both included, and its cost.
+ * The number of nodes settled by the search is kept to compare the work done
+ * with the computation of a full shortest path tree.
+ */
+public class ShortestPath {
+
+    private final NodeIds nodeIds;
+    private final int[] nodes;
+    private final int cost;
+    private final int settledCount;
+
+    public ShortestPath(NodeIds nodeIds, int[] nodes, int cost, int settledCount) {
+        this.nodeIds = nodeIds;
+        this.nodes = nodes;
+        this.cost = cost;
+        this.settledCount = settledCount;
+    }
+
+    public int getSource() {
+        return nodes[0];
+    }
+
+    public int getTarget() {
+        return nodes[nodes.length - 1];
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    // number of links of the path
+    public int getHopCount() {
+        return nodes.length - 1;
+    }
+
+    public int[] getNodes() {
+        return nodes;
+    }
+
+    public List<String> getLabels() {
+        List<String> labels = new ArrayList<>(nodes.length);
+
+        for (int node : nodes)
+            labels.add(nodeIds.getLabel(node));
+
+        return labels;
+    }
+
+    // nodes settled by the forward and the backward search together
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(" ", getLabels());
+    }
+}
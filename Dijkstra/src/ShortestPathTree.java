@@ -0,0 +1,91 @@
+import java.util.Arrays;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that represents the result of the Dijkstra algorithm for one source
+ * node as two arrays indexed by node: the cost of the shortest path from the
+ * source and the predecessor of the node on that path.
+ * <p>
+ * Nodes that cannot be reached have an "infinite" cost (Integer.MAX_VALUE)
+ * and no predecessor (-1), the source node is its own predecessor.
+ * The nodes are also stored in the order in which they were settled, which
+ * is a topological order of the tree (every node comes after its predecessor).
+ */
+public class ShortestPathTree {
+
+    public static final int INFINITE = Integer.MAX_VALUE;
+    public static final int NO_NODE = -1;
+
+    private final int source;
+    private final int[] costs;
+    private final int[] predecessors;
+    private final int[] settleOrder;
+    private final int settledCount;
+
+    public ShortestPathTree(int source, int[] costs, int[] predecessors, int[] settleOrder, int settledCount) {
+        this.source = source;
+        this.costs = costs;
+        this.predecessors = predecessors;
+        this.settleOrder = settleOrder;
+        this.settledCount = settledCount;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public int nodeCount() {
+        return costs.length;
+    }
+
+    public int getCost(int node) {
+        return costs[node];
+    }
+
+    public int getPredecessor(int node) {
+        return predecessors[node];
+    }
+
+    public boolean isReachable(int node) {
+        return costs[node] != INFINITE;
+    }
+
+    public int[] getCosts() {
+        return costs;
+    }
+
+    public int[] getPredecessors() {
+        return predecessors;
+    }
+
+    /**
+     * compute for every node the next hop from the source node, i.e. the first
+     * node after the source on the shortest path. The next hop of the source
+     * is the source itself, unreachable nodes have no next hop
+     */
+    public int[] getNextHops() {
+
+        int[] nextHops = new int[costs.length];
+        fillNextHops(source, predecessors, settleOrder, settledCount, nextHops);
+
+        return nextHops;
+    }
+
+    // since the settle order lists a predecessor before its successors
+    // a single pass is enough
+    static void fillNextHops(int source, int[] predecessors, int[] settleOrder, int settledCount, int[] nextHops) {
+
+        Arrays.fill(nextHops, NO_NODE);
+
+        for (int i = 0; i < settledCount; i++) {
+            int node = settleOrder[i];
+            int predecessor = predecessors[node];
+
+            if (node == source || predecessor == source)
+                nextHops[node] = node;
+            else
+                nextHops[node] = nextHops[predecessor];
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that collects the result of a FailureSweep: the impact of every
+ * scenario in the order they were enumerated (the single links, the single
+ * nodes, then the pairs), and a summary with the worst scenarios, those that
+ * lose the most pairs and then those with the highest stretch.
+ * <p>
+ * The scenarios can be written to a CSV file, one line per scenario:
+ * failure,lost_pairs,stretched_pairs,max_stretch,mean_stretch,changed_tables
+ */
+public class SweepReport {
+
+    // scenarios listed in the summary
+    private static final int WORST_SCENARIOS = 10;
+
+    private final List<FailureScenario> scenarios;
+    private final int nodeCount;
+    private final int linkCount;
+    private final long basePairs;
+    private final boolean pairs;
+    private final long elapsedMillis;
+
+    public SweepReport(List<FailureScenario> scenarios, int nodeCount, int linkCount, long basePairs, boolean pairs,
+                       long elapsedMillis) {
+        this.scenarios = scenarios;
+        this.nodeCount = nodeCount;
+        this.linkCount = linkCount;
+        this.basePairs = basePairs;
+        this.pairs = pairs;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<FailureScenario> getScenarios() {
+        return scenarios;
+    }
+
+    // number of (router, destination) pairs reachable without failures
+    public long getBasePairs() {
+        return basePairs;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    // the scenarios that lose the most pairs, then those with the highest stretch
+    public List<FailureScenario> getWorstScenarios(int count) {
+
+        List<FailureScenario> worst = new ArrayList<>();
+
+        for (FailureScenario scenario : scenarios)
+            if (scenario.hasImpact())
+                worst.add(scenario);
+
+        worst.sort(Comparator.comparingLong(FailureScenario::getLostPairs)
+                .thenComparingDouble(FailureScenario::getMaxStretch)
+                .thenComparingLong(FailureScenario::getStretchedPairs).reversed());
+
+        return worst.subList(0, Math.min(count, worst.size()));
+    }
+
+    // write one line per scenario to a CSV file
+    public void write(File file) throws IOException {
+
+        if (file.getParentFile() != null && !file.getParentFile().exists() && !file.getParentFile().mkdirs())
+            throw new IOException("Error in creating the directory for the files...");
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("failure,lost_pairs,stretched_pairs,max_stretch,mean_stretch,changed_tables\n");
+
+            for (FailureScenario scenario : scenarios)
+                writer.write(scenario.getDescription() + "," + scenario.getLostPairs() + ","
+                        + scenario.getStretchedPairs() + "," + FailureScenario.format(scenario.getMaxStretch()) + ","
+                        + FailureScenario.format(scenario.getMeanStretch()) + "," + scenario.getChangedTables() + "\n");
+        }
+    }
+
+    @Override
+    public String toString() {
+
+        int disconnecting = 0;
+        int stretching = 0;
+
+        for (FailureScenario scenario : scenarios) {
+            if (scenario.getLostPairs() > 0)
+                disconnecting++;
+            else if (scenario.getStretchedPairs() > 0)
+                stretching++;
+        }
+
+        StringBuilder report = new StringBuilder("Failure sweep report:\n")
+                .append("Network:            ").append(nodeCount).append(" nodes, ").append(linkCount).append(" links\n")
+                .append("Scenarios:          ").append(scenarios.size()).append(pairs ? " (N-1 and N-2)" : " (N-1)").append("\n")
+                .append("Reachable pairs:    ").append(basePairs).append("\n")
+                .append("Losing pairs:       ").append(disconnecting).append(" scenarios\n")
+                .append("Only stretching:    ").append(stretching).append(" scenarios\n")
+                .append("Elapsed time (ms):  ").append(elapsedMillis).append("\n");
+
+        List<FailureScenario> worst = getWorstScenarios(WORST_SCENARIOS);
+
+        if (!worst.isEmpty()) {
+            report.append("Worst scenarios:\n");
+
+            for (FailureScenario scenario : worst)
+                report.append("  ").append(scenario).append("\n");
+        }
+
+        return report.toString();
+    }
+}
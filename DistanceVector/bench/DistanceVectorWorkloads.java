@@ -0,0 +1,107 @@
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Operations of the Distance Vector module measured by the JMH benchmarks in
+ * bench/benchmark, on a synthetic topology (see TopologyGenerator):
+ * - graph: construction of a Graph from Connection objects
+ * - simulate: convergence of the discrete event simulation (DVSimulator)
+ * - concurrent: convergence of the actors (ConcurrentDVCalculator) on all the processors
+ * - failure, failureIncremental: convergence of the simulation when FAILED_LINKS links
+ *   fail once the network converged, with complete vectors or with poison reverse
+ *   and incremental updates
+ * - solve, solveParallel: the converged tables computed by BellmanFordSolver without
+ *   messages, sequential or on all the processors
+ * <p>
+ * The operations that throw a checked exception rethrow it in an IllegalStateException.
+ */
+public class DistanceVectorWorkloads implements Function<String, Supplier<Object>> {
+
+    private static final int FAILED_LINKS = 3;
+    private static final long FAILURE_TIME = 1000;
+
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    private final TopologyGenerator.Edges edges;
+    private final String[] labels;
+    private final Graph graph;
+
+    public DistanceVectorWorkloads(String topology, int nodes, int degree) throws Exception {
+        edges = TopologyGenerator.generate(topology, nodes, degree, 1);
+        labels = new String[nodes];
+
+        for (int i = 0; i < nodes; i++)
+            labels[i] = String.valueOf(i);
+
+        graph = build();
+    }
+
+    @Override
+    public Supplier<Object> apply(String benchmark) {
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        switch (benchmark) {
+            case "graph":
+                return unchecked(this::build);
+            case "simulate":
+                return unchecked(() -> new DVSimulator(graph).run());
+            case "failure":
+                return unchecked(() -> simulateFailures(false));
+            case "failureIncremental":
+                return unchecked(() -> simulateFailures(true));
+            case "concurrent":
+                return unchecked(() -> {
+                    ConcurrentDVCalculator calculator = new ConcurrentDVCalculator(graph, threads);
+
+                    calculator.run();
+                    return calculator;
+                });
+            case "solve":
+                return () -> BellmanFordSolver.solve(graph);
+            case "solveParallel":
+                return () -> BellmanFordSolver.solveParallel(graph, threads);
+            default:
+                throw new IllegalArgumentException("Unknown benchmark " + benchmark);
+        }
+    }
+
+    private static Supplier<Object> unchecked(Operation operation) {
+        return () -> {
+            try {
+                return operation.run();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private Graph build() throws Exception {
+        Graph graph = new Graph();
+
+        for (int i = 0; i < edges.size; i++)
+            graph.addConnection(new Connection(labels[edges.from[i]], labels[edges.to[i]], edges.cost[i]));
+
+        return graph;
+    }
+
+    // fail some links spread over the edge list
+    private SimulationReport simulateFailures(boolean incremental) throws Exception {
+        DVSimulator simulator = new DVSimulator(graph);
+
+        if (incremental) {
+            simulator.setSplitHorizon(RoutingTable.SplitHorizon.POISON_REVERSE);
+            simulator.setIncrementalUpdates(true);
+        }
+
+        for (int i = 0; i < FAILED_LINKS; i++) {
+            int edge = (int) ((long) edges.size * i / FAILED_LINKS);
+            simulator.setLinkFailure(labels[edges.from[edge]], labels[edges.to[edge]], FAILURE_TIME);
+        }
+
+        return simulator.run();
+    }
+}
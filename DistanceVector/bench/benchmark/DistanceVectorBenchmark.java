@@ -0,0 +1,98 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * JMH benchmarks of the Distance Vector module, the operations are described in
+ * DistanceVectorWorkloads; the time of one operation is reported in milliseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceVectorBenchmark {
+
+    @Param({"ring", "grid", "er", "ba"})
+    public String topology;
+
+    @Param({"100", "500"})
+    public int nodes;
+
+    @Param({"4"})
+    public int degree;
+
+    private Supplier<Object> graph;
+    private Supplier<Object> simulate;
+    private Supplier<Object> concurrent;
+    private Supplier<Object> failure;
+    private Supplier<Object> failureIncremental;
+    private Supplier<Object> solve;
+    private Supplier<Object> solveParallel;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        Function<String, Supplier<Object>> workloads = Workloads.load("DistanceVectorWorkloads", topology, nodes,
+                degree);
+
+        graph = workloads.apply("graph");
+        simulate = workloads.apply("simulate");
+        concurrent = workloads.apply("concurrent");
+        failure = workloads.apply("failure");
+        failureIncremental = workloads.apply("failureIncremental");
+        solve = workloads.apply("solve");
+        solveParallel = workloads.apply("solveParallel");
+    }
+
+    @Benchmark
+    public Object graph() {
+        return graph.get();
+    }
+
+    @Benchmark
+    public Object simulate() {
+        return simulate.get();
+    }
+
+    @Benchmark
+    public Object concurrent() {
+        return concurrent.get();
+    }
+
+    @Benchmark
+    public Object failure() {
+        return failure.get();
+    }
+
+    @Benchmark
+    public Object failureIncremental() {
+        return failureIncremental.get();
+    }
+
+    @Benchmark
+    public Object solve() {
+        return solve.get();
+    }
+
+    @Benchmark
+    public Object solveParallel() {
+        return solveParallel.get();
+    }
+}
@@ -0,0 +1,299 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that computes the routing tables the Distance Vector algorithm
+ * converges to, without exchanging any message: for every destination d the
+ * cost of a router r is the fixed point of
+ * cost(r, d) = min over the neighbours n of r of (cost of the link r-n) + cost(n, d)
+ * and the next hop of r is a neighbour that gives the minimum, which is what
+ * the Bellman-Ford algorithm computes starting from cost(d, d) = 0. The links
+ * have the same cost in both directions, so the costs towards d are the costs
+ * from d.
+ * <p>
+ * - solve: queue-based Bellman-Ford (SPFA), one destination after the other;
+ *   only the neighbours of the routers whose cost decreased are relaxed again
+ * - solveParallel: frontier-synchronous Bellman-Ford on a pool of threads,
+ *   for a block of destinations at a time. In every round the routers with a
+ *   neighbour in the frontier (the routers whose cost of a destination of the
+ *   block changed in the previous round) are relaxed in parallel: a router
+ *   reads the costs of its neighbours as they were at the start of the round
+ *   and writes only its own costs, so no lock is needed. Round k is the
+ *   synchronous round k of Distance Vector where only the routers whose
+ *   table changed send their vector.
+ * <p>
+ * The costs are the ones every ordering of the messages converges to. When
+ * several neighbours give the same cost, the next hop is the one found first
+ * (the result of solveParallel does not depend on the number of threads),
+ * which can differ from the one chosen by a given ordering of the messages.
+ * The unreachable destinations are left out of the tables.
+ */
+public final class BellmanFordSolver {
+
+    private static final int INFINITE = Integer.MAX_VALUE;
+    // destinations solved together by solveParallel
+    private static final int BLOCK_SIZE = 64;
+    // number of leaf tasks per worker thread, to balance uneven routers
+    private static final int TASKS_PER_THREAD = 8;
+    // routers relaxed by a leaf task at least, a small frontier is not split
+    private static final int MIN_TASK_SIZE = 32;
+
+    private BellmanFordSolver() {
+    }
+
+    // routing tables of all the routers, indexed by id
+    public static RoutingTable[] solve(Graph graph) {
+
+        int nodeCount = graph.getNodesCount();
+        RoutingTable[] tables = emptyTables(graph);
+        int[] costs = new int[nodeCount];
+        int[] nextHops = new int[nodeCount];
+        // circular queue, a router is at most once in it
+        int[] queue = new int[Math.max(1, nodeCount)];
+        boolean[] queued = new boolean[nodeCount];
+        long relaxations = 0;
+
+        for (int destination = 0; destination < nodeCount; destination++) {
+            Arrays.fill(costs, INFINITE);
+            costs[destination] = 0;
+            nextHops[destination] = destination;
+
+            int head = 0;
+            int count = 1;
+            queue[0] = destination;
+            queued[destination] = true;
+
+            while (count > 0) {
+                int node = queue[head];
+                head = (head + 1) % queue.length;
+                count--;
+                queued[node] = false;
+                relaxations += graph.getDegree(node);
+
+                for (int i = 0; i < graph.getDegree(node); i++) {
+                    int neighbour = graph.getNeighbour(node, i);
+                    int cost = costs[node] + graph.getNeighbourCost(node, i);
+
+                    // a negative value means that the sum overflowed
+                    if (cost < 0 || cost >= costs[neighbour])
+                        continue;
+
+                    costs[neighbour] = cost;
+                    nextHops[neighbour] = node;
+
+                    if (!queued[neighbour]) {
+                        queue[(head + count) % queue.length] = neighbour;
+                        count++;
+                        queued[neighbour] = true;
+                    }
+                }
+            }
+
+            for (int router = 0; router < nodeCount; router++)
+                if (costs[router] != INFINITE)
+                    tables[router].addRoutingEntry(destination, nextHops[router], costs[router]);
+        }
+
+        Metrics.add(Metrics.Counter.EDGE_RELAXATIONS, relaxations);
+        return tables;
+    }
+
+    // routing tables of all the routers computed on the given number of threads, indexed by id
+    public static RoutingTable[] solveParallel(Graph graph, int threads) {
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+
+        try {
+            return new ParallelSolver(graph, pool).solve();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static RoutingTable[] emptyTables(Graph graph) {
+        RoutingTable[] tables = new RoutingTable[graph.getNodesCount()];
+
+        for (int router = 0; router < tables.length; router++)
+            tables[router] = new RoutingTable(graph.getNodeIds(), router);
+
+        return tables;
+    }
+
+    // state of solveParallel for the current block, cost of router r for destination first + j at r * BLOCK_SIZE + j
+    private static class ParallelSolver {
+
+        private final Graph graph;
+        private final ForkJoinPool pool;
+        private final int nodeCount;
+        private final RoutingTable[] tables;
+        private final int[] costs;
+        // costs at the start of the round, the rows of the frontier are copied from costs
+        private final int[] roundCosts;
+        private final int[] nextHops;
+        private final boolean[] inFrontier;
+        private final boolean[] changed;
+        private final int[] frontier;
+        private int frontierSize;
+        // routers to relax in the round, activeStamps[r] == round if r is already in active
+        private final int[] active;
+        private final int[] activeStamps;
+        private int activeSize;
+        private int round;
+        private int first;
+        private int blockSize;
+
+        ParallelSolver(Graph graph, ForkJoinPool pool) {
+            this.graph = graph;
+            this.pool = pool;
+            this.nodeCount = graph.getNodesCount();
+            this.tables = emptyTables(graph);
+            this.costs = new int[nodeCount * BLOCK_SIZE];
+            this.roundCosts = new int[nodeCount * BLOCK_SIZE];
+            this.nextHops = new int[nodeCount * BLOCK_SIZE];
+            this.inFrontier = new boolean[nodeCount];
+            this.changed = new boolean[nodeCount];
+            this.frontier = new int[nodeCount];
+            this.active = new int[nodeCount];
+            this.activeStamps = new int[nodeCount];
+        }
+
+        RoutingTable[] solve() {
+
+            for (first = 0; first < nodeCount; first += BLOCK_SIZE) {
+                blockSize = Math.min(BLOCK_SIZE, nodeCount - first);
+                Arrays.fill(costs, INFINITE);
+                frontierSize = 0;
+
+                // the destinations of the block are the first frontier
+                for (int j = 0; j < blockSize; j++) {
+                    int destination = first + j;
+                    costs[destination * BLOCK_SIZE + j] = 0;
+                    nextHops[destination * BLOCK_SIZE + j] = destination;
+                    frontier[frontierSize++] = destination;
+                }
+
+                while (frontierSize > 0)
+                    nextRound();
+
+                pool.invoke(new RangeTask(0, nodeCount, threshold(nodeCount), this::addEntries));
+            }
+
+            return tables;
+        }
+
+        private void nextRound() {
+            round++;
+            activeSize = 0;
+
+            for (int i = 0; i < frontierSize; i++) {
+                int node = frontier[i];
+                inFrontier[node] = true;
+                System.arraycopy(costs, node * BLOCK_SIZE, roundCosts, node * BLOCK_SIZE, blockSize);
+
+                for (int n = 0; n < graph.getDegree(node); n++) {
+                    int neighbour = graph.getNeighbour(node, n);
+
+                    if (activeStamps[neighbour] != round) {
+                        activeStamps[neighbour] = round;
+                        active[activeSize++] = neighbour;
+                    }
+                }
+            }
+
+            pool.invoke(new RangeTask(0, activeSize, threshold(activeSize), i -> relax(active[i])));
+
+            for (int i = 0; i < frontierSize; i++)
+                inFrontier[frontier[i]] = false;
+
+            frontierSize = 0;
+
+            for (int i = 0; i < activeSize; i++)
+                if (changed[active[i]]) {
+                    changed[active[i]] = false;
+                    frontier[frontierSize++] = active[i];
+                }
+        }
+
+        private int threshold(int size) {
+            return Math.max(MIN_TASK_SIZE, size / (pool.getParallelism() * TASKS_PER_THREAD));
+        }
+
+        // lower the costs of a router with the costs of its neighbours in the frontier
+        private void relax(int router) {
+
+            int row = router * BLOCK_SIZE;
+            boolean routerChanged = false;
+            long relaxations = 0;
+
+            for (int n = 0; n < graph.getDegree(router); n++) {
+                int neighbour = graph.getNeighbour(router, n);
+
+                if (!inFrontier[neighbour])
+                    continue;
+
+                int linkCost = graph.getNeighbourCost(router, n);
+                int neighbourRow = neighbour * BLOCK_SIZE;
+                relaxations += blockSize;
+
+                for (int j = 0; j < blockSize; j++) {
+                    int cost = roundCosts[neighbourRow + j] + linkCost;
+
+                    // a negative value means that the sum overflowed or the neighbour cost is infinite
+                    if (cost < 0 || roundCosts[neighbourRow + j] == INFINITE || cost >= costs[row + j])
+                        continue;
+
+                    costs[row + j] = cost;
+                    nextHops[row + j] = neighbour;
+                    routerChanged = true;
+                }
+            }
+
+            changed[router] = routerChanged;
+            Metrics.add(Metrics.Counter.EDGE_RELAXATIONS, relaxations);
+        }
+
+        private void addEntries(int router) {
+            int row = router * BLOCK_SIZE;
+
+            for (int j = 0; j < blockSize; j++)
+                if (costs[row + j] != INFINITE)
+                    tables[router].addRoutingEntry(first + j, nextHops[row + j], costs[row + j]);
+        }
+    }
+
+    // fork-join task that runs an action for every index of a range, split in half until small enough
+    private static class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final IntConsumer action;
+
+        RangeTask(int from, int to, int threshold, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (to - from > threshold) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, middle, threshold, action),
+                        new RangeTask(middle, to, threshold, action));
+                return;
+            }
+
+            for (int i = from; i < to; i++)
+                action.accept(i);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Concurrent computation of the Distance Vector algorithm: every router is a
+ * RouterActor running on a fixed pool of threads, the routers exchange their
+ * distance vectors through the mailboxes of the actors with no global order.
+ * <p>
+ * Convergence is detected by quiescence: a counter holds the number of vectors
+ * sent but not yet processed, an actor sends its own new vectors before releasing
+ * the vectors it processed, so the counter drops to zero only when no router
+ * has anything left to process or to send.
+ * <p>
+ * The vectors can be sent with split horizon or poison reverse and, after the
+ * first complete vectors, with only the entries that changed (see DVSimulator).
+ */
+public class ConcurrentDVCalculator {
+
+    private final Graph graph;
+    private final int threads;
+    // actor of every router, indexed by id
+    private RouterActor[] actors;
+
+    private final AtomicLong pendingMessages;
+    private final LongAdder messages;
+    private final LongAdder entries;
+    private final LongAdder tableUpdates;
+    private final AtomicReference<Exception> failure;
+    private CountDownLatch quiescent;
+    private ExecutorService executor;
+    private long elapsedNanos;
+    private RoutingTable.SplitHorizon splitHorizon = RoutingTable.SplitHorizon.NONE;
+    private boolean incrementalUpdates;
+
+    public ConcurrentDVCalculator(Graph graph, int threads) {
+        this.graph = graph;
+        this.threads = threads;
+        this.pendingMessages = new AtomicLong();
+        this.messages = new LongAdder();
+        this.entries = new LongAdder();
+        this.tableUpdates = new LongAdder();
+        this.failure = new AtomicReference<>();
+    }
+
+    // how the routes through a neighbour are advertised to it
+    public void setSplitHorizon(RoutingTable.SplitHorizon splitHorizon) {
+        this.splitHorizon = splitHorizon;
+    }
+
+    // send only the changed entries after the first vectors
+    public void setIncrementalUpdates(boolean incrementalUpdates) {
+        this.incrementalUpdates = incrementalUpdates;
+    }
+
+    RoutingTable.SplitHorizon getSplitHorizon() {
+        return splitHorizon;
+    }
+
+    boolean isIncrementalUpdates() {
+        return incrementalUpdates;
+    }
+
+    /**
+     * Create an actor for every router, let every router send its first distance
+     * vector and wait until the system is quiescent
+     */
+    public void run() throws Exception {
+        actors = new RouterActor[graph.getNodesCount()];
+
+        for (int router = 0; router < actors.length; router++)
+            actors[router] = new RouterActor(this, graph, router, RoutingTable.fromGraph(router, graph));
+
+        for (RouterActor actor : actors) {
+            List<RouterActor> neighbours = new ArrayList<>();
+            int router = actor.getRouter();
+
+            for (int i = 0; i < graph.getDegree(router); i++)
+                neighbours.add(actors[graph.getNeighbour(router, i)]);
+
+            actor.setNeighbours(neighbours);
+        }
+
+        executor = Executors.newFixedThreadPool(threads);
+        quiescent = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        try {
+            // the first vectors are taken before any actor starts to modify its table,
+            // they are counted as one pending message released once all have been posted
+            List<RouteAdvertisement[]> firstVectors = new ArrayList<>();
+
+            for (RouterActor actor : actors)
+                firstVectors.add(actor.takeDistanceVectors(true));
+
+            // the actors are held until all the first vectors are posted, otherwise the
+            // first vector of a router could arrive after the next ones and an older
+            // cost would replace a newer one (see RoutingTable.mergeUpdate)
+            for (RouterActor actor : actors)
+                actor.hold();
+
+            pendingMessages.set(1);
+            int index = 0;
+
+            for (RouterActor actor : actors)
+                actor.sendDistanceVectors(firstVectors.get(index++));
+
+            for (RouterActor actor : actors)
+                schedule(actor);
+
+            messagesProcessed(1, 0);
+            quiescent.await();
+        } finally {
+            elapsedNanos = System.nanoTime() - start;
+            executor.shutdown();
+            Metrics.add(Metrics.Counter.MESSAGES, getMessages());
+            Metrics.add(Metrics.Counter.TABLE_UPDATES, getTableUpdates());
+        }
+
+        if (failure.get() != null)
+            throw failure.get();
+    }
+
+    // get the routing tables indexed by router id
+    public RoutingTable[] getRoutingTables() {
+        RoutingTable[] tables = new RoutingTable[actors.length];
+
+        for (int router = 0; router < actors.length; router++)
+            tables[router] = actors[router].getRoutingTable();
+
+        return tables;
+    }
+
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    public long getEntries() {
+        return entries.sum();
+    }
+
+    public long getTableUpdates() {
+        return tableUpdates.sum();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    void schedule(RouterActor actor) {
+        executor.execute(actor);
+    }
+
+    void messagesSent(int count, long entriesSent) {
+        pendingMessages.addAndGet(count);
+        messages.add(count);
+        entries.add(entriesSent);
+    }
+
+    void messagesProcessed(int count, int updated) {
+        tableUpdates.add(updated);
+
+        if (pendingMessages.addAndGet(-count) == 0)
+            quiescent.countDown();
+    }
+
+    void fail(Exception e) {
+        failure.compareAndSet(null, e);
+        quiescent.countDown();
+    }
+
+    @Override
+    public String toString() {
+        return "Concurrent Distance Vector report:\n" +
+                "Threads:            " + threads + "\n" +
+                "Elapsed time (ms):  " + elapsedNanos / 1_000_000 + "\n" +
+                "Messages:           " + getMessages() + "\n" +
+                "Entries sent:       " + getEntries() + "\n" +
+                "Table updates:      " + getTableUpdates() + "\n";
+    }
+}
@@ -7,12 +7,12 @@ import java.util.Objects;
  */
 public class Connection implements Comparable<Object> {
 
-    private final Character nodeA;
-    private final Character nodeB;
+    private final String nodeA;
+    private final String nodeB;
     private final int cost;
 
-    public Connection(Character nodeA, Character nodeB, int cost) throws Exception {
-        if (nodeA == nodeB && cost > 0)
+    public Connection(String nodeA, String nodeB, int cost) throws Exception {
+        if (nodeA.equals(nodeB) && cost > 0)
             throw new Exception("A node cannot be connected to itself with cost greater than 0..");
 
         this.nodeA = nodeA;
@@ -20,11 +20,11 @@ public class Connection implements Comparable<Object> {
         this.cost = cost;
     }
 
-    public Character getNodeA() {
+    public String getNodeA() {
         return nodeA;
     }
 
-    public Character getNodeB() {
+    public String getNodeB() {
         return nodeB;
     }
 
@@ -33,19 +33,19 @@ public class Connection implements Comparable<Object> {
     }
 
     // check if node a has a connection to b or the opposite (undirected edges)
-    public boolean isConnected(Character a, Character b) {
-        return a == nodeA && b == nodeB || a == nodeB && b == nodeA;
+    public boolean isConnected(String a, String b) {
+        return a.equals(nodeA) && b.equals(nodeB) || a.equals(nodeB) && b.equals(nodeA);
     }
 
     // check if node a appears in this connection
-    public boolean isConnected(Character a) {
-        return a == nodeA || a == nodeB;
+    public boolean isConnected(String a) {
+        return a.equals(nodeA) || a.equals(nodeB);
     }
 
-    public Character getConnectedNode(Character a) {
-        Character output;
+    public String getConnectedNode(String a) {
+        String output;
 
-        if (a == nodeA)
+        if (a.equals(nodeA))
             output = nodeB;
         else
             output = nodeA;
@@ -81,7 +81,7 @@ public class Connection implements Comparable<Object> {
 
     @Override
     public int compareTo(Object o) {
-        return Character.compare(this.nodeA, ((Connection) o).nodeA);
+        return NodeIds.compareLabels(this.nodeA, ((Connection) o).nodeA);
     }
 
 }
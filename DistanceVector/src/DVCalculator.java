@@ -1,3 +1,4 @@
+import java.io.File;
 import java.util.*;
 
 /**
@@ -6,157 +7,368 @@ import java.util.*;
  * This class contains methods that combine RoutingTable objects and a Graph object
  * in order to compute the Distance Vector Algorithm for the computation of routing
  * tables.
+ * <p>
+ * This class is the command line application, which reads and writes files
+ * and prints to the console, see DistanceVectorRouting to use the computation as a library
  */
 public class DVCalculator {
 
+    public static final String DEFAULT_OUTPUT = "../output";
+    // mismatches printed by the verification, the others are only counted
+    private static final int MAX_REPORTED_MISMATCHES = 10;
+
     private final String topologyFile;
     private final String messagesFile;
-    private List<Character> messageOrder;
+    private int[] messageOrder;
     private Graph graph;
-    private Set<Character> nodes;
-    private final Map<Character, RoutingTable> routingTableMap;
+    // ids of the routers sorted by label, for the output
+    private int[] nodes;
+    // routing table of every router, indexed by id
+    private RoutingTable[] routingTables;
+    private FileUtilities.OutputFormat outputFormat = FileUtilities.OutputFormat.TEXT;
+    private File outputDirectory = new File(DEFAULT_OUTPUT);
+    private RoutingTable.SplitHorizon splitHorizon = RoutingTable.SplitHorizon.NONE;
+    private boolean incrementalUpdates;
+    // links failed during the simulation, two labels per link
+    private final List<String> failedLinks = new ArrayList<>();
+    private final List<Long> failureTimes = new ArrayList<>();
+    // next hop matrix written by the Dijkstra module, null if the tables are not verified
+    private File verifyFile;
 
     public DVCalculator(String topologyFile, String messagesFile) {
         this.topologyFile = topologyFile;
         this.messagesFile = messagesFile;
-        this.nodes = new TreeSet<>();
-        this.routingTableMap = new TreeMap<>();
+    }
+
+    public void setOutputFormat(FileUtilities.OutputFormat outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+
+    public void setOutputDirectory(File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    public void setSplitHorizon(RoutingTable.SplitHorizon splitHorizon) {
+        this.splitHorizon = splitHorizon;
+    }
+
+    public void setIncrementalUpdates(boolean incrementalUpdates) {
+        this.incrementalUpdates = incrementalUpdates;
+    }
+
+    // check the computed tables against a next hop matrix written by the Dijkstra module
+    public void setVerifyFile(File verifyFile) {
+        this.verifyFile = verifyFile;
+    }
+
+    // fail the link between two routers at the given time of the simulation
+    public void addLinkFailure(String a, String b, long time) {
+        failedLinks.add(a);
+        failedLinks.add(b);
+        failureTimes.add(time);
     }
 
     public void run() throws Exception {
         initGraph();
         initMessageOrder();
-        initRoutingTableMap();
+        initRoutingTables();
         computeRoutingTables();
+        verifyRoutingTables();
+        writeRoutingTables();
+        Log.info("Quitting program...");
+    }
+
+    /**
+     * Simulate the exchange of distance vectors as discrete events (see DVSimulator)
+     * instead of replaying the order of messages, until the network converges
+     */
+    public void runSimulation() throws Exception {
+        initGraph();
+
+        DVSimulator simulator = new DVSimulator(graph);
+        simulator.setSplitHorizon(splitHorizon);
+        simulator.setIncrementalUpdates(incrementalUpdates);
+
+        for (int i = 0; i < failureTimes.size(); i++)
+            simulator.setLinkFailure(failedLinks.get(2 * i), failedLinks.get(2 * i + 1), failureTimes.get(i));
+
+        SimulationReport report;
+
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.COMPUTE);
+        try {
+            report = simulator.run();
+        } finally {
+            timer.stop();
+        }
+
+        routingTables = simulator.getRoutingTables();
+
+        displayRoutingTables(Log.Level.DEBUG);
+        Log.info(() -> report);
+        verifyRoutingTables();
+        writeRoutingTables();
+        Log.info("Quitting program...");
+    }
+
+    /**
+     * Compute the routing tables concurrently, every router is an actor
+     * running on a pool with the given number of threads (see ConcurrentDVCalculator)
+     */
+    public void runConcurrent(int threads) throws Exception {
+        initGraph();
+
+        ConcurrentDVCalculator calculator = new ConcurrentDVCalculator(graph, threads);
+        calculator.setSplitHorizon(splitHorizon);
+        calculator.setIncrementalUpdates(incrementalUpdates);
+
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.COMPUTE);
+        try {
+            calculator.run();
+        } finally {
+            timer.stop();
+        }
+
+        routingTables = calculator.getRoutingTables();
+
+        displayRoutingTables(Log.Level.DEBUG);
+        Log.info(() -> calculator);
+        verifyRoutingTables();
         writeRoutingTables();
-        System.out.println("Quitting program...");
+        Log.info("Quitting program...");
+    }
+
+    /**
+     * Compute the tables the network converges to without exchanging messages
+     * (see BellmanFordSolver), with the queue-based Bellman-Ford algorithm if
+     * threads is 0, else with the frontier-synchronous one on the given number of threads
+     */
+    public void runSolver(int threads) throws Exception {
+        initGraph();
+
+        long start = System.nanoTime();
+
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.COMPUTE);
+        try {
+            routingTables = threads == 0 ? BellmanFordSolver.solve(graph)
+                    : BellmanFordSolver.solveParallel(graph, threads);
+        } finally {
+            timer.stop();
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        displayRoutingTables(Log.Level.DEBUG);
+        Log.info(() -> "Routing tables of " + nodes.length + " routers solved in " + elapsed / 1000000 + " ms"
+                + (threads == 0 ? "" : " on " + threads + " threads") + "\n");
+        verifyRoutingTables();
+        writeRoutingTables();
+        Log.info("Quitting program...");
     }
 
     // initialize the graph representing the connections between nodes
     private void initGraph() throws Exception {
         this.graph = FileUtilities.readGraph(topologyFile);
-        this.nodes = graph.getAllNodes();
+        this.nodes = graph.getNodeIds().getIdsByLabel();
 
-        if (nodes.size() == 0)
+        if (nodes.length == 0)
             throw new Exception("Error, no connection specified int the topology");
 
-        System.out.println(topologyFile + " file loaded...\n");
+        Log.info(topologyFile + " file loaded...\n");
     }
 
     // initialize the list representing the order in which the messages are sent
     private void initMessageOrder() throws Exception {
-        this.messageOrder = FileUtilities.readMessages(messagesFile);
+        List<String> messages = FileUtilities.readMessages(messagesFile);
+        this.messageOrder = new int[messages.size()];
 
-        if (!nodes.containsAll(messageOrder))
-            throw new Exception("Error, node in " + messagesFile + " not present in the graph");
+        for (int i = 0; i < messageOrder.length; i++) {
+            messageOrder[i] = graph.getNodeIndex(messages.get(i));
 
-        System.out.println(messagesFile + " file loaded...\n");
+            if (messageOrder[i] == NodeIds.NO_ID)
+                throw new Exception("Error, node in " + messagesFile + " not present in the graph");
+        }
+
+        Log.info(messagesFile + " file loaded...\n");
     }
 
     // initialize the Routing Table of each node present in the graph
     // with the nodes that it knows and the cost to reach them
-    private void initRoutingTableMap() {
-        System.out.println("Initializing Routing tables...\n");
-
-        nodes.forEach(source -> {
-            RoutingTable table = new RoutingTable(source);
-            Set<Character> connections = graph.getConnectedNodes(source);
-
-            for (Character n : connections)
-                table.addRoutingEntry(new RoutingEntry(n, n, graph.getConnectionCost(source, n)));
+    private void initRoutingTables() {
+        Log.info("Initializing Routing tables...\n");
 
-            // add the connection from the source node to itself
-            table.addRoutingEntry(new RoutingEntry(source, source, 0));
-            routingTableMap.put(source, table);
-        });
+        routingTables = DistanceVectorRouting.initialTables(graph);
 
-        System.out.println("Tables initialized:\n");
-        displayRoutingTables();
+        Log.trace(() -> "Tables initialized:\n");
+        displayRoutingTables(Log.Level.TRACE);
     }
 
     // compute the Routing tables by getting the Distance Vector from each node
     // in the order specified in the messageOrder List, then share this information
     // with the neighbouring nodes.
     private void computeRoutingTables() throws Exception {
-        System.out.println("Computing Routing tables...\n");
-        if (messageOrder.size() == 0)
-            System.out.println("Nothing to compute...\n");
+        Log.info("Computing Routing tables...\n");
+        if (messageOrder.length == 0)
+            Log.info("Nothing to compute...\n");
+
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.COMPUTE);
+        try {
+            for (int source : messageOrder) {
+                Log.trace(() -> "Router " + graph.getLabel(source) + " sending distance vector to: "
+                        + graph.getConnectedNodes(graph.getLabel(source)));
+                Log.trace(() -> renderDistanceVector(routingTables[source].encodeDistanceVector()));
+
+                DistanceVectorRouting.sendDistanceVector(graph, routingTables, source);
+
+                Log.trace(() -> "\nRouting tables after the update:\n");
+                displayRoutingTables(Log.Level.TRACE);
+            }
+        } finally {
+            timer.stop();
+        }
+
+    }
+
+    /**
+     * Check the tables against the next hops computed by the Dijkstra module
+     * (its "matrix" output). A next hop of the matrix is correct if it is on
+     * a shortest path according to the costs of the tables: the cost of the
+     * link plus the cost of the next hop is the cost of the router, so any
+     * of the equal-cost next hops is accepted. A destination must be
+     * unreachable in both or in neither.
+     */
+    private void verifyRoutingTables() throws Exception {
+        if (verifyFile == null)
+            return;
+
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.VERIFY);
+        try {
+            verifyRoutingTables(NextHopMatrix.open(verifyFile));
+        } finally {
+            timer.stop();
+        }
+    }
 
-        for (Character source : messageOrder) {
-            Set<Character> connected = graph.getConnectedNodes(source);
-            Set<RoutingEntry> dv = getDistanceVector(source);
+    private void verifyRoutingTables(NextHopMatrix matrix) throws Exception {
+        NodeIds matrixIds = matrix.getNodeIds();
+        int nodeCount = graph.getNodesCount();
+        // id in the matrix of every router of the graph, and the other way round
+        int[] toMatrix = new int[nodeCount];
+        int[] fromMatrix = new int[matrix.nodeCount()];
+        int mismatches = 0;
 
-            System.out.println("Router " + source + " sending distance vector to: " + connected);
-            displayDistanceVector(dv);
+        for (int node = 0; node < nodeCount; node++) {
+            toMatrix[node] = matrixIds.getId(graph.getLabel(node));
 
-            for (Character neighbor : connected)
-                updateRoutingTable(source, neighbor, dv);
+            if (toMatrix[node] == NodeIds.NO_ID)
+                mismatches += report(mismatches, "Router " + graph.getLabel(node) + " not present in " + verifyFile);
+        }
 
-            System.out.println("\nRouting tables after the update:\n");
-            displayRoutingTables();
+        for (int node = 0; node < fromMatrix.length; node++) {
+            fromMatrix[node] = graph.getNodeIndex(matrixIds.getLabel(node));
+
+            if (fromMatrix[node] == NodeIds.NO_ID)
+                mismatches += report(mismatches, "Router " + matrixIds.getLabel(node) + " not present in the graph");
         }
 
-    }
+        for (int router : nodes) {
+            if (toMatrix[router] == NodeIds.NO_ID)
+                continue;
 
-    // get distance vector from router
-    private Set<RoutingEntry> getDistanceVector(Character router) {
-        Set<RoutingEntry> distanceVector = new TreeSet<>();
+            RoutingTable table = routingTables[router];
 
-        routingTableMap.get(router).getEntries().forEach(e -> {
-            if (e.getCost() != 0 && e.getCost() != Integer.MAX_VALUE)
-                distanceVector.add(e);
-        });
+            for (int destination : nodes) {
+                if (toMatrix[destination] == NodeIds.NO_ID)
+                    continue;
 
-        return distanceVector;
+                int matrixHop = matrix.getNextHop(toMatrix[router], toMatrix[destination]);
+                int nextHop = matrixHop == NextHopMatrix.NO_NODE ? NodeIds.NO_ID : fromMatrix[matrixHop];
+
+                if (!isShortestNextHop(router, destination, nextHop))
+                    mismatches += report(mismatches, "Router " + graph.getLabel(router) + " to "
+                            + graph.getLabel(destination) + ": next hop "
+                            + (nextHop == NodeIds.NO_ID ? "none" : graph.getLabel(nextHop)) + " in " + verifyFile
+                            + ", " + (costTo(router, destination) == Integer.MAX_VALUE ? "unreachable"
+                            : "cost " + costTo(router, destination) + " via "
+                            + graph.getLabel(table.getNextHop(destination))) + " in the table");
+            }
+        }
+
+        int total = mismatches;
+        Log.info(() -> "Routing tables verified against " + verifyFile.getPath() + ": "
+                + (total == 0 ? "all the next hops match" : total + " mismatches") + "\n");
     }
 
-    // If the current router/node does not know about the existence of a node contained
-    // in the Distance vector, add it to the Routing Table, otherwise, if the destination
-    // is already present, update the cost if a new "cheaper" path has been found.
-    private void updateRoutingTable(Character sendingRouter, Character currentRouter, Set<RoutingEntry> distanceVector) throws Exception {
-        int costToReach = graph.getConnectionCost(sendingRouter, currentRouter);
+    // whether the next hop (NO_ID if unreachable) from a router is on a shortest path to the destination
+    private boolean isShortestNextHop(int router, int destination, int nextHop) throws Exception {
+        long cost = costTo(router, destination);
 
-        for (RoutingEntry v : distanceVector) {
-            int partialcost = costToReach + v.getCost();
+        if (nextHop == NodeIds.NO_ID || cost == Integer.MAX_VALUE)
+            return nextHop == NodeIds.NO_ID && cost == Integer.MAX_VALUE;
 
-            // add to table if not previously known destination
-            if (!routingTableMap.get(currentRouter).knowsDestination(v.getDestination()))
-                routingTableMap.get(currentRouter)
-                        .addRoutingEntry(new RoutingEntry(v.getDestination(), sendingRouter, partialcost));
+        if (router == destination)
+            return nextHop == router;
 
-            // otherwise check if there is a better path and update accordingly
-            if (partialcost < routingTableMap.get(currentRouter).getConnectionCost(v.getDestination()))
-                routingTableMap.get(currentRouter).updateRoutingEntry(v.getDestination(), sendingRouter, partialcost);
-        }
+        int linkCost = graph.getCost(router, nextHop);
 
+        return linkCost >= 0 && nextHop != router && linkCost + costTo(nextHop, destination) == cost;
     }
 
-    private void writeRoutingTables() {
-        for (Map.Entry<Character, RoutingTable> entry : routingTableMap.entrySet())
-            FileUtilities.writeRoutingTable(entry.getValue());
-        System.out.println("Routing tables written to files...\n");
+    // cost in the table of a router to a destination, Integer.MAX_VALUE if unknown or unreachable
+    private long costTo(int router, int destination) throws Exception {
+        RoutingTable table = routingTables[router];
+
+        return table.knowsDestination(destination) ? table.getConnectionCost(destination) : Integer.MAX_VALUE;
     }
 
-    private void displayRoutingTables() {
-        for (Map.Entry<Character, RoutingTable> entry : routingTableMap.entrySet())
-            System.out.println(entry.getValue());
+    // print the first mismatches of the verification, return 1 to count it
+    private static int report(int reported, String mismatch) {
+        if (reported < MAX_REPORTED_MISMATCHES)
+            Log.info(mismatch);
+
+        return 1;
+    }
 
+    private void writeRoutingTables() {
+        List<RoutingTable> tables = new ArrayList<>(nodes.length);
+
+        for (int router : nodes)
+            tables.add(routingTables[router]);
+
+        switch (outputFormat) {
+            case BINARY:
+                FileUtilities.writeRoutingTablesBinary(tables, graph.getNodeIds(), outputDirectory);
+                Log.info("Routing tables written to " + new File(outputDirectory, FileUtilities.OUTPUT_BINARY).getPath() + "...\n");
+                break;
+            case MATRIX:
+                FileUtilities.writeNextHopMatrix(tables, graph.getNodeIds(), outputDirectory);
+                Log.info("Next hops written to " + new File(outputDirectory, FileUtilities.OUTPUT_MATRIX).getPath() + "...\n");
+                break;
+            default:
+                FileUtilities.writeRoutingTables(tables, graph.getNodeIds(), outputDirectory);
+                Log.info("Routing tables written to files...\n");
+        }
     }
 
-    private void displayDistanceVector(Set<RoutingEntry> dv) {
-        System.out.print("The distance vector: ");
+    // the tables are rendered only if the level is enabled
+    private void displayRoutingTables(Log.Level level) {
+        if (!Log.isEnabled(level))
+            return;
+
+        for (int router : nodes)
+            Log.log(level, () -> routingTables[router]);
+    }
 
-        int index = 0;
+    private String renderDistanceVector(RouteAdvertisement dv) {
+        StringBuilder output = new StringBuilder("The distance vector: ");
 
-        for (RoutingEntry e : dv) {
-            if (index < dv.size() - 1)
-                System.out.print("(" + e.getDestination() + "," + e.getCost() + "),");
+        for (int i = 0; i < dv.size(); i++) {
+            if (i < dv.size() - 1)
+                output.append("(").append(graph.getLabel(dv.getDestination(i))).append(",").append(dv.getCost(i)).append("),");
             else
-                System.out.print("(" + e.getDestination() + "," + e.getCost() + ")");
-            index++;
+                output.append("(").append(graph.getLabel(dv.getDestination(i))).append(",").append(dv.getCost(i)).append(")");
         }
 
-        System.out.println();
+        return output.toString();
     }
 
 }
@@ -0,0 +1,368 @@
+import java.util.*;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Discrete event simulation of the Distance Vector algorithm. Instead of replaying
+ * a fixed order of messages, every router sends its distance vector to its neighbours
+ * and the vectors arrive after the latency of the link. The events are processed in
+ * order of time from a priority queue:
+ * - at time 0 every router sends its distance vector (first TIMER event); if an update
+ * interval is set, the routers send their vector again periodically
+ * - when a vector arrives (MESSAGE event) the routing table of the receiving router is
+ * updated, if something changed the router sends its new vector to all neighbours
+ * after the triggered update delay (TRIGGERED event, at most one pending per router)
+ * <p>
+ * The simulation ends when no more events are left, i.e. the network converged.
+ * The periodic timers stop once no routing table changed for a whole update
+ * interval. A time limit can be set to stop networks that do not converge.
+ * <p>
+ * Links can be set to fail at a given time (LINK_DOWN event): both ends withdraw
+ * the routes through the link, the vectors in flight on it are lost. To limit the
+ * traffic and the count to infinity after a failure:
+ * - every neighbour gets its own vector, with split horizon or poison reverse
+ * (see RoutingTable.SplitHorizon)
+ * - with incremental updates a triggered update carries only the entries changed
+ * since the version of the table last sent to each neighbour (see RoutingTable),
+ * the periodic updates are still complete
+ * - once a link has failed, a router that receives a route worse than its own
+ * replies with its route (see RoutingTable.mergeUpdate), so a router that lost
+ * a route learns the alternative ones without waiting for a periodic update.
+ * Before a failure the costs can only decrease, a reply would only repeat a
+ * vector already sent
+ * - a route that costs more than the maximum cost is unreachable, by default no
+ * loop-free path costs more (see Graph.getMaxPathCost), so a route that loops
+ * around a destination that cannot be reached anymore does not count to infinity
+ * <p>
+ * The maximum cost stops a loop only if its cost grows at every round, i.e. if
+ * one of its links costs more than 0. A loop between two routers over a link of
+ * cost 0 (without split horizon or poison reverse) or around a cycle of links of
+ * cost 0 would go on forever, so a simulation with link failures and such links
+ * is rejected.
+ */
+public class DVSimulator {
+
+    private final Graph graph;
+    private final Map<Long, Long> linkLatency;
+    private final Map<Long, Long> linkFailures;
+    private final Set<Long> failedLinks;
+    private final PriorityQueue<SimulationEvent> events;
+    // routing table and pending triggered update of every router, indexed by id
+    private RoutingTable[] routingTables;
+    // version of the table of every router last sent to each of its neighbours
+    private long[][] sentVersions;
+    private boolean[] pendingTriggers;
+    private int pendingTriggersCount;
+
+    private long defaultLatency;
+    private long updateInterval;
+    private long triggeredUpdateDelay;
+    private long timeLimit;
+    private RoutingTable.SplitHorizon splitHorizon;
+    private boolean incrementalUpdates;
+    private int maxCost;
+
+    private long sequence;
+    private long lastChangeTime;
+    private SimulationReport report;
+
+    public DVSimulator(Graph graph) {
+        this.graph = graph;
+        this.linkLatency = new HashMap<>();
+        this.linkFailures = new HashMap<>();
+        this.failedLinks = new HashSet<>();
+        this.events = new PriorityQueue<>();
+        this.defaultLatency = 1;
+        this.updateInterval = 0;
+        this.triggeredUpdateDelay = 0;
+        this.timeLimit = Long.MAX_VALUE;
+        this.splitHorizon = RoutingTable.SplitHorizon.NONE;
+        this.incrementalUpdates = false;
+        this.maxCost = graph.getMaxPathCost();
+    }
+
+    // latency of the links without a specific latency
+    public void setDefaultLatency(long latency) {
+        this.defaultLatency = latency;
+    }
+
+    // latency of the link between two routers (in both directions)
+    public void setLinkLatency(String a, String b, long latency) {
+        int indexA = graph.getNodeIndex(a);
+        int indexB = graph.getNodeIndex(b);
+
+        linkLatency.put(linkKey(indexA, indexB), latency);
+        linkLatency.put(linkKey(indexB, indexA), latency);
+    }
+
+    // interval of the periodic updates, 0 to send the vectors only at the start
+    public void setUpdateInterval(long updateInterval) {
+        this.updateInterval = updateInterval;
+    }
+
+    // delay between the change of a routing table and the triggered update
+    public void setTriggeredUpdateDelay(long triggeredUpdateDelay) {
+        this.triggeredUpdateDelay = triggeredUpdateDelay;
+    }
+
+    // time after which the simulation is stopped even if it did not converge
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    // how the routes through a neighbour are advertised to it
+    public void setSplitHorizon(RoutingTable.SplitHorizon splitHorizon) {
+        this.splitHorizon = splitHorizon;
+    }
+
+    // send only the changed entries in the triggered updates
+    public void setIncrementalUpdates(boolean incrementalUpdates) {
+        this.incrementalUpdates = incrementalUpdates;
+    }
+
+    // cost above which a destination is unreachable
+    public void setMaxCost(int maxCost) {
+        this.maxCost = maxCost;
+    }
+
+    // fail the link between two routers at the given time
+    public void setLinkFailure(String a, String b, long time) {
+        int indexA = graph.getNodeIndex(a);
+        int indexB = graph.getNodeIndex(b);
+
+        if (indexA == NodeIds.NO_ID || indexB == NodeIds.NO_ID || graph.getCost(indexA, indexB) == -1)
+            throw new IllegalArgumentException("No link between " + a + " and " + b);
+
+        linkFailures.put(linkKey(indexA, indexB), time);
+    }
+
+    // get the routing tables indexed by router id
+    public RoutingTable[] getRoutingTables() {
+        return routingTables;
+    }
+
+    /**
+     * Initialize the routing tables with the directly connected routers and
+     * run the simulation until the network converges or the time limit is reached
+     */
+    public SimulationReport run() throws Exception {
+        if (!linkFailures.isEmpty())
+            checkZeroCostLoops();
+
+        report = new SimulationReport();
+        routingTables = new RoutingTable[graph.getNodesCount()];
+        pendingTriggers = new boolean[graph.getNodesCount()];
+        sentVersions = new long[graph.getNodesCount()][];
+        pendingTriggersCount = 0;
+        events.clear();
+        failedLinks.clear();
+        sequence = 0;
+        lastChangeTime = 0;
+
+        for (int router : graph.getNodeIds().getIdsByLabel()) {
+            routingTables[router] = RoutingTable.fromGraph(router, graph);
+            sentVersions[router] = new long[graph.getDegree(router)];
+            schedule(SimulationEvent.Type.TIMER, 0, router, NodeIds.NO_ID, null);
+        }
+
+        for (Map.Entry<Long, Long> failure : linkFailures.entrySet())
+            schedule(SimulationEvent.Type.LINK_DOWN, failure.getValue(),
+                    (int) (failure.getKey() >>> 32), (int) (long) failure.getKey(), null);
+
+        while (!events.isEmpty()) {
+            SimulationEvent event = events.peek();
+
+            if (event.getTime() > timeLimit)
+                break;
+
+            events.poll();
+            report.countEvent(event.getTime());
+            process(event);
+        }
+
+        report.setConverged(events.isEmpty());
+        Metrics.add(Metrics.Counter.MESSAGES, report.getMessagesSent());
+        Metrics.add(Metrics.Counter.TABLE_UPDATES, report.getTableUpdates());
+        return report;
+    }
+
+    private void process(SimulationEvent event) throws Exception {
+        int router = event.getRouter();
+        long time = event.getTime();
+
+        switch (event.getType()) {
+            case TIMER:
+                report.countPeriodicUpdate();
+
+                if (updateInterval > 0 && !isQuiet(time))
+                    schedule(SimulationEvent.Type.TIMER, time + updateInterval, router, NodeIds.NO_ID, null);
+
+                sendDistanceVector(router, time, true);
+                break;
+
+            case TRIGGERED:
+                report.countTriggeredUpdate();
+                pendingTriggers[router] = false;
+                pendingTriggersCount--;
+                sendDistanceVector(router, time, !incrementalUpdates);
+                break;
+
+            case MESSAGE:
+                int sender = event.getSender();
+
+                // the vectors in flight on a failed link are lost
+                if (failedLinks.contains(linkKey(sender, router))) {
+                    report.countLoss();
+                    break;
+                }
+
+                report.countDelivery();
+
+                RouteAdvertisement replies = failedLinks.isEmpty() ? null : new RouteAdvertisement();
+                int costToReach = graph.getCost(sender, router);
+                int updated = routingTables[router]
+                        .mergeUpdate(sender, costToReach, event.getDistanceVector(), maxCost, replies);
+
+                if (replies != null && !replies.isEmpty()) {
+                    report.countReply();
+                    send(router, sender, replies, time);
+                }
+
+                if (updated > 0)
+                    tableChanged(router, time, updated);
+                break;
+
+            case LINK_DOWN:
+                int other = event.getSender();
+                failedLinks.add(linkKey(router, other));
+                failedLinks.add(linkKey(other, router));
+                report.countFailure(time);
+
+                for (int end : new int[]{router, other}) {
+                    int withdrawn = routingTables[end].withdrawRoutesThrough(end == router ? other : router);
+
+                    if (withdrawn > 0)
+                        tableChanged(end, time, withdrawn);
+                }
+                break;
+        }
+    }
+
+    /**
+     * reject the links of cost 0 on which a route could loop forever after a
+     * failure: any of them without split horizon or poison reverse, the cycles
+     * made only of them otherwise (found with a union-find of their ends)
+     */
+    private void checkZeroCostLoops() {
+        int[] parents = new int[graph.getNodesCount()];
+
+        for (int node = 0; node < parents.length; node++)
+            parents[node] = node;
+
+        for (int node = 0; node < parents.length; node++)
+            for (int i = 0; i < graph.getDegree(node); i++) {
+                int neighbour = graph.getNeighbour(node, i);
+
+                if (graph.getNeighbourCost(node, i) != 0 || neighbour < node)
+                    continue;
+
+                if (splitHorizon == RoutingTable.SplitHorizon.NONE)
+                    throw new IllegalArgumentException("Link failures need split horizon or poison reverse"
+                            + " with the link of cost 0 between " + graph.getLabel(node) + " and "
+                            + graph.getLabel(neighbour));
+
+                int rootA = find(parents, node);
+                int rootB = find(parents, neighbour);
+
+                if (rootA == rootB)
+                    throw new IllegalArgumentException("Link failures cannot be simulated with a cycle of links"
+                            + " of cost 0 through " + graph.getLabel(node) + " and " + graph.getLabel(neighbour));
+
+                parents[rootA] = rootB;
+            }
+    }
+
+    private static int find(int[] parents, int node) {
+        while (parents[node] != node) {
+            parents[node] = parents[parents[node]];
+            node = parents[node];
+        }
+
+        return node;
+    }
+
+    // record the change of a routing table and schedule its triggered update, if not already pending
+    private void tableChanged(int router, long time, int updated) {
+        report.countTableUpdates(time, updated);
+        lastChangeTime = time;
+
+        if (!pendingTriggers[router]) {
+            pendingTriggers[router] = true;
+            pendingTriggersCount++;
+            schedule(SimulationEvent.Type.TRIGGERED, time + triggeredUpdateDelay, router, NodeIds.NO_ID, null);
+        }
+    }
+
+    // the network is quiet when no table changed during the last update interval,
+    // a change carried by a vector still in flight is propagated by triggered updates
+    private boolean isQuiet(long time) {
+        return pendingTriggersCount == 0 && time - lastChangeTime >= updateInterval;
+    }
+
+    /**
+     * send the distance vector of a router to all its neighbours, complete or
+     * only the entries changed since the previous update (a neighbour with no
+     * change to receive gets no message)
+     */
+    private void sendDistanceVector(int router, long time, boolean complete) {
+        RoutingTable table = routingTables[router];
+        long[] versions = sentVersions[router];
+        RouteAdvertisement last = null;
+        long lastVersion = -1;
+
+        for (int i = 0; i < graph.getDegree(router); i++) {
+            int neighbour = graph.getNeighbour(router, i);
+
+            if (failedLinks.contains(linkKey(router, neighbour)))
+                continue;
+
+            RouteAdvertisement dv;
+
+            // without split horizon the vector depends only on the version received by the neighbour
+            if (splitHorizon == RoutingTable.SplitHorizon.NONE && last != null && (complete || versions[i] == lastVersion))
+                dv = last;
+            else {
+                dv = complete ? table.getDistanceVector(neighbour, versions[i], splitHorizon)
+                        : table.getChangesSince(neighbour, versions[i], splitHorizon);
+                last = dv;
+                lastVersion = versions[i];
+            }
+
+            versions[i] = table.getVersion();
+
+            if (complete || !dv.isEmpty())
+                send(router, neighbour, dv, time);
+        }
+    }
+
+    private void send(int router, int neighbour, RouteAdvertisement dv, long time) {
+        schedule(SimulationEvent.Type.MESSAGE, time + getLatency(router, neighbour), neighbour, router, dv);
+        report.countMessage(dv);
+    }
+
+    private long getLatency(int a, int b) {
+        if (linkLatency.isEmpty())
+            return defaultLatency;
+
+        return linkLatency.getOrDefault(linkKey(a, b), defaultLatency);
+    }
+
+    private static long linkKey(int a, int b) {
+        return (long) a << 32 | b;
+    }
+
+    private void schedule(SimulationEvent.Type type, long time, int router,
+                          int sender, RouteAdvertisement dv) {
+        events.add(new SimulationEvent(type, time, sequence++, router, sender, dv));
+    }
+}
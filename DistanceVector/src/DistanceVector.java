@@ -1,3 +1,7 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Author: Samuel Dalvai
  * <p>
@@ -7,18 +11,110 @@
  * - topology.txt file to load the topology of the Graph
  * - messages.txt file to load the order in which the nodes
  * send their distance vector to the neighboring nodes
+ * Run with the argument "simulate" to simulate the exchange of messages
+ * as events until the network converges, messages.txt is then not used
+ * Run with the argument "concurrent" (optionally followed by the number of threads)
+ * to compute the tables with one actor per router until the network is quiescent
+ * Run with the argument "solve" to compute the tables the network converges to
+ * with the Bellman-Ford algorithm without exchanging messages, or "solve-parallel"
+ * (optionally followed by the number of threads) for the parallel version (see BellmanFordSolver)
+ * Add the argument "binary" to write all the routing tables to a single indexed
+ * binary file instead of one text file per router, or the argument "matrix" to
+ * write only the next hops as a matrix that can be queried without parsing
+ * (see NextHopMatrix)
+ * Add the argument "quiet" to print only the progress without the routing
+ * tables, or "silent" to print only the errors (see Log)
+ * The input files and the output directory can be changed with the arguments
+ * "--topology file", "--messages file" and "--output directory"
+ * In the simulate and concurrent modes, add the argument "split-horizon" or
+ * "poison-reverse" to change how the routes are advertised back to the neighbour
+ * they go through, and "incremental" to send only the changed entries after the
+ * first vectors. In the simulate mode, "--fail A B time" fails the link between
+ * A and B at the given time (see DVSimulator)
+ * Add "--verify file" to check the computed tables against the next hop matrix
+ * written by the Dijkstra module (its "matrix" output)
+ * Add "--metrics file" to register the counters and the phase timers on JMX
+ * and write them as JSON to the file when the program exits (see Metrics)
  */
 public class DistanceVector {
 
     public static void main(String[] args) {
 
         try {
-            //String topology = args[0];
-            //String messages = args[1];
             String topology = "../topology.txt";
             String messages = "../messages.txt";
+            String output = DVCalculator.DEFAULT_OUTPUT;
+            String mode = "";
+            int threads = Runtime.getRuntime().availableProcessors();
+            FileUtilities.OutputFormat format = FileUtilities.OutputFormat.TEXT;
+            RoutingTable.SplitHorizon splitHorizon = RoutingTable.SplitHorizon.NONE;
+            boolean incremental = false;
+            List<String[]> failures = new ArrayList<>();
+            String verify = null;
+            String metrics = null;
+
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--topology"))
+                    topology = args[++i];
+                else if (args[i].equals("--messages"))
+                    messages = args[++i];
+                else if (args[i].equals("--output"))
+                    output = args[++i];
+                else if (args[i].equals("--verify"))
+                    verify = args[++i];
+                else if (args[i].equals("--metrics"))
+                    metrics = args[++i];
+                else if (args[i].equals("--fail")) {
+                    failures.add(new String[]{args[i + 1], args[i + 2], args[i + 3]});
+                    i += 3;
+                } else if (args[i].equals("simulate") || args[i].equals("concurrent")
+                        || args[i].equals("solve") || args[i].equals("solve-parallel"))
+                    mode = args[i];
+                else if (args[i].matches("\\d+"))
+                    threads = Integer.parseInt(args[i]);
+                else if (args[i].equals("binary"))
+                    format = FileUtilities.OutputFormat.BINARY;
+                else if (args[i].equals("matrix"))
+                    format = FileUtilities.OutputFormat.MATRIX;
+                else if (args[i].equals("split-horizon"))
+                    splitHorizon = RoutingTable.SplitHorizon.SPLIT_HORIZON;
+                else if (args[i].equals("poison-reverse"))
+                    splitHorizon = RoutingTable.SplitHorizon.POISON_REVERSE;
+                else if (args[i].equals("incremental"))
+                    incremental = true;
+                else if (args[i].equals("quiet"))
+                    Log.setLevel(Log.Level.INFO);
+                else if (args[i].equals("silent"))
+                    Log.setLevel(Log.Level.ERROR);
+            }
+
+            if (metrics != null) {
+                Metrics.registerMBean();
+                Metrics.writeSummaryAtExit(new File(metrics));
+            }
+
             DVCalculator calc = new DVCalculator(topology, messages);
-            calc.run();
+            calc.setOutputFormat(format);
+            calc.setOutputDirectory(new File(output));
+            calc.setSplitHorizon(splitHorizon);
+            calc.setIncrementalUpdates(incremental);
+
+            if (verify != null)
+                calc.setVerifyFile(new File(verify));
+
+            for (String[] failure : failures)
+                calc.addLinkFailure(failure[0], failure[1], Long.parseLong(failure[2]));
+
+            if (mode.equals("simulate"))
+                calc.runSimulation();
+            else if (mode.equals("concurrent"))
+                calc.runConcurrent(threads);
+            else if (mode.equals("solve"))
+                calc.runSolver(0);
+            else if (mode.equals("solve-parallel"))
+                calc.runSolver(threads);
+            else
+                calc.run();
 
         } catch (ArrayIndexOutOfBoundsException e) {
             System.err.println("Error... Too few arguments...\n" +
@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Entry point to use the Distance Vector module as a library, e.g. embedded
+ * in a long running service: the graph is built in memory (with
+ * Graph.addConnection) or read from a topology file, and the routing tables
+ * are returned as RoutingTable objects sorted by router label. Nothing is
+ * printed and nothing is written to the filesystem, see DVCalculator for the
+ * command line application.
+ * <p>
+ * Example:
+ * Graph graph = new Graph();
+ * graph.addConnection(new Connection("A", "B", 2));
+ * graph.addConnection(new Connection("B", "C", 1));
+ * List&lt;RoutingTable&gt; tables = DistanceVectorRouting.simulate(graph);
+ * <p>
+ * The graph is only read, so several computations can share the same graph
+ * as long as it is not modified while they run.
+ */
+public final class DistanceVectorRouting {
+
+    private DistanceVectorRouting() {
+    }
+
+    // read a topology in text or binary format (see TopologyReader)
+    public static Graph readGraph(String filename) throws IOException {
+        return TopologyReader.readGraph(filename);
+    }
+
+    // routing tables of all the routers that know only their direct connections
+    public static RoutingTable[] initialTables(Graph graph) {
+        RoutingTable[] tables = new RoutingTable[graph.getNodesCount()];
+
+        for (int router = 0; router < tables.length; router++)
+            tables[router] = RoutingTable.fromGraph(router, graph);
+
+        return tables;
+    }
+
+    /**
+     * Send the distance vector of a router (see RoutingTable.encodeDistanceVector)
+     * to all its neighbours, which merge it into their tables (see
+     * RoutingTable.mergeDistanceVector)
+     * Return the number of entries updated in the tables of the neighbours
+     */
+    public static int sendDistanceVector(Graph graph, RoutingTable[] tables, int router) {
+        RouteAdvertisement dv = tables[router].encodeDistanceVector();
+        int updated = 0;
+
+        for (int i = 0; i < graph.getDegree(router); i++) {
+            int neighbour = graph.getNeighbour(router, i);
+            updated += tables[neighbour].mergeDistanceVector(router, graph.getNeighbourCost(router, i), dv);
+        }
+
+        Metrics.add(Metrics.Counter.MESSAGES, graph.getDegree(router));
+        Metrics.add(Metrics.Counter.TABLE_UPDATES, updated);
+        return updated;
+    }
+
+    /**
+     * Compute the routing tables by letting the routers send their distance
+     * vector in the given order (the labels of the routers, as in messages.txt)
+     */
+    public static List<RoutingTable> replay(Graph graph, List<String> messageOrder) {
+        RoutingTable[] tables = initialTables(graph);
+
+        for (String router : messageOrder) {
+            int id = graph.getNodeIndex(router);
+
+            if (id == NodeIds.NO_ID)
+                throw new IllegalArgumentException("Router " + router + " not present in the graph");
+
+            sendDistanceVector(graph, tables, id);
+        }
+
+        return sortedByLabel(graph, tables);
+    }
+
+    // compute the routing tables with the discrete event simulation (see DVSimulator)
+    public static List<RoutingTable> simulate(Graph graph) throws Exception {
+        DVSimulator simulator = new DVSimulator(graph);
+        simulator.run();
+
+        return sortedByLabel(graph, simulator.getRoutingTables());
+    }
+
+    // compute the routing tables with one actor per router on the given number of threads
+    // (see ConcurrentDVCalculator)
+    public static List<RoutingTable> computeConcurrent(Graph graph, int threads) throws Exception {
+        ConcurrentDVCalculator calculator = new ConcurrentDVCalculator(graph, threads);
+        calculator.run();
+
+        return sortedByLabel(graph, calculator.getRoutingTables());
+    }
+
+    // compute the routing tables the network converges to with the Bellman-Ford algorithm (see BellmanFordSolver)
+    public static List<RoutingTable> solve(Graph graph) {
+        return sortedByLabel(graph, BellmanFordSolver.solve(graph));
+    }
+
+    // as solve, with the frontier-synchronous Bellman-Ford algorithm on the given number of threads
+    public static List<RoutingTable> solveParallel(Graph graph, int threads) {
+        return sortedByLabel(graph, BellmanFordSolver.solveParallel(graph, threads));
+    }
+
+    private static List<RoutingTable> sortedByLabel(Graph graph, RoutingTable[] tables) {
+        List<RoutingTable> sorted = new ArrayList<>(tables.length);
+
+        for (int router : graph.getNodeIds().getIdsByLabel())
+            sorted.add(tables[router]);
+
+        return sorted;
+    }
+}
@@ -5,88 +5,103 @@ import java.util.List;
 /**
  * Author: Samuel Dalvai
  * <p>
- * Utilities for file manipulation
+ * Utilities for file manipulation, the reading and the writing are timed
+ * as the load and write phases (see Metrics)
  */
 public class FileUtilities {
 
-    // reads a file and creates a Graph object
+    public static final String OUTPUT_BINARY = "routing_tables.bin";
+    public static final String OUTPUT_MATRIX = "next_hops.nhm";
+
+    // format of the routing tables written to the output directory
+    public enum OutputFormat {
+        // one text file per router
+        TEXT,
+        // all the tables in one indexed binary file (see RoutingTableWriter)
+        BINARY,
+        // the next hops of all the tables as a matrix (see NextHopMatrix)
+        MATRIX
+    }
+
+    // reads a topology in text or binary format (see TopologyReader) and creates a Graph object
     public static Graph readGraph(String filename) {
 
         Graph nodes = new Graph();
-        Connection con;
 
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.LOAD);
         try {
-            BufferedReader reader = new BufferedReader(new FileReader(new File(filename)));
-
-            String line;
-            char nodeA;
-            char nodeB;
-            int cost;
-
-            while ((line = reader.readLine()) != null) {
-                line = line.replace(" ", "");
-
-                if (line.length() < 3)
-                    throw new IOException("Malformed input for nodes and cost");
-
-                nodeA = line.charAt(0);
-                nodeB = line.charAt(1);
-                cost = Integer.parseInt(line.substring(2));
-
-                con = new Connection(nodeA, nodeB, cost);
-                nodes.addConnection(con);
-            }
+            new TopologyReader(nodes.getNodeIds(), nodes::addConnections).read(filename);
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            timer.stop();
         }
         return nodes;
     }
 
-    // reads a file and creates a List with the order of distance vector messages sent
-    public static List<Character> readMessages(String filename) {
+    // reads a file and creates a List with the order of distance vector messages sent,
+    // the labels of the routers are separated by white space
+    public static List<String> readMessages(String filename) {
 
-        List<Character> nodes = new ArrayList<>();
-        char node;
+        List<String> nodes = new ArrayList<>();
 
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.LOAD);
         try {
             BufferedReader reader = new BufferedReader(new FileReader(new File(filename)));
 
-            int r;
-            while ((r = reader.read()) != -1) {
-                node = (char) r;
-
-                if (node != ' ') // discard empty spaces
-                    nodes.add(node);
-            }
+            String line;
+            while ((line = reader.readLine()) != null)
+                for (String node : line.trim().split("\\s+"))
+                    if (!node.isEmpty()) // discard empty lines
+                        nodes.add(node);
 
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            timer.stop();
         }
         return nodes;
     }
 
-    // write routing tables to files
-    public static void writeRoutingTable(RoutingTable table) {
+    // write routing tables to files in the given directory, the files are written in parallel (see RoutingTableWriter)
+    public static void writeRoutingTables(List<RoutingTable> tables, NodeIds nodeIds, File directory) {
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.WRITE);
         try {
-            File dir = new File("../output");
+            new RoutingTableWriter(nodeIds, Runtime.getRuntime().availableProcessors())
+                    .writeFiles(tables, directory);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            timer.stop();
+        }
+    }
 
-            if (!dir.exists())
-                if (!dir.mkdir())
-                    throw new IOException("Error in creating the directory for the files...");
+    // write all the routing tables to a single indexed binary file in the given directory (see RoutingTableWriter)
+    public static void writeRoutingTablesBinary(List<RoutingTable> tables, NodeIds nodeIds, File directory) {
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.WRITE);
+        try {
+            new RoutingTableWriter(nodeIds, 1)
+                    .writeIndexedFile(tables, new File(directory, OUTPUT_BINARY));
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            timer.stop();
         }
+    }
 
+    // write the next hops of all the routing tables to a matrix file in the given directory (see NextHopMatrix)
+    public static void writeNextHopMatrix(List<RoutingTable> tables, NodeIds nodeIds, File directory) {
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.WRITE);
         try {
-            String filename = "../output/" + table.getRouter() + ".txt";
-            BufferedWriter writer = new BufferedWriter(new FileWriter(new File(filename)));
-            writer.write(table.toFile());
-            writer.close();
+            if (!directory.exists() && !directory.mkdirs())
+                throw new IOException("Error in creating the directory for the files...");
 
+            NextHopMatrix.write(tables, nodeIds, new File(directory, OUTPUT_MATRIX));
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            timer.stop();
         }
-
     }
 
 }
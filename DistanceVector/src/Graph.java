@@ -6,61 +6,263 @@ import java.util.*;
  * Class that represent a graph consisting of nodes and connections between them
  * The edges of a node are undirected, which means that if node A is connected to B,
  * then node B is connected to A with the same cost
+ * <p>
+ * The graph is stored as an adjacency index:
+ * every node has a dense index (its id in a NodeIds object), an array with the indexes of its neighbours and
+ * an array with the cost of each connection, and a hash table maps every
+ * (node, neighbour) pair to the cost. So the cost of a connection is found in
+ * O(1) and the neighbours of a node can be iterated without allocating
+ * (see getDegree, getNeighbour and getNeighbourCost).
+ * <p>
+ * A connection between two nodes already connected replaces the cost, so
+ * adding the same Connection twice has no effect.
  */
 public class Graph {
 
-    // use set to avoid duplicates of Connection objects
-    private final Set<Connection> connections;
+    private static final int INITIAL_CAPACITY = 4;
+    private static final long EMPTY = -1;
+
+    // maps name of the node to its index
+    private final NodeIds nodeIds;
+    private int[][] neighbours;
+    private int[][] neighbourCosts;
+    private int[] degrees;
+
+    // open addressing table (node, neighbour) -> cost, the key is
+    // the index of the node in the high 32 bits and the neighbour in the low ones
+    private long[] costKeys;
+    private int[] costValues;
+    private int costEntries;
 
     public Graph() {
-        connections = new LinkedHashSet<>();
+        nodeIds = new NodeIds();
+        neighbours = new int[INITIAL_CAPACITY][];
+        neighbourCosts = new int[INITIAL_CAPACITY][];
+        degrees = new int[INITIAL_CAPACITY];
+        costKeys = new long[INITIAL_CAPACITY * 4];
+        costValues = new int[INITIAL_CAPACITY * 4];
+        Arrays.fill(costKeys, EMPTY);
     }
 
     public void addConnection(Connection con) {
-        connections.add(con);
+        int a = addNode(con.getNodeA());
+        int b = addNode(con.getNodeB());
+
+        setCost(a, b, con.getCost());
+
+        if (a != b)
+            setCost(b, a, con.getCost());
     }
 
-    public int getConnectionCost(Character source, Character destination) {
+    /**
+     * Add count connections at once, connection i is between the nodes with
+     * ids nodesA[i] and nodesB[i] (already interned in getNodeIds()) and has cost costs[i]
+     */
+    public void addConnections(int[] nodesA, int[] nodesB, int[] costs, int count) {
+        for (int i = 0; i < count; i++) {
+            int a = nodesA[i];
+            int b = nodesB[i];
 
-        int cost = -1;
+            if (a == b && costs[i] > 0)
+                throw new IllegalArgumentException("A node cannot be connected to itself with cost greater than 0..");
 
-        for (Connection c : connections)
-            if (c.isConnected(source, destination))
-                cost = c.getCost();
+            ensureNode(Math.max(a, b));
+            setCost(a, b, costs[i]);
 
-        return cost;
+            if (a != b)
+                setCost(b, a, costs[i]);
+        }
     }
 
-    // get all the different nodes appearing in the connections Set
-    public Set<Character> getAllNodes() {
-        Set<Character> nodes = new TreeSet<>();
+    public int getConnectionCost(String source, String destination) {
+        int a = nodeIds.getId(source);
+        int b = nodeIds.getId(destination);
 
-        for (Connection c : connections) {
-            nodes.add(c.getNodeA());
-            nodes.add(c.getNodeB());
-        }
+        if (a == NodeIds.NO_ID || b == NodeIds.NO_ID)
+            return -1;
+
+        return getCost(a, b);
+    }
+
+    // get the cost of the connection between the nodes with the given indexes,
+    // -1 if they are not connected
+    public int getCost(int source, int destination) {
+        int slot = findSlot(source, destination);
+
+        return costKeys[slot] == EMPTY ? -1 : costValues[slot];
+    }
+
+    // get all the different nodes of the graph
+    public Set<String> getAllNodes() {
+        Set<String> nodes = new TreeSet<>(NodeIds::compareLabels);
+
+        for (int i = 0; i < nodeIds.size(); i++)
+            nodes.add(nodeIds.getLabel(i));
 
         return nodes;
     }
 
     // get a Set of all the connected nodes to a node
-    public Set<Character> getConnectedNodes(Character node) {
-        Set<Character> nodes = new LinkedHashSet<>();
+    public Set<String> getConnectedNodes(String node) {
+        Set<String> nodes = new LinkedHashSet<>();
+        int index = nodeIds.getId(node);
 
-        for (Connection c : connections)
-            if (c.isConnected(node))
-                nodes.add(c.getConnectedNode(node));
+        if (index != NodeIds.NO_ID)
+            for (int i = 0; i < degrees[index]; i++)
+                nodes.add(nodeIds.getLabel(neighbours[index][i]));
 
         return nodes;
     }
 
+    public NodeIds getNodeIds() {
+        return nodeIds;
+    }
+
+    public int getNodesCount() {
+        return nodeIds.size();
+    }
+
+    // get the index of a node, -1 if the node is not in the graph
+    public int getNodeIndex(String node) {
+        return nodeIds.getId(node);
+    }
+
+    public String getLabel(int node) {
+        return nodeIds.getLabel(node);
+    }
+
+    // number of neighbours of the node with the given index
+    public int getDegree(int node) {
+        return degrees[node];
+    }
+
+    // index of the i-th neighbour of a node
+    public int getNeighbour(int node, int i) {
+        return neighbours[node][i];
+    }
+
+    // cost of the connection to the i-th neighbour of a node
+    public int getNeighbourCost(int node, int i) {
+        return neighbourCosts[node][i];
+    }
+
+    // upper bound of the cost of a loop-free path: number of nodes - 1 times the highest cost of a connection
+    public int getMaxPathCost() {
+        long maxCost = 0;
+
+        for (int node = 0; node < getNodesCount(); node++)
+            for (int i = 0; i < degrees[node]; i++)
+                maxCost = Math.max(maxCost, neighbourCosts[node][i]);
+
+        return (int) Math.min(Integer.MAX_VALUE - 1, maxCost * Math.max(0, getNodesCount() - 1));
+    }
+
+    // return the index of the node, adding it if not yet present
+    private int addNode(String label) {
+        int index = nodeIds.intern(label);
+        ensureNode(index);
+
+        return index;
+    }
+
+    // create the adjacency arrays of the nodes up to the given index,
+    // the labels may have been interned in getNodeIds() by a TopologyReader
+    private void ensureNode(int index) {
+        if (index >= degrees.length) {
+            int capacity = Math.max(degrees.length * 2, index + 1);
+            neighbours = Arrays.copyOf(neighbours, capacity);
+            neighbourCosts = Arrays.copyOf(neighbourCosts, capacity);
+            degrees = Arrays.copyOf(degrees, capacity);
+        }
+
+        for (int i = index; i >= 0 && neighbours[i] == null; i--) {
+            neighbours[i] = new int[INITIAL_CAPACITY];
+            neighbourCosts[i] = new int[INITIAL_CAPACITY];
+        }
+    }
+
+    // set the cost of the connection from a node to a neighbour, a connection
+    // between two nodes already connected replaces the cost
+    private void setCost(int node, int neighbour, int cost) {
+        int slot = findSlot(node, neighbour);
+
+        if (costKeys[slot] != EMPTY) {
+            costValues[slot] = cost;
+
+            for (int i = 0; i < degrees[node]; i++)
+                if (neighbours[node][i] == neighbour)
+                    neighbourCosts[node][i] = cost;
+            return;
+        }
+
+        costKeys[slot] = key(node, neighbour);
+        costValues[slot] = cost;
+        costEntries++;
+
+        int degree = degrees[node];
+
+        if (degree == neighbours[node].length) {
+            neighbours[node] = Arrays.copyOf(neighbours[node], degree * 2);
+            neighbourCosts[node] = Arrays.copyOf(neighbourCosts[node], degree * 2);
+        }
+
+        neighbours[node][degree] = neighbour;
+        neighbourCosts[node][degree] = cost;
+        degrees[node]++;
+
+        // keep the table at most half full
+        if (costEntries * 2 > costKeys.length)
+            rehash();
+    }
+
+    // slot of the pair in the cost table, or the empty slot where it would be added
+    private int findSlot(int node, int neighbour) {
+        long key = key(node, neighbour);
+        int mask = costKeys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (costKeys[slot] != EMPTY && costKeys[slot] != key)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = costKeys;
+        int[] oldValues = costValues;
+
+        costKeys = new long[oldKeys.length * 2];
+        costValues = new int[oldKeys.length * 2];
+        Arrays.fill(costKeys, EMPTY);
+
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldKeys[i] != EMPTY) {
+                int slot = findSlot((int) (oldKeys[i] >>> 32), (int) oldKeys[i]);
+                costKeys[slot] = oldKeys[i];
+                costValues[slot] = oldValues[i];
+            }
+    }
+
+    private static long key(int node, int neighbour) {
+        return (long) node << 32 | neighbour;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
     @Override
     public String toString() {
 
         StringBuilder output = new StringBuilder();
 
-        for (Connection c : connections)
-            output.append(c).append("\n");
+        for (int node = 0; node < nodeIds.size(); node++)
+            for (int i = 0; i < degrees[node]; i++)
+                if (node <= neighbours[node][i])
+                    output.append("Connection {").append(nodeIds.getLabel(node))
+                            .append(" -> ").append(nodeIds.getLabel(neighbours[node][i]))
+                            .append(" cost = ").append(neighbourCosts[node][i]).append("}\n");
 
         return output.toString();
     }
@@ -0,0 +1,145 @@
+import java.util.Arrays;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that maps the labels of the nodes (arbitrary strings, e.g. "A", "R12" or
+ * "10.0.0.1") to dense int ids from 0 to size() - 1, in the order in which the
+ * labels are first seen. The rest of the application works only on the ids,
+ * the labels are needed only to read the input and to write the output.
+ * <p>
+ * The labels are kept in an array indexed by id and in an open addressing
+ * hash table of ids, so interning a label does not allocate once the
+ * arrays are big enough.
+ */
+public class NodeIds {
+
+    private static final int INITIAL_CAPACITY = 16;
+    public static final int NO_ID = -1;
+
+    private String[] labels;
+    // open addressing table, slot value is id + 1 (0 = empty)
+    private int[] table;
+    private int size;
+
+    public NodeIds() {
+        this.labels = new String[INITIAL_CAPACITY];
+        this.table = new int[INITIAL_CAPACITY * 2];
+        this.size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // get the id of a label, adding the label if not yet present
+    public int intern(String label) {
+        int slot = findSlot(label);
+
+        if (table[slot] != 0)
+            return table[slot] - 1;
+
+        if (size == labels.length)
+            labels = Arrays.copyOf(labels, size * 2);
+
+        labels[size] = label;
+        table[slot] = size + 1;
+        size++;
+
+        // keep the table at most half full
+        if (size * 2 > table.length)
+            rehash();
+
+        return size - 1;
+    }
+
+    // get the id of a label, NO_ID if the label is unknown
+    public int getId(String label) {
+        int slot = findSlot(label);
+        return table[slot] - 1;
+    }
+
+    public boolean contains(String label) {
+        return getId(label) != NO_ID;
+    }
+
+    public String getLabel(int id) {
+        return labels[id];
+    }
+
+    // get all the ids sorted by label (see compareLabels)
+    public int[] getIdsByLabel() {
+        Integer[] ids = new Integer[size];
+
+        for (int i = 0; i < size; i++)
+            ids[i] = i;
+
+        Arrays.sort(ids, (a, b) -> compareLabels(labels[a], labels[b]));
+
+        int[] sorted = new int[size];
+
+        for (int i = 0; i < size; i++)
+            sorted[i] = ids[i];
+
+        return sorted;
+    }
+
+    /**
+     * compare two labels for the output: labels made only of digits come first
+     * and are compared by their numeric value (so 9 comes before 10), all the
+     * other labels follow in alphabetical order
+     */
+    public static int compareLabels(String a, String b) {
+        boolean numberA = isNumber(a);
+        boolean numberB = isNumber(b);
+
+        if (numberA != numberB)
+            return numberA ? -1 : 1;
+
+        if (numberA && a.length() != b.length())
+            return Integer.compare(a.length(), b.length());
+
+        return a.compareTo(b);
+    }
+
+    private static boolean isNumber(String label) {
+        if (label.isEmpty() || label.length() > 1 && label.charAt(0) == '0')
+            return false;
+
+        for (int i = 0; i < label.length(); i++)
+            if (label.charAt(i) < '0' || label.charAt(i) > '9')
+                return false;
+
+        return true;
+    }
+
+    // slot of the label in the table, or the empty slot where it would be added
+    private int findSlot(String label) {
+        int mask = table.length - 1;
+        int slot = hash(label) & mask;
+
+        while (table[slot] != 0 && !labels[table[slot] - 1].equals(label))
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+
+        for (int id = 0; id < size; id++) {
+            int slot = hash(labels[id]) & mask;
+
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+
+            table[slot] = id + 1;
+        }
+    }
+
+    private static int hash(String label) {
+        int h = label.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
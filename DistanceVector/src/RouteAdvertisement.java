@@ -0,0 +1,55 @@
+import java.util.Arrays;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that represents the distance vector (complete or only the changed
+ * entries) sent by a router to a neighbour. The entries are encoded as pairs
+ * (destination, cost) in a single int array instead of one RoutingEntry
+ * object each: the next hop of the sender is not needed by the neighbour, and
+ * a message costs one allocation however many entries it carries.
+ * <p>
+ * An advertisement is not modified once it is sent, so the same one can be
+ * sent to several neighbours.
+ */
+public class RouteAdvertisement {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    // destination of entry i at 2 * i, its cost at 2 * i + 1
+    private int[] entries;
+    private int size;
+
+    public RouteAdvertisement() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public RouteAdvertisement(int capacity) {
+        this.entries = new int[Math.max(1, capacity) * 2];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getDestination(int i) {
+        return entries[2 * i];
+    }
+
+    public int getCost(int i) {
+        return entries[2 * i + 1];
+    }
+
+    public void add(int destination, int cost) {
+        if (2 * size == entries.length)
+            entries = Arrays.copyOf(entries, entries.length * 2);
+
+        entries[2 * size] = destination;
+        entries[2 * size + 1] = cost;
+        size++;
+    }
+}
@@ -0,0 +1,158 @@
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that represents a router as an actor of the concurrent Distance Vector
+ * computation (see ConcurrentDVCalculator). The distance vectors sent by the
+ * neighbours are put in a lock-free mailbox, the actor is scheduled on the executor
+ * when its mailbox becomes non empty and it is the only one that modifies its
+ * RoutingTable. The Graph is only read, so it is shared by all the actors.
+ * <p>
+ * All the vectors waiting in the mailbox are merged in one batch, then if the
+ * routing table changed the new distance vector is sent once to every neighbour,
+ * with the split horizon mode and only the changed entries if the updates are
+ * incremental (see ConcurrentDVCalculator).
+ */
+public class RouterActor implements Runnable {
+
+    // distance vector received from a neighbour
+    private static class Message {
+        private final int sender;
+        private final RouteAdvertisement distanceVector;
+
+        private Message(int sender, RouteAdvertisement distanceVector) {
+            this.sender = sender;
+            this.distanceVector = distanceVector;
+        }
+    }
+
+    private final ConcurrentDVCalculator system;
+    private final Graph graph;
+    private final int router;
+    private final RoutingTable table;
+    private final Queue<Message> mailbox;
+    private final AtomicBoolean scheduled;
+    private List<RouterActor> neighbours;
+    // version of the table last sent to each neighbour
+    private long[] sentVersions;
+
+    public RouterActor(ConcurrentDVCalculator system, Graph graph, int router, RoutingTable table) {
+        this.system = system;
+        this.graph = graph;
+        this.router = router;
+        this.table = table;
+        this.mailbox = new ConcurrentLinkedQueue<>();
+        this.scheduled = new AtomicBoolean(false);
+    }
+
+    public int getRouter() {
+        return router;
+    }
+
+    public RoutingTable getRoutingTable() {
+        return table;
+    }
+
+    // set the neighbours, before the actor is started
+    void setNeighbours(List<RouterActor> neighbours) {
+        this.neighbours = neighbours;
+        this.sentVersions = new long[neighbours.size()];
+    }
+
+    // mark the actor as scheduled, the posts do not schedule it until it runs once
+    void hold() {
+        scheduled.set(true);
+    }
+
+    // put a distance vector in the mailbox, schedule the actor if it is idle
+    void post(int sender, RouteAdvertisement distanceVector) {
+        mailbox.add(new Message(sender, distanceVector));
+
+        if (scheduled.compareAndSet(false, true))
+            system.schedule(this);
+    }
+
+    /**
+     * take the vectors to send to the neighbours (in the order of the neighbours),
+     * complete or only the entries changed since the version last sent to each
+     * neighbour, null for a neighbour with no change to receive
+     */
+    RouteAdvertisement[] takeDistanceVectors(boolean complete) {
+        RoutingTable.SplitHorizon splitHorizon = system.getSplitHorizon();
+        RouteAdvertisement[] vectors = new RouteAdvertisement[neighbours.size()];
+        RouteAdvertisement last = null;
+
+        for (int i = 0; i < vectors.length; i++) {
+            RouteAdvertisement dv;
+
+            // without split horizon the vector depends only on the version received by the neighbour
+            if (splitHorizon == RoutingTable.SplitHorizon.NONE && last != null && sentVersions[i] == sentVersions[i - 1])
+                dv = last;
+            else {
+                int neighbour = neighbours.get(i).router;
+                dv = complete ? table.getDistanceVector(neighbour, sentVersions[i], splitHorizon)
+                        : table.getChangesSince(neighbour, sentVersions[i], splitHorizon);
+                last = dv;
+            }
+
+            vectors[i] = complete || !dv.isEmpty() ? dv : null;
+        }
+
+        for (int i = 0; i < vectors.length; i++)
+            sentVersions[i] = table.getVersion();
+
+        return vectors;
+    }
+
+    // send the vectors taken with takeDistanceVectors to the neighbours
+    void sendDistanceVectors(RouteAdvertisement[] vectors) {
+        int count = 0;
+        long entries = 0;
+
+        for (RouteAdvertisement dv : vectors)
+            if (dv != null) {
+                count++;
+                entries += dv.size();
+            }
+
+        system.messagesSent(count, entries);
+
+        for (int i = 0; i < vectors.length; i++)
+            if (vectors[i] != null)
+                neighbours.get(i).post(router, vectors[i]);
+    }
+
+    @Override
+    public void run() {
+        try {
+            do {
+                int processed = 0;
+                int updated = 0;
+                Message message;
+
+                while ((message = mailbox.poll()) != null) {
+                    updated += table.mergeUpdate(message.sender,
+                            graph.getCost(message.sender, router), message.distanceVector, Integer.MAX_VALUE, null);
+                    processed++;
+                }
+
+                // the new vector is sent before the processed messages are
+                // released, so the system cannot be seen as quiescent in between
+                if (updated > 0)
+                    sendDistanceVectors(takeDistanceVectors(!system.isIncrementalUpdates()));
+
+                if (processed > 0)
+                    system.messagesProcessed(processed, updated);
+                scheduled.set(false);
+
+            } while (!mailbox.isEmpty() && scheduled.compareAndSet(false, true));
+
+        } catch (Exception e) {
+            system.fail(e);
+        }
+    }
+}
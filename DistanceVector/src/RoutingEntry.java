@@ -5,24 +5,25 @@ import java.util.Objects;
  * <p>
  * Class that is used as a building block for RoutingTable class. Represents one entry
  * in the table consisting of destination router, next hop router and cost of the connection.
+ * The routers are identified by their int ids (see NodeIds).
  */
 public class RoutingEntry implements Comparable<Object> {
 
-    private final Character destination;
-    private Character nextHop;
+    private final int destination;
+    private int nextHop;
     private int cost;
 
-    public RoutingEntry(Character destination, Character nextHop, int cost) {
+    public RoutingEntry(int destination, int nextHop, int cost) {
         this.destination = destination;
         this.nextHop = nextHop;
         this.cost = cost;
     }
 
-    public Character getDestination() {
+    public int getDestination() {
         return destination;
     }
 
-    public Character getNextHop() {
+    public int getNextHop() {
         return nextHop;
     }
 
@@ -30,7 +31,7 @@ public class RoutingEntry implements Comparable<Object> {
         return cost;
     }
 
-    public void setNextHop(Character nextHop) {
+    public void setNextHop(int nextHop) {
         this.nextHop = nextHop;
     }
 
@@ -44,8 +45,8 @@ public class RoutingEntry implements Comparable<Object> {
         if (o == null || getClass() != o.getClass()) return false;
         RoutingEntry that = (RoutingEntry) o;
         return cost == that.cost &&
-                Objects.equals(destination, that.destination) &&
-                Objects.equals(nextHop, that.nextHop);
+                destination == that.destination &&
+                nextHop == that.nextHop;
     }
 
     @Override
@@ -55,6 +56,6 @@ public class RoutingEntry implements Comparable<Object> {
 
     @Override
     public int compareTo(Object o) {
-        return Character.compare(this.destination, ((RoutingEntry) o).destination);
+        return Integer.compare(this.destination, ((RoutingEntry) o).destination);
     }
 }
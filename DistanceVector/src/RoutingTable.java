@@ -3,98 +3,483 @@ import java.util.*;
 /**
  * Author: Samuel Dalvai
  * <p>
- * This class represents a Routing Table consisting of a router label and
- * a List of Routing Entries
+ * This class represents a Routing Table consisting of a router and
+ * a set of Routing Entries (destination, next hop and cost), the routers
+ * are identified by their ids and the labels are used only for the output
+ * <p>
+ * The entries are stored in three primitive arrays in the order in which the
+ * destinations were added, an open addressing hash index maps every destination
+ * to its position in the arrays, so that looking up or updating a destination costs
+ * O(1). The entries sorted by destination, needed only for the output, are
+ * computed lazily and kept until a new destination is added.
+ * <p>
+ * Every change made by mergeUpdate or withdrawRoutesThrough increments the
+ * version of the table and is recorded in a change log: the position of the
+ * entry and the new version, in the order of the changes. The version of the
+ * last change of every entry is kept too, so the entries changed since a
+ * version are found with a binary search in the log, skipping the records
+ * replaced by a later change of the same entry. A router remembers the version
+ * sent to each neighbour and sends only the entries changed since then. The
+ * replaced records are removed when the log is full, so the log holds at most
+ * four records per entry.
  */
 public class RoutingTable implements Comparable<Object> {
 
-    private final char router;
-    private final List<RoutingEntry> entries;
-
-    public RoutingTable(char router) {
+    /**
+     * How a router advertises to a neighbour the routes that go through that
+     * neighbour:
+     * - NONE: with their cost, as any other route
+     * - SPLIT_HORIZON: they are left out, so the neighbour never learns a
+     *   route that goes back through itself, except in the first update after
+     *   the route moved to the neighbour, where it is withdrawn (infinite
+     *   cost) so that the neighbour drops a route learned before through this router
+     * - POISON_REVERSE: with infinite cost, so the neighbour also drops at once
+     *   such a route learned before
+     */
+    public enum SplitHorizon {NONE, SPLIT_HORIZON, POISON_REVERSE}
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int NOT_FOUND = -1;
+    private static final int INFINITE = Integer.MAX_VALUE;
+
+    private final NodeIds nodeIds;
+    private final int router;
+    private int[] destinations;
+    private int[] nextHops;
+    private int[] costs;
+    private int size;
+    // open addressing index, slot value is position of the entry + 1 (0 = empty)
+    private int[] index;
+    // positions of the entries sorted by destination, null when not computed
+    private int[] sortedOrder;
+    // version of the table, of the last change of every entry, and the change log
+    private long version;
+    private long[] entryVersions;
+    private int[] logPositions;
+    private long[] logVersions;
+    private int logSize;
+
+    public RoutingTable(NodeIds nodeIds, int router) {
+        this.nodeIds = nodeIds;
         this.router = router;
-        this.entries = new ArrayList<>();
+        this.destinations = new int[INITIAL_CAPACITY];
+        this.nextHops = new int[INITIAL_CAPACITY];
+        this.costs = new int[INITIAL_CAPACITY];
+        this.size = 0;
+        this.index = new int[INITIAL_CAPACITY * 2];
+        this.entryVersions = new long[INITIAL_CAPACITY];
+        this.logPositions = new int[INITIAL_CAPACITY];
+        this.logVersions = new long[INITIAL_CAPACITY];
     }
 
-    public char getRouter() {
+    // create the routing table of a router that knows only its direct connections
+    public static RoutingTable fromGraph(int router, Graph graph) {
+        RoutingTable table = new RoutingTable(graph.getNodeIds(), router);
+
+        for (int i = 0; i < graph.getDegree(router); i++) {
+            int n = graph.getNeighbour(router, i);
+            table.addRoutingEntry(new RoutingEntry(n, n, graph.getNeighbourCost(router, i)));
+        }
+
+        // add the connection from the source node to itself
+        table.addRoutingEntry(new RoutingEntry(router, router, 0));
+        return table;
+    }
+
+    public String getRouter() {
+        return nodeIds.getLabel(router);
+    }
+
+    public int getRouterId() {
         return router;
     }
 
+    public int size() {
+        return size;
+    }
+
+    // get a copy of the entries sorted by destination
     public List<RoutingEntry> getEntries() {
+        List<RoutingEntry> entries = new ArrayList<>(size);
+
+        for (int i : getSortedOrder())
+            entries.add(new RoutingEntry(destinations[i], nextHops[i], costs[i]));
+
         return entries;
     }
 
+    // add an entry, if the destination is already known its entry is replaced
     public void addRoutingEntry(RoutingEntry entry) {
-        entries.add(entry);
-        entries.sort(Comparator.naturalOrder());
+        addRoutingEntry(entry.getDestination(), entry.getNextHop(), entry.getCost());
     }
 
-    public void updateRoutingEntry(Character destination, Character nextHop, int cost) throws Exception {
-        int index = -1;
+    // add an entry without allocating a RoutingEntry, as addRoutingEntry(RoutingEntry)
+    public void addRoutingEntry(int destination, int nextHop, int cost) {
+        int position = indexOf(destination);
 
-        for (RoutingEntry e : entries)
-            if (e.getDestination() == destination) {
-                index = entries.indexOf(e);
-                break;
-            }
+        if (position == NOT_FOUND)
+            position = insert(destination);
+
+        nextHops[position] = nextHop;
+        costs[position] = cost;
+    }
 
-        if (index == -1) // something went wrong
+    public void updateRoutingEntry(int destination, int nextHop, int cost) throws Exception {
+        int position = indexOf(destination);
+
+        if (position == NOT_FOUND) // something went wrong
             throw new Exception("Destination not present in the Routing Table...");
 
-        entries.get(index).setCost(cost);
-        entries.get(index).setNextHop(nextHop);
+        costs[position] = cost;
+        nextHops[position] = nextHop;
     }
 
-    // get the connection cost currently stored for a given destination
-    public int getConnectionCost(Character destination) throws Exception {
-        int cost = -1;
+    /**
+     * get the distance vector of this router: a copy of every entry that can be
+     * advertised to the neighbours (the router itself and the destinations with
+     * infinite cost are left out), sorted by destination
+     */
+    public List<RoutingEntry> getDistanceVector() {
+        List<RoutingEntry> distanceVector = new ArrayList<>(size);
+
+        for (int i : getSortedOrder())
+            if (costs[i] != 0 && costs[i] != Integer.MAX_VALUE)
+                distanceVector.add(new RoutingEntry(destinations[i], nextHops[i], costs[i]));
+
+        return distanceVector;
+    }
+
+    // the entries of getDistanceVector() encoded as a RouteAdvertisement, in the same order
+    public RouteAdvertisement encodeDistanceVector() {
+        RouteAdvertisement distanceVector = new RouteAdvertisement(size);
+
+        for (int i : getSortedOrder())
+            if (costs[i] != 0 && costs[i] != Integer.MAX_VALUE)
+                distanceVector.add(destinations[i], costs[i]);
+
+        return distanceVector;
+    }
 
-        for (RoutingEntry e : entries)
-            if (e.getDestination() == destination) {
-                cost = e.getCost();
-                break;
+    // version of the table, incremented by every change of an entry
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * get the distance vector advertised to a neighbour that received the
+     * version sentVersion of the table: every entry except the router itself,
+     * the routes through the neighbour are left out or poisoned as required by
+     * the split horizon mode. The destinations with infinite cost are
+     * advertised too, so that the neighbours withdraw their routes
+     */
+    public RouteAdvertisement getDistanceVector(int neighbour, long sentVersion, SplitHorizon splitHorizon) {
+        RouteAdvertisement distanceVector = new RouteAdvertisement(size);
+
+        for (int i = 0; i < size; i++)
+            addAdvertisement(distanceVector, i, neighbour, sentVersion, splitHorizon);
+
+        return distanceVector;
+    }
+
+    // get the entries changed after the version sentVersion as advertised to a neighbour
+    public RouteAdvertisement getChangesSince(int neighbour, long sentVersion, SplitHorizon splitHorizon) {
+        // first record of the log with a later version
+        int low = 0;
+        int high = logSize;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (logVersions[middle] <= sentVersion)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        RouteAdvertisement changes = new RouteAdvertisement(logSize - low);
+
+        for (int i = low; i < logSize; i++)
+            // a record replaced by a later change of the same entry is skipped
+            if (entryVersions[logPositions[i]] == logVersions[i])
+                addAdvertisement(changes, logPositions[i], neighbour, sentVersion, splitHorizon);
+
+        return changes;
+    }
+
+    /**
+     * Merge an update (a full distance vector or only its changes) received
+     * from a neighbour reachable with the given cost. Unlike mergeDistanceVector,
+     * a route through the neighbour follows the cost advertised by the neighbour
+     * also when it grows or becomes infinite (the route is withdrawn), and an
+     * unknown destination with infinite cost is not added.
+     * A cost higher than maxCost is infinite: no loop-free path can cost more, so
+     * the cost of a route that loops after a failure stops growing there (count
+     * to infinity).
+     * The destinations that the neighbour advertises with a higher cost than the
+     * cost through this router are added to replies (if not null) with the cost
+     * of this router: after a failure the neighbour has lost its route and does
+     * not know the alternative ones, which are not advertised again until they change.
+     * Return the number of entries added or updated, they are marked as changed
+     */
+    public int mergeUpdate(int neighbour, int costToReach, RouteAdvertisement update, int maxCost,
+                           RouteAdvertisement replies) {
+        int updated = 0;
+
+        for (int i = 0; i < update.size(); i++) {
+            int destination = update.getDestination(i);
+            int partialcost = pathCost(costToReach, update.getCost(i));
+
+            if (partialcost > maxCost)
+                partialcost = INFINITE;
+
+            int position = indexOf(destination);
+
+            if (position == NOT_FOUND) {
+                if (partialcost == INFINITE)
+                    continue;
+
+                position = insert(destination);
+            } else if (nextHops[position] == neighbour) {
+                if (partialcost == costs[position])
+                    continue;
+            } else if (partialcost >= costs[position]) {
+                if (replies != null && pathCost(costs[position], costToReach) < update.getCost(i))
+                    replies.add(destination, costs[position]);
+
+                continue;
+            }
+
+            nextHops[position] = neighbour;
+            costs[position] = partialcost;
+            markChanged(position);
+            updated++;
+        }
+
+        return updated;
+    }
+
+    /**
+     * Give an infinite cost to every destination reached through a neighbour,
+     * the neighbour itself included, when the link to the neighbour fails
+     * Return the number of entries withdrawn, they are marked as changed
+     */
+    public int withdrawRoutesThrough(int neighbour) {
+        int withdrawn = 0;
+
+        for (int i = 0; i < size; i++)
+            if (nextHops[i] == neighbour && costs[i] != INFINITE) {
+                costs[i] = INFINITE;
+                markChanged(i);
+                withdrawn++;
             }
 
-        if (cost == -1) // something went wrong
+        return withdrawn;
+    }
+
+    /**
+     * Merge the distance vector received from a neighbour reachable with the given cost
+     * If a destination contained in the vector is unknown, add it to the table, otherwise
+     * update the entry if a new "cheaper" path through the neighbour has been found
+     * Return the number of entries added or updated
+     */
+    public int mergeDistanceVector(int neighbour, int costToReach, RouteAdvertisement distanceVector) {
+        int updated = 0;
+
+        for (int i = 0; i < distanceVector.size(); i++) {
+            int partialcost = costToReach + distanceVector.getCost(i);
+            int position = indexOf(distanceVector.getDestination(i));
+
+            // add to table if not previously known destination
+            if (position == NOT_FOUND)
+                position = insert(distanceVector.getDestination(i));
+
+            // otherwise check if there is a better path and update accordingly
+            else if (partialcost >= costs[position])
+                continue;
+
+            nextHops[position] = neighbour;
+            costs[position] = partialcost;
+            updated++;
+        }
+
+        return updated;
+    }
+
+    // get the connection cost currently stored for a given destination
+    public int getConnectionCost(int destination) throws Exception {
+        int position = indexOf(destination);
+
+        if (position == NOT_FOUND) // something went wrong
             throw new Exception("Destination not present in the Routing Table...");
 
-        return cost;
+        return costs[position];
+    }
+
+    // get the next hop currently stored for a given destination, NodeIds.NO_ID if unknown
+    public int getNextHop(int destination) {
+        int position = indexOf(destination);
+
+        return position == NOT_FOUND ? NodeIds.NO_ID : nextHops[position];
     }
 
     // check whether this destination is known inside this Table
-    public boolean knowsDestination(Character destination) {
+    public boolean knowsDestination(int destination) {
+        return indexOf(destination) != NOT_FOUND;
+    }
+
+    // add the entry at a position as advertised to a neighbour, if it is advertised
+    private void addAdvertisement(RouteAdvertisement advertisement, int position, int neighbour,
+                                  long sentVersion, SplitHorizon splitHorizon) {
+
+        if (destinations[position] == router)
+            return;
+
+        int cost = costs[position];
+
+        if (nextHops[position] == neighbour && splitHorizon != SplitHorizon.NONE) {
+            if (splitHorizon == SplitHorizon.SPLIT_HORIZON && entryVersions[position] <= sentVersion)
+                return;
+
+            cost = INFINITE;
+        }
+
+        advertisement.add(destinations[position], cost);
+    }
+
+    // record the change of an entry in the log
+    private void markChanged(int position) {
+        version++;
+        entryVersions[position] = version;
 
-        boolean output = false;
+        if (logSize == logPositions.length) {
+            compactLog();
 
-        for (RoutingEntry e : entries) {
-            if (e.getDestination() == destination) {
-                output = true;
-                break;
+            // grow only if less than half of the records were replaced
+            if (logSize * 2 > logPositions.length) {
+                logPositions = Arrays.copyOf(logPositions, logPositions.length * 2);
+                logVersions = Arrays.copyOf(logVersions, logVersions.length * 2);
             }
         }
 
-        return output;
+        logPositions[logSize] = position;
+        logVersions[logSize] = version;
+        logSize++;
+    }
+
+    // remove the records replaced by a later change of the same entry, keeping the order
+    private void compactLog() {
+        int write = 0;
+
+        for (int i = 0; i < logSize; i++)
+            if (entryVersions[logPositions[i]] == logVersions[i]) {
+                logPositions[write] = logPositions[i];
+                logVersions[write] = logVersions[i];
+                write++;
+            }
+
+        logSize = write;
+    }
+
+    // sum of two costs, INFINITE if one of them is infinite or the sum overflows
+    private static int pathCost(int costA, int costB) {
+        int cost = costA + costB;
+        return costA == INFINITE || costB == INFINITE || cost < 0 ? INFINITE : cost;
+    }
+
+    // position of the entry of a destination in the arrays, NOT_FOUND if unknown
+    private int indexOf(int destination) {
+        int mask = index.length - 1;
+
+        for (int slot = hash(destination) & mask; index[slot] != 0; slot = (slot + 1) & mask)
+            if (destinations[index[slot] - 1] == destination)
+                return index[slot] - 1;
+
+        return NOT_FOUND;
+    }
+
+    // add a new destination at the end of the arrays, return its position
+    private int insert(int destination) {
+        if (size == destinations.length) {
+            destinations = Arrays.copyOf(destinations, size * 2);
+            nextHops = Arrays.copyOf(nextHops, size * 2);
+            costs = Arrays.copyOf(costs, size * 2);
+            entryVersions = Arrays.copyOf(entryVersions, size * 2);
+        }
+
+        destinations[size] = destination;
+        size++;
+        sortedOrder = null;
+
+        // keep the index at most half full
+        if (size * 2 > index.length)
+            rehash(index.length * 2);
+        else
+            addToIndex(size - 1);
+
+        return size - 1;
+    }
+
+    private void rehash(int capacity) {
+        index = new int[capacity];
+
+        for (int position = 0; position < size; position++)
+            addToIndex(position);
+    }
+
+    private void addToIndex(int position) {
+        int mask = index.length - 1;
+        int slot = hash(destinations[position]) & mask;
+
+        while (index[slot] != 0)
+            slot = (slot + 1) & mask;
+
+        index[slot] = position + 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // positions of the entries sorted by destination label, computed on first use
+    private int[] getSortedOrder() {
+        if (sortedOrder == null) {
+            Integer[] order = new Integer[size];
+
+            for (int i = 0; i < size; i++)
+                order[i] = i;
+
+            Arrays.sort(order, (i, j) -> NodeIds.compareLabels(nodeIds.getLabel(destinations[i]),
+                    nodeIds.getLabel(destinations[j])));
+
+            sortedOrder = new int[size];
+
+            for (int i = 0; i < size; i++)
+                sortedOrder[i] = order[i];
+        }
+
+        return sortedOrder;
     }
 
     @Override
     public String toString() {
-        StringBuilder output = new StringBuilder("Router " + router + ":\n");
+        StringBuilder output = new StringBuilder("Router " + getRouter() + ":\n");
 
         output.append("Dest, Next hop, Cost\n");
 
-        for (RoutingEntry e : entries) {
+        for (int i : getSortedOrder()) {
 
-            output.append(e.getDestination()).append("     ");
+            output.append(nodeIds.getLabel(destinations[i])).append("     ");
 
-            if (e.getNextHop() == e.getDestination() && e.getNextHop() == router)
+            if (nextHops[i] == destinations[i] && nextHops[i] == router)
                 output.append("direct").append("    ");
             else
-                output.append(e.getNextHop()).append("         ");
+                output.append(nodeIds.getLabel(nextHops[i])).append("         ");
 
-            if (e.getCost() == Integer.MAX_VALUE)
+            if (costs[i] == Integer.MAX_VALUE)
                 output.append(" ");
             else
-                output.append(e.getCost());
+                output.append(costs[i]);
 
             output.append("\n");
         }
@@ -106,14 +491,14 @@ public class RoutingTable implements Comparable<Object> {
     public String toFile() {
         StringBuilder output = new StringBuilder();
 
-        for (RoutingEntry e : entries) {
+        for (int i : getSortedOrder()) {
 
-            output.append(e.getDestination()).append(" ");
+            output.append(nodeIds.getLabel(destinations[i])).append(" ");
 
-            if (e.getNextHop() == e.getDestination() && e.getNextHop() == router)
+            if (nextHops[i] == destinations[i] && nextHops[i] == router)
                 output.append("direct");
             else
-                output.append(e.getNextHop());
+                output.append(nodeIds.getLabel(nextHops[i]));
 
             output.append("\n");
         }
@@ -123,7 +508,7 @@ public class RoutingTable implements Comparable<Object> {
 
     @Override
     public int compareTo(Object o) {
-        return Character.compare(this.router, ((RoutingTable) o).router);
+        return NodeIds.compareLabels(getRouter(), ((RoutingTable) o).getRouter());
 
     }
 }
@@ -0,0 +1,74 @@
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that represents an event of the Distance Vector simulation, ordered by the
+ * time at which it happens. Events with the same time are processed in the order in
+ * which they were scheduled (sequence number), so a simulation is deterministic.
+ * <p>
+ * There are four types of events:
+ * - MESSAGE: the distance vector sent by a router arrives to a neighbour
+ * - TIMER: a router sends its distance vector to all the neighbours (periodic update)
+ * - TRIGGERED: a router whose table changed sends its distance vector to all the neighbours
+ * - LINK_DOWN: the link between the router and the "sender" fails
+ */
+public class SimulationEvent implements Comparable<SimulationEvent> {
+
+    public enum Type {MESSAGE, TIMER, TRIGGERED, LINK_DOWN}
+
+    private final Type type;
+    private final long time;
+    private final long sequence;
+    private final int router;
+    private final int sender;
+    private final RouteAdvertisement distanceVector;
+
+    public SimulationEvent(Type type, long time, long sequence, int router,
+                           int sender, RouteAdvertisement distanceVector) {
+        this.type = type;
+        this.time = time;
+        this.sequence = sequence;
+        this.router = router;
+        this.sender = sender;
+        this.distanceVector = distanceVector;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    // id of the router that processes the event
+    public int getRouter() {
+        return router;
+    }
+
+    // id of the router that sent the distance vector (MESSAGE events), the other
+    // end of the link (LINK_DOWN events), otherwise -1
+    public int getSender() {
+        return sender;
+    }
+
+    public RouteAdvertisement getDistanceVector() {
+        return distanceVector;
+    }
+
+    @Override
+    public int compareTo(SimulationEvent o) {
+        if (time != o.time)
+            return Long.compare(time, o.time);
+
+        return Long.compare(sequence, o.sequence);
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationEvent {" + type +
+                " time = " + time +
+                " router = " + router +
+                (sender != NodeIds.NO_ID ? " sender = " + sender : "") +
+                '}';
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that collects the statistics of a Distance Vector simulation:
+ * the time at which the network converged (last change of a routing table)
+ * and the number of events, messages and routing table updates.
+ * <p>
+ * When links fail, the time needed to converge again after the last failure
+ * and the vectors lost on the failed links are reported too.
+ */
+public class SimulationReport {
+
+    private long convergenceTime;
+    private long endTime;
+    private long events;
+    private long messagesSent;
+    private long messagesDelivered;
+    private long entriesSent;
+    private long infiniteEntriesSent;
+    private long replies;
+    private long messagesLost;
+    private long failures;
+    private long lastFailureTime;
+    private long tableUpdates;
+    private long periodicUpdates;
+    private long triggeredUpdates;
+    private boolean converged;
+
+    public long getConvergenceTime() {
+        return convergenceTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public long getMessagesSent() {
+        return messagesSent;
+    }
+
+    public long getMessagesDelivered() {
+        return messagesDelivered;
+    }
+
+    public long getEntriesSent() {
+        return entriesSent;
+    }
+
+    // entries with infinite cost sent: withdrawn routes and routes poisoned by poison reverse
+    public long getInfiniteEntriesSent() {
+        return infiniteEntriesSent;
+    }
+
+    // messages sent in reply to a worse route (see RoutingTable.mergeUpdate)
+    public long getReplies() {
+        return replies;
+    }
+
+    public long getMessagesLost() {
+        return messagesLost;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    // time between the last link failure and the last change of a routing table
+    public long getReconvergenceTime() {
+        return Math.max(0, convergenceTime - lastFailureTime);
+    }
+
+    public long getTableUpdates() {
+        return tableUpdates;
+    }
+
+    public long getPeriodicUpdates() {
+        return periodicUpdates;
+    }
+
+    public long getTriggeredUpdates() {
+        return triggeredUpdates;
+    }
+
+    // false if the simulation was stopped by the time limit
+    public boolean isConverged() {
+        return converged;
+    }
+
+    void countEvent(long time) {
+        events++;
+        endTime = time;
+    }
+
+    void countMessage(RouteAdvertisement distanceVector) {
+        messagesSent++;
+        entriesSent += distanceVector.size();
+
+        for (int i = 0; i < distanceVector.size(); i++)
+            if (distanceVector.getCost(i) == Integer.MAX_VALUE)
+                infiniteEntriesSent++;
+    }
+
+    void countReply() {
+        replies++;
+    }
+
+    void countLoss() {
+        messagesLost++;
+    }
+
+    void countFailure(long time) {
+        failures++;
+        lastFailureTime = time;
+    }
+
+    void countDelivery() {
+        messagesDelivered++;
+    }
+
+    void countTableUpdates(long time, int updates) {
+        tableUpdates += updates;
+        convergenceTime = time;
+    }
+
+    void countPeriodicUpdate() {
+        periodicUpdates++;
+    }
+
+    void countTriggeredUpdate() {
+        triggeredUpdates++;
+    }
+
+    void setConverged(boolean converged) {
+        this.converged = converged;
+    }
+
+    @Override
+    public String toString() {
+        return "Simulation report:\n" +
+                "Converged:          " + (converged ? "yes" : "no (time limit reached)") + "\n" +
+                "Convergence time:   " + convergenceTime + "\n" +
+                "End time:           " + endTime + "\n" +
+                "Events processed:   " + events + "\n" +
+                "Messages sent:      " + messagesSent + "\n" +
+                "Messages delivered: " + messagesDelivered + "\n" +
+                "Entries sent:       " + entriesSent + "\n" +
+                "Infinite entries:   " + infiniteEntriesSent + "\n" +
+                "Replies sent:       " + replies + "\n" +
+                "Table updates:      " + tableUpdates + "\n" +
+                "Periodic updates:   " + periodicUpdates + "\n" +
+                "Triggered updates:  " + triggeredUpdates + "\n" +
+                (failures == 0 ? "" :
+                        "Link failures:      " + failures + "\n" +
+                        "Reconvergence time: " + getReconvergenceTime() + "\n" +
+                        "Messages lost:      " + messagesLost + "\n");
+    }
+}
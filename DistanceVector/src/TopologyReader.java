@@ -0,0 +1,466 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Class that loads a topology by memory mapping the file, so that large edge
+ * lists are read without copying them through a Reader and without creating
+ * objects for every line. The edges are collected in batches of primitive
+ * arrays and passed in bulk to an EdgeSink (e.g. Graph::addConnections).
+ * <p>
+ * Two formats are accepted, the format is recognized by the first bytes:
+ * - text: the format of topology.txt, every line has the two labels and the
+ * cost separated by white space (e.g. "R1 R2 10"), a line without white
+ * space is read in the compact form with single character labels (e.g. "AB2")
+ * and empty lines are skipped. The labels are parsed directly from the bytes
+ * of the file and a String is created only the first time a label is seen
+ * - binary: written by writeBinary, all the values are big endian
+ * MAGIC (4 bytes), VERSION (int), number of nodes (int),
+ * for every node: length of the label (int), label in UTF-8,
+ * number of edges (long), for every edge: node A (int), node B (int), cost (int)
+ * <p>
+ * The file is mapped in windows of at most WINDOW_SIZE bytes, so files larger
+ * than 2 GB can be read as well.
+ * <p>
+ * Can be run as an application to convert a topology to the binary format:
+ * java TopologyReader topology.txt topology.bin
+ */
+public class TopologyReader {
+
+    // receives the edges read, the arrays are reused for the next batch
+    public interface EdgeSink {
+        void addEdges(int[] nodesA, int[] nodesB, int[] costs, int count);
+    }
+
+    static final byte[] MAGIC = {0x7F, 'T', 'O', 'P'};
+    static final int VERSION = 1;
+
+    private static final int BATCH_SIZE = 8192;
+    private static final int WINDOW_SIZE = 1 << 26;
+    private static final int EDGE_BYTES = 12;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final NodeIds nodeIds;
+    private final EdgeSink sink;
+
+    // edges read but not yet passed to the sink
+    private final int[] batchA = new int[BATCH_SIZE];
+    private final int[] batchB = new int[BATCH_SIZE];
+    private final int[] batchCosts = new int[BATCH_SIZE];
+    private int batchSize;
+
+    // labels seen in the text: the bytes of label i are stored at
+    // labelStarts[i] .. labelStarts[i] + labelLengths[i] - 1 of labelBytes,
+    // the open addressing table stores i + 1 (0 = empty)
+    private byte[] labelBytes = new byte[INITIAL_CAPACITY * 8];
+    private int labelBytesSize;
+    private int[] labelStarts = new int[INITIAL_CAPACITY];
+    private int[] labelLengths = new int[INITIAL_CAPACITY];
+    private int[] labelIds = new int[INITIAL_CAPACITY];
+    private int labelCount;
+    private int[] labelTable = new int[INITIAL_CAPACITY * 2];
+
+    // start and end of the tokens of the current line
+    private final int[] tokenStarts = new int[3];
+    private final int[] tokenEnds = new int[3];
+    private long lineNumber;
+
+    /**
+     * The labels are interned in the given NodeIds, the ids passed
+     * to the sink are the ids of the labels in it
+     */
+    public TopologyReader(NodeIds nodeIds, EdgeSink sink) {
+        this.nodeIds = nodeIds;
+        this.sink = sink;
+    }
+
+    // read a topology in text or binary format into a Graph, timed as the load phase (see Metrics)
+    public static Graph readGraph(String filename) throws IOException {
+
+        Metrics.Timer timer = Metrics.start(Metrics.Phase.LOAD);
+        try {
+            Graph graph = new Graph();
+            new TopologyReader(graph.getNodeIds(), graph::addConnections).read(filename);
+
+            return graph;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    // read all the edges of the file and pass them to the sink
+    public void read(String filename) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (isBinary(channel))
+                readBinary(channel);
+            else
+                readText(channel);
+
+            flush();
+        }
+    }
+
+    private static boolean isBinary(FileChannel channel) throws IOException {
+
+        if (channel.size() < MAGIC.length)
+            return false;
+
+        ByteBuffer header = ByteBuffer.allocate(MAGIC.length);
+        channel.read(header, 0);
+
+        return Arrays.equals(header.array(), MAGIC);
+    }
+
+    // map the file window by window, a window ends after its last complete line
+    private void readText(FileChannel channel) throws IOException {
+
+        long size = channel.size();
+        long position = 0;
+        lineNumber = 0;
+
+        while (position < size) {
+            int length = (int) Math.min(WINDOW_SIZE, size - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+            int end = length;
+
+            if (position + length < size) {
+                while (end > 0 && buffer.get(end - 1) != '\n')
+                    end--;
+
+                if (end == 0)
+                    throw new IOException("Line " + (lineNumber + 1) + " is too long");
+            }
+
+            parseLines(buffer, end);
+            position += end;
+        }
+    }
+
+    private void parseLines(ByteBuffer buffer, int end) throws IOException {
+
+        int start = 0;
+
+        while (start < end) {
+            int lineEnd = start;
+
+            while (lineEnd < end && buffer.get(lineEnd) != '\n')
+                lineEnd++;
+
+            lineNumber++;
+            parseLine(buffer, start, lineEnd);
+            start = lineEnd + 1;
+        }
+    }
+
+    // split the line into the two labels and the cost and add the edge
+    private void parseLine(ByteBuffer buffer, int start, int end) throws IOException {
+
+        int tokens = 0;
+        int i = start;
+
+        while (true) {
+            while (i < end && isSpace(buffer.get(i)))
+                i++;
+
+            if (i == end)
+                break;
+
+            if (tokens == tokenStarts.length)
+                throw malformed();
+
+            tokenStarts[tokens] = i;
+
+            while (i < end && !isSpace(buffer.get(i)))
+                i++;
+
+            tokenEnds[tokens++] = i;
+        }
+
+        if (tokens == 0)
+            return;
+
+        if (tokens == 3) {
+            addEdge(label(buffer, tokenStarts[0], tokenEnds[0]),
+                    label(buffer, tokenStarts[1], tokenEnds[1]),
+                    cost(buffer, tokenStarts[2], tokenEnds[2]));
+            return;
+        }
+
+        // compact form with single character labels, e.g. "AB2"
+        int first = tokenStarts[0];
+        int second = first + charLength(buffer.get(first));
+        int third = second < tokenEnds[0] ? second + charLength(buffer.get(second)) : second;
+
+        if (tokens != 1 || third >= tokenEnds[0])
+            throw malformed();
+
+        addEdge(label(buffer, first, second), label(buffer, second, third), cost(buffer, third, tokenEnds[0]));
+    }
+
+    private IOException malformed() {
+        return new IOException("Malformed input for nodes and cost at line " + lineNumber);
+    }
+
+    private static boolean isSpace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    // number of bytes of the UTF-8 character starting with the given byte
+    private static int charLength(byte b) {
+        if ((b & 0xE0) == 0xC0)
+            return 2;
+        if ((b & 0xF0) == 0xE0)
+            return 3;
+        if ((b & 0xF8) == 0xF0)
+            return 4;
+        return 1;
+    }
+
+    private int cost(ByteBuffer buffer, int start, int end) throws IOException {
+
+        boolean negative = buffer.get(start) == '-';
+        int i = negative || buffer.get(start) == '+' ? start + 1 : start;
+
+        if (i == end)
+            throw malformed();
+
+        long value = 0;
+
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+
+            if (digit < 0 || digit > 9)
+                throw malformed();
+
+            value = value * 10 + digit;
+
+            if (value > Integer.MAX_VALUE + 1L)
+                throw malformed();
+        }
+
+        value = negative ? -value : value;
+
+        if (value > Integer.MAX_VALUE)
+            throw malformed();
+
+        return (int) value;
+    }
+
+    // get the id of the label made of the given bytes, interning it the first time
+    private int label(ByteBuffer buffer, int start, int end) {
+
+        int length = end - start;
+        int hash = 0;
+
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + buffer.get(i);
+
+        int mask = labelTable.length - 1;
+        int slot = mix(hash) & mask;
+
+        while (labelTable[slot] != 0) {
+            int label = labelTable[slot] - 1;
+
+            if (equals(buffer, start, length, label))
+                return labelIds[label];
+
+            slot = (slot + 1) & mask;
+        }
+
+        // first time the label is seen
+        if (labelBytesSize + length > labelBytes.length)
+            labelBytes = Arrays.copyOf(labelBytes, Math.max(labelBytes.length * 2, labelBytesSize + length));
+
+        if (labelCount == labelIds.length) {
+            labelStarts = Arrays.copyOf(labelStarts, labelCount * 2);
+            labelLengths = Arrays.copyOf(labelLengths, labelCount * 2);
+            labelIds = Arrays.copyOf(labelIds, labelCount * 2);
+        }
+
+        for (int i = 0; i < length; i++)
+            labelBytes[labelBytesSize + i] = buffer.get(start + i);
+
+        int label = labelCount++;
+        labelStarts[label] = labelBytesSize;
+        labelLengths[label] = length;
+        labelIds[label] = nodeIds.intern(new String(labelBytes, labelBytesSize, length, StandardCharsets.UTF_8));
+        labelBytesSize += length;
+        labelTable[slot] = label + 1;
+
+        // keep the table at most half full
+        if (labelCount * 2 > labelTable.length)
+            rehashLabels();
+
+        return labelIds[label];
+    }
+
+    private boolean equals(ByteBuffer buffer, int start, int length, int label) {
+
+        if (labelLengths[label] != length)
+            return false;
+
+        int labelStart = labelStarts[label];
+
+        for (int i = 0; i < length; i++)
+            if (labelBytes[labelStart + i] != buffer.get(start + i))
+                return false;
+
+        return true;
+    }
+
+    private void rehashLabels() {
+
+        labelTable = new int[labelTable.length * 2];
+        int mask = labelTable.length - 1;
+
+        for (int label = 0; label < labelCount; label++) {
+            int hash = 0;
+
+            for (int i = labelStarts[label], end = i + labelLengths[label]; i < end; i++)
+                hash = 31 * hash + labelBytes[i];
+
+            int slot = mix(hash) & mask;
+
+            while (labelTable[slot] != 0)
+                slot = (slot + 1) & mask;
+
+            labelTable[slot] = label + 1;
+        }
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // the labels are read with a stream, the edges are mapped window by window
+    private void readBinary(FileChannel channel) throws IOException {
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(MAGIC.length))));
+
+        if (input.readInt() != VERSION)
+            throw new IOException("Unsupported version of the binary topology");
+
+        int nodesCount = input.readInt();
+        int[] ids = new int[nodesCount];
+        long position = MAGIC.length + 8;
+
+        for (int node = 0; node < nodesCount; node++) {
+            byte[] label = new byte[input.readInt()];
+            input.readFully(label);
+            ids[node] = nodeIds.intern(new String(label, StandardCharsets.UTF_8));
+            position += 4 + label.length;
+        }
+
+        long edgesCount = input.readLong();
+        position += 8;
+
+        if (channel.size() - position != edgesCount * EDGE_BYTES)
+            throw new IOException("Truncated binary topology");
+
+        int[] edges = new int[BATCH_SIZE * 3];
+        long windowEdges = WINDOW_SIZE / EDGE_BYTES;
+
+        for (long first = 0; first < edgesCount; first += windowEdges) {
+            long count = Math.min(windowEdges, edgesCount - first);
+            IntBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                    position + first * EDGE_BYTES, count * EDGE_BYTES).asIntBuffer();
+
+            while (window.hasRemaining()) {
+                int values = Math.min(window.remaining(), edges.length);
+                window.get(edges, 0, values);
+
+                for (int i = 0; i < values; i += 3) {
+                    int nodeA = edges[i];
+                    int nodeB = edges[i + 1];
+
+                    if (nodeA < 0 || nodeA >= nodesCount || nodeB < 0 || nodeB >= nodesCount)
+                        throw new IOException("Invalid node in the binary topology");
+
+                    addEdge(ids[nodeA], ids[nodeB], edges[i + 2]);
+                }
+            }
+        }
+    }
+
+    private void addEdge(int nodeA, int nodeB, int cost) {
+
+        batchA[batchSize] = nodeA;
+        batchB[batchSize] = nodeB;
+        batchCosts[batchSize] = cost;
+
+        if (++batchSize == BATCH_SIZE)
+            flush();
+    }
+
+    private void flush() {
+
+        if (batchSize > 0)
+            sink.addEdges(batchA, batchB, batchCosts, batchSize);
+
+        batchSize = 0;
+    }
+
+    /**
+     * Write a graph in the binary format, every undirected connection is written
+     * once. The ids of the nodes in the file are the ids of the graph
+     */
+    public static void writeBinary(Graph graph, String filename) throws IOException {
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(filename), 1 << 16))) {
+
+            output.write(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(graph.getNodesCount());
+
+            long connections = 0;
+
+            for (int node = 0; node < graph.getNodesCount(); node++) {
+                byte[] label = graph.getLabel(node).getBytes(StandardCharsets.UTF_8);
+                output.writeInt(label.length);
+                output.write(label);
+
+                for (int i = 0; i < graph.getDegree(node); i++)
+                    if (node <= graph.getNeighbour(node, i))
+                        connections++;
+            }
+
+            output.writeLong(connections);
+
+            for (int node = 0; node < graph.getNodesCount(); node++)
+                for (int i = 0; i < graph.getDegree(node); i++)
+                    if (node <= graph.getNeighbour(node, i)) {
+                        output.writeInt(node);
+                        output.writeInt(graph.getNeighbour(node, i));
+                        output.writeInt(graph.getNeighbourCost(node, i));
+                    }
+        }
+    }
+
+    public static void main(String[] args) {
+
+        if (args.length < 2) {
+            System.err.println("Usage: java TopologyReader input output.bin");
+            return;
+        }
+
+        try {
+            writeBinary(readGraph(args[0]), args[1]);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
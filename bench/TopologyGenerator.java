@@ -0,0 +1,148 @@
+import java.io.PrintStream;
+import java.util.Random;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * Generates synthetic topologies for the benchmarks, the nodes are labeled
+ * "0" .. "n-1" and the cost of every edge is a random value from 1 to 10.
+ * The generation is deterministic for a given seed. The generator is shared
+ * by the benchmarks of the Dijkstra and the DistanceVector modules.
+ * <p>
+ * Supported topologies:
+ * - ring: every node is connected to the next one
+ * - grid: the nodes are placed on a square grid and connected to their right and lower neighbour
+ * - er: Erdos-Renyi random graph with n * degree / 2 edges between random pairs of nodes
+ * - ba: Barabasi-Albert scale-free graph, every new node is connected to degree / 2 existing
+ * nodes chosen with a probability proportional to their degree
+ * <p>
+ * Can be run as an application to write a topology.txt file:
+ * java TopologyGenerator ba 10000 4 > topology.txt
+ */
+public class TopologyGenerator {
+
+    public static final String[] TOPOLOGIES = {"ring", "grid", "er", "ba"};
+    private static final int MAX_COST = 10;
+
+    // edges of a generated topology, edge i connects from[i] and to[i] with cost[i]
+    public static class Edges {
+        public final int nodes;
+        public final int[] from;
+        public final int[] to;
+        public final int[] cost;
+        public int size;
+
+        Edges(int nodes, int capacity) {
+            this.nodes = nodes;
+            this.from = new int[capacity];
+            this.to = new int[capacity];
+            this.cost = new int[capacity];
+        }
+
+        void add(int a, int b, Random random) {
+            from[size] = a;
+            to[size] = b;
+            cost[size] = 1 + random.nextInt(MAX_COST);
+            size++;
+        }
+    }
+
+    public static Edges generate(String topology, int nodes, int degree, long seed) {
+        Random random = new Random(seed);
+
+        switch (topology) {
+            case "ring":
+                return ring(nodes, random);
+            case "grid":
+                return grid(nodes, random);
+            case "er":
+                return erdosRenyi(nodes, degree, random);
+            case "ba":
+                return barabasiAlbert(nodes, degree, random);
+            default:
+                throw new IllegalArgumentException("Unknown topology " + topology);
+        }
+    }
+
+    private static Edges ring(int nodes, Random random) {
+        Edges edges = new Edges(nodes, nodes);
+
+        for (int i = 0; i < nodes; i++)
+            edges.add(i, (i + 1) % nodes, random);
+
+        return edges;
+    }
+
+    private static Edges grid(int nodes, Random random) {
+        int side = (int) Math.ceil(Math.sqrt(nodes));
+        Edges edges = new Edges(nodes, 2 * nodes);
+
+        for (int i = 0; i < nodes; i++) {
+            if ((i + 1) % side != 0 && i + 1 < nodes)
+                edges.add(i, i + 1, random);
+            if (i + side < nodes)
+                edges.add(i, i + side, random);
+        }
+
+        return edges;
+    }
+
+    private static Edges erdosRenyi(int nodes, int degree, Random random) {
+        int count = nodes * degree / 2;
+        Edges edges = new Edges(nodes, count + nodes);
+
+        // a spanning path keeps the graph connected
+        for (int i = 1; i < nodes; i++)
+            edges.add(i - 1, i, random);
+
+        for (int i = nodes - 1; i < count; i++) {
+            int a = random.nextInt(nodes);
+            int b = random.nextInt(nodes - 1);
+            edges.add(a, b >= a ? b + 1 : b, random);
+        }
+
+        return edges;
+    }
+
+    private static Edges barabasiAlbert(int nodes, int degree, Random random) {
+        int links = Math.max(1, degree / 2);
+        Edges edges = new Edges(nodes, nodes * links);
+        // every node appears once for every edge it has, so a random
+        // element is chosen with probability proportional to the degree
+        int[] endpoints = new int[2 * nodes * links];
+        int endpointsCount = 0;
+
+        for (int i = 1; i < nodes; i++) {
+            for (int l = 0; l < Math.min(links, i); l++) {
+                int target = endpointsCount == 0 ? 0 : endpoints[random.nextInt(endpointsCount)];
+
+                if (target == i)
+                    continue;
+
+                edges.add(i, target, random);
+                endpoints[endpointsCount++] = i;
+                endpoints[endpointsCount++] = target;
+            }
+        }
+
+        return edges;
+    }
+
+    // write the edges in the format of topology.txt
+    public static void write(Edges edges, PrintStream out) {
+        for (int i = 0; i < edges.size; i++)
+            out.println(edges.from[i] + " " + edges.to[i] + " " + edges.cost[i]);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java TopologyGenerator ring|grid|er|ba nodes [degree] [seed]");
+            return;
+        }
+
+        int degree = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        write(generate(args[0], Integer.parseInt(args[1]), degree, seed), System.out);
+    }
+}
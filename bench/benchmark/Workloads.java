@@ -0,0 +1,28 @@
+package benchmark;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Author: Samuel Dalvai
+ * <p>
+ * JMH does not accept benchmark classes in the default package, and a class of a
+ * package cannot refer to the classes of the default package where the modules are.
+ * The JMH benchmarks of this package therefore get the operations they measure from
+ * a workload class of the default package (DijkstraWorkloads, DistanceVectorWorkloads),
+ * loaded by name once per trial: the workload is built from the parameters of the
+ * benchmark and maps the name of a benchmark to the operation to run.
+ */
+public final class Workloads {
+
+    private Workloads() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Function<String, Supplier<Object>> load(String className, String topology, int nodes, int degree)
+            throws ReflectiveOperationException {
+        return (Function<String, Supplier<Object>>) Class.forName(className)
+                .getConstructor(String.class, int.class, int.class)
+                .newInstance(topology, nodes, degree);
+    }
+}